@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import com.google.common.collect.ImmutableMap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.FileRequest;
+import org.curioswitch.curiostack.gcloud.storage.testing.FakeStorageServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures upload and download throughput of each {@link StorageClient} mode against a {@link
+ * FakeStorageServer}. Each operation counts as 1MB of transferred data, so the reported ops/s is
+ * the throughput in MB/s. The injected latency approximates the round trip to cloud storage, which
+ * dominates the throughput of modes that make requests sequentially.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StorageThroughputBenchmark {
+
+  private static final int SIZE_MB = 64;
+  private static final int SIZE = SIZE_MB * 1024 * 1024;
+
+  // The size of each write to uploaders, a typical application buffer size.
+  private static final int WRITE_SIZE = 4 * 1024 * 1024;
+
+  private static final int PART_SIZE = 8 * 1024 * 1024;
+  private static final int CONCURRENCY = 8;
+
+  @Param({"0", "20"})
+  private int latencyMillis;
+
+  private FakeStorageServer server;
+  private StorageClient client;
+  private byte[] contents;
+  private Path downloadFile;
+  private ByteBuffer readBuffer;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = FakeStorageServer.builder().latency(Duration.ofMillis(latencyMillis)).build().start();
+    ModifiableStorageConfig config = new ModifiableStorageConfig();
+    config.setParallelReadRangeSize(PART_SIZE);
+    config.setParallelReadConcurrency(CONCURRENCY);
+    client = server.newStorageClient(config);
+
+    contents = new byte[SIZE];
+    new Random(1).nextBytes(contents);
+    server.putObject("download", contents);
+
+    downloadFile = Files.createTempFile("storage-benchmark", ".bin");
+    readBuffer = ByteBuffer.allocateDirect(WRITE_SIZE);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    server.close();
+    Files.deleteIfExists(downloadFile);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE_MB)
+  public void uploadFileWriter() throws Exception {
+    FileWriter writer = client.createFile("upload", ImmutableMap.of()).join();
+    for (int pos = 0; pos < SIZE; pos += WRITE_SIZE) {
+      writer.write(ByteBuffer.wrap(contents, pos, WRITE_SIZE)).get();
+    }
+    writer.writeAndClose(ByteBuffer.allocate(0)).get();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE_MB)
+  public void uploadPipelinedFileWriter() {
+    PipelinedFileWriter writer =
+        client.createPipelinedFile(request(), CONCURRENCY * (long) WRITE_SIZE).join();
+    for (int pos = 0; pos < SIZE; pos += WRITE_SIZE) {
+      writer.write(Unpooled.wrappedBuffer(contents, pos, WRITE_SIZE)).join();
+    }
+    writer.close().join();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE_MB)
+  public void uploadParallelFileWriter() throws Exception {
+    ParallelFileWriter writer = client.createParallelFile(request(), PART_SIZE, CONCURRENCY);
+    for (int pos = 0; pos < SIZE; pos += WRITE_SIZE) {
+      writer.write(Unpooled.wrappedBuffer(contents, pos, WRITE_SIZE)).get();
+    }
+    writer.writeAndClose(Unpooled.EMPTY_BUFFER).join();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE_MB)
+  public int downloadReadFile() {
+    ByteBuf buf = client.readFile("download").join();
+    int size = buf.readableBytes();
+    buf.release();
+    return size;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE_MB)
+  public long downloadReadFileStream() throws IOException {
+    long size = 0;
+    try (ReadableByteChannel channel = client.readFileStream("download").join().newChannel()) {
+      int read;
+      while ((read = channel.read(readBuffer)) >= 0) {
+        size += read;
+        readBuffer.clear();
+      }
+    }
+    return size;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE_MB)
+  public long downloadReadFileParallel() throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            downloadFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      return client.readFileParallel("download", channel).join();
+    }
+  }
+
+  private static FileRequest request() {
+    return new FileRequest.Builder().name("upload").build();
+  }
+}
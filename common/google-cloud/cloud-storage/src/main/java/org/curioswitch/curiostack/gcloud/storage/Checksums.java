@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import com.google.common.primitives.Ints;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.stream.ByteStreamMessage;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+import javax.annotation.Nullable;
+
+/**
+ * Utilities for the CRC32C checksums cloud storage uses to verify the integrity of object data,
+ * sent and returned in the {@code x-goog-hash} header. Checksums are computed directly over the NIO
+ * views of {@link ByteBuf}s without copying, using the intrinsified {@link CRC32C}.
+ */
+final class Checksums {
+
+  static final AsciiString GOOG_HASH = AsciiString.of("x-goog-hash");
+
+  private static final AsciiString GOOG_STORED_CONTENT_ENCODING =
+      AsciiString.of("x-goog-stored-content-encoding");
+
+  private static final String CRC32C_PREFIX = "crc32c=";
+
+  // The reversed CRC32C polynomial.
+  private static final int CASTAGNOLI = 0x82F63B78;
+
+  /**
+   * Updates {@code crc32c} with the readable bytes of {@code buf}, without changing its indexes.
+   */
+  static void update(CRC32C crc32c, ByteBuf buf) {
+    // Views share content with the buffer, only their positions are advanced by the update.
+    for (ByteBuffer nioBuffer : buf.nioBuffers()) {
+      crc32c.update(nioBuffer);
+    }
+  }
+
+  /** Returns the {@code x-goog-hash} header value for the checksum computed by {@code crc32c}. */
+  static String hashHeaderValue(CRC32C crc32c) {
+    return CRC32C_PREFIX + encode((int) crc32c.getValue());
+  }
+
+  /** Encodes a CRC32C checksum in the big-endian base64 format used by cloud storage. */
+  static String encode(int crc32c) {
+    return Base64.getEncoder().encodeToString(Ints.toByteArray(crc32c));
+  }
+
+  /**
+   * Returns the encoded CRC32C checksum of the object content in {@code headers}, or {@code null}
+   * if it is not present or does not apply to the returned content, e.g., because cloud storage
+   * decompressed a gzip-encoded object when serving it.
+   */
+  @Nullable
+  static String crc32c(HttpHeaders headers) {
+    String storedEncoding = headers.get(GOOG_STORED_CONTENT_ENCODING);
+    if (storedEncoding != null
+        && !storedEncoding.equals("identity")
+        && !storedEncoding.equals(headers.get(HttpHeaderNames.CONTENT_ENCODING))) {
+      return null;
+    }
+    // Cloud storage returns both crc32c and md5 hashes, either in a single comma-separated header
+    // or as separate headers.
+    for (String value : headers.getAll(GOOG_HASH)) {
+      for (String hash : value.split(",")) {
+        hash = hash.trim();
+        if (hash.startsWith(CRC32C_PREFIX)) {
+          return hash.substring(CRC32C_PREFIX.length());
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Verifies the readable bytes of {@code content} match the CRC32C checksum in {@code headers},
+   * throwing {@link ChecksumMismatchException} if they don't. Content without a checksum is not
+   * verified.
+   */
+  static void verify(String filename, HttpHeaders headers, ByteBuf content) {
+    String expected = crc32c(headers);
+    if (expected == null) {
+      return;
+    }
+    CRC32C crc32c = new CRC32C();
+    update(crc32c, content);
+    verify(filename, expected, (int) crc32c.getValue());
+  }
+
+  /**
+   * Throws {@link ChecksumMismatchException} if the CRC32C checksum {@code actual} does not match
+   * the encoded checksum {@code expected}.
+   */
+  static void verify(String filename, String expected, int actual) {
+    String encoded = encode(actual);
+    if (!encoded.equals(expected)) {
+      throw new ChecksumMismatchException(
+          "Checksum of "
+              + filename
+              + " did not match, expected "
+              + expected
+              + " but was "
+              + encoded);
+    }
+  }
+
+  /**
+   * Returns a stream of {@code content} which is verified against the encoded CRC32C checksum
+   * {@code expected} as it is consumed. The stream fails with {@link ChecksumMismatchException}
+   * after the last chunk of data if the checksum doesn't match, so consumers must only trust the
+   * data once the stream completes successfully.
+   */
+  static ByteStreamMessage verifying(
+      String filename, String expected, StreamMessage<HttpData> content) {
+    CRC32C crc32c = new CRC32C();
+    return ByteStreamMessage.of(
+        content
+            .peek(
+                data -> {
+                  if (data.isPooled()) {
+                    update(crc32c, data.byteBuf());
+                  } else {
+                    crc32c.update(data.array());
+                  }
+                })
+            .endWith(
+                cause -> {
+                  if (cause == null) {
+                    verify(filename, expected, (int) crc32c.getValue());
+                  }
+                  return null;
+                }));
+  }
+
+  /**
+   * Returns the CRC32C checksum of two pieces of data one after the other, given the checksum of
+   * each and the length of the second, without reading the data again. This is the same algorithm
+   * as zlib's {@code crc32_combine}, which works for any CRC with the polynomial replaced.
+   */
+  static int combine(int crc1, int crc2, long length2) {
+    if (length2 <= 0) {
+      return crc1;
+    }
+
+    // Operator for a single zero bit.
+    int[] odd = new int[32];
+    odd[0] = CASTAGNOLI;
+    int row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+    // Operators for two and four zero bits.
+    int[] even = new int[32];
+    gf2MatrixSquare(even, odd);
+    gf2MatrixSquare(odd, even);
+
+    // Apply length2 zero bytes to crc1, the first squaring gives the operator for one zero byte.
+    while (true) {
+      gf2MatrixSquare(even, odd);
+      if ((length2 & 1) != 0) {
+        crc1 = gf2MatrixTimes(even, crc1);
+      }
+      length2 >>>= 1;
+      if (length2 == 0) {
+        break;
+      }
+      gf2MatrixSquare(odd, even);
+      if ((length2 & 1) != 0) {
+        crc1 = gf2MatrixTimes(odd, crc1);
+      }
+      length2 >>>= 1;
+      if (length2 == 0) {
+        break;
+      }
+    }
+    return crc1 ^ crc2;
+  }
+
+  private static int gf2MatrixTimes(int[] matrix, int vector) {
+    int sum = 0;
+    for (int i = 0; vector != 0; i++, vector >>>= 1) {
+      if ((vector & 1) != 0) {
+        sum ^= matrix[i];
+      }
+    }
+    return sum;
+  }
+
+  private static void gf2MatrixSquare(int[] square, int[] matrix) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = gf2MatrixTimes(matrix, matrix[n]);
+    }
+  }
+
+  private Checksums() {}
+}
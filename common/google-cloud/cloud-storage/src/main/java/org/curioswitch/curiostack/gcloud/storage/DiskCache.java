@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hashing;
+import com.linecorp.armeria.common.CommonPools;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of file contents on local disk, used by {@link StorageClient#readFile(String)} when
+ * {@link StorageConfig#getDiskCacheDirectory()} is set. Cached files are revalidated with their
+ * ETag, which changes along with the generation of the file, so only unchanged contents are served
+ * from disk. Files are stored in a {@link LruDirectory}, which evicts the least recently used files
+ * when the total size exceeds the maximum.
+ *
+ * <p>Cached files are named with a hash of the file name and the ETag so the cache can be reloaded
+ * from the directory after a restart.
+ */
+final class DiskCache {
+
+  static final class Entry {
+    private final String etag;
+    private final String name;
+
+    private Entry(String etag, String name) {
+      this.etag = etag;
+      this.name = name;
+    }
+
+    String etag() {
+      return etag;
+    }
+  }
+
+  // The current entry of each cached file, by the hash of the file name.
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final LruDirectory directory;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter savedBytes;
+
+  DiskCache(Path directory, long maxSizeBytes, MeterRegistry registry) {
+    this.directory = new LruDirectory(directory, maxSizeBytes, this::onEvicted);
+
+    var prefix = MetricLabels.diskCachePrefix();
+    hits = registry.counter(prefix.name("requests"), prefix.tags("result", "hit"));
+    misses = registry.counter(prefix.name("requests"), prefix.tags("result", "miss"));
+    savedBytes = registry.counter(prefix.name("saved.bytes"), prefix.tags());
+    Gauge.builder(prefix.name("hit.ratio"), this, DiskCache::hitRatio)
+        .tags(prefix.tags())
+        .register(registry);
+    Gauge.builder(prefix.name("size.bytes"), this.directory, LruDirectory::totalBytes)
+        .tags(prefix.tags())
+        .register(registry);
+
+    load();
+  }
+
+  /** Returns the cached entry for the file, or {@code null} if it is not cached. */
+  @Nullable
+  Entry get(String filename) {
+    return entries.get(key(filename));
+  }
+
+  /**
+   * Reads the contents of a cached entry that has been revalidated. The returned {@link ByteBuf} is
+   * a memory-mapped view of the cached file.
+   */
+  CompletableFuture<ByteBuf> read(Entry entry) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          Path path = directory.get(entry.name);
+          if (path == null) {
+            throw new UncheckedIOException(
+                "Cached file was evicted.", new NoSuchFileException(entry.name));
+          }
+          final ByteBuffer mapped;
+          try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          } catch (IOException e) {
+            throw new UncheckedIOException("Could not read cached file.", e);
+          }
+          hits.increment();
+          savedBytes.increment(mapped.remaining());
+          return Unpooled.wrappedBuffer(mapped);
+        },
+        CommonPools.blockingTaskExecutor());
+  }
+
+  /** Records a read of a file that could not be served from the cache. */
+  void recordMiss() {
+    misses.increment();
+  }
+
+  /**
+   * Stores the contents of a file in the cache. Ownership of {@code content} is transferred to the
+   * cache. Failures are ignored as the file will just be fetched again.
+   */
+  CompletableFuture<Void> store(String filename, String etag, ByteBuf content) {
+    return CompletableFuture.runAsync(
+        () -> {
+          try {
+            doStore(filename, etag, content);
+          } finally {
+            content.release();
+          }
+        },
+        CommonPools.blockingTaskExecutor());
+  }
+
+  /** Removes the file from the cache, e.g., because it was deleted. */
+  void invalidate(String filename) {
+    Entry entry = entries.remove(key(filename));
+    if (entry != null) {
+      directory.remove(entry.name);
+    }
+  }
+
+  private void doStore(String filename, String etag, ByteBuf content) {
+    String key = key(filename);
+    String name = key + '_' + encodeEtag(etag);
+    long size = content.readableBytes();
+    final Path temp;
+    try {
+      temp = directory.newTempFile();
+    } catch (IOException e) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      ByteBuffer[] buffers = content.nioBuffers();
+      long written = 0;
+      while (written < size) {
+        written += channel.write(buffers);
+      }
+    } catch (IOException e) {
+      directory.discard(temp);
+      return;
+    }
+    if (!directory.commit(name, temp)) {
+      return;
+    }
+
+    Entry previous = entries.put(key, new Entry(etag, name));
+    if (previous != null && !previous.name.equals(name)) {
+      directory.remove(previous.name);
+    }
+  }
+
+  private void load() {
+    // From least to most recently used, so the most recent entry of a file is kept.
+    for (String name : directory.names()) {
+      int separator = name.indexOf('_');
+      if (separator < 0) {
+        directory.remove(name);
+        continue;
+      }
+      final String etag;
+      try {
+        etag = new String(Base64.getUrlDecoder().decode(name.substring(separator + 1)), UTF_8);
+      } catch (IllegalArgumentException e) {
+        directory.remove(name);
+        continue;
+      }
+      Entry previous = entries.put(name.substring(0, separator), new Entry(etag, name));
+      if (previous != null) {
+        directory.remove(previous.name);
+      }
+    }
+  }
+
+  private void onEvicted(String name) {
+    int separator = name.indexOf('_');
+    if (separator < 0) {
+      return;
+    }
+    // Only if the entry wasn't replaced by a newer version of the file in the meantime.
+    entries.computeIfPresent(
+        name.substring(0, separator), (key, entry) -> entry.name.equals(name) ? null : entry);
+  }
+
+  private double hitRatio() {
+    double hitCount = hits.count();
+    double total = hitCount + misses.count();
+    return total == 0 ? 0 : hitCount / total;
+  }
+
+  private static String key(String filename) {
+    return Hashing.sha256().hashString(filename, UTF_8).toString();
+  }
+
+  private static String encodeEtag(String etag) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(etag.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.stream.ByteStreamMessage;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import io.netty.channel.EventLoop;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The contents of a file being read from cloud storage, returned by {@link
+ * StorageClient#readFileStream(String)}. The metadata of the file is available as soon as the
+ * response headers are received, while the contents are streamed with backpressure as they are
+ * consumed from {@link #content()} or {@link #newChannel()}. Exactly one of these must be consumed,
+ * or {@link #abort()} called, to release the underlying connection.
+ */
+public final class FileStream {
+
+  private final long size;
+  private final long offset;
+  private final long length;
+  private final long generation;
+  private final String etag;
+  private final ByteStreamMessage content;
+  private final EventLoop eventLoop;
+
+  FileStream(
+      long size,
+      long offset,
+      long length,
+      long generation,
+      String etag,
+      ByteStreamMessage content,
+      EventLoop eventLoop) {
+    this.size = size;
+    this.offset = offset;
+    this.length = length;
+    this.generation = generation;
+    this.etag = etag;
+    this.content = content;
+    this.eventLoop = eventLoop;
+  }
+
+  /** The total size of the file in bytes, or {@code -1} if the server did not report it. */
+  public long size() {
+    return size;
+  }
+
+  /** The position in the file of the first byte of {@link #content()}. */
+  public long offset() {
+    return offset;
+  }
+
+  /** The number of bytes in {@link #content()}, or {@code -1} if the server did not report it. */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * The generation of the file. Can be used to make sure further reads of the same file, e.g., of
+   * other ranges, see the same contents.
+   */
+  public long generation() {
+    return generation;
+  }
+
+  /** The ETag of the file, or an empty string if the server did not report it. */
+  public String etag() {
+    return etag;
+  }
+
+  /**
+   * The contents of the file. Data is only read from the network as it is requested by the
+   * subscriber. Subscribing with {@link
+   * com.linecorp.armeria.common.stream.SubscriptionOption#WITH_POOLED_OBJECTS} will avoid copying
+   * the data, in which case the subscriber must release each {@link HttpData}.
+   */
+  public StreamMessage<HttpData> content() {
+    return content;
+  }
+
+  /**
+   * Returns a blocking {@link ReadableByteChannel} that reads the contents of the file. Only a few
+   * chunks of data are buffered ahead of the reader. The channel must be closed when done to
+   * release any buffered data. Must not be read from an event loop thread.
+   */
+  public ReadableByteChannel newChannel() {
+    return new HttpDataChannel(content, eventLoop);
+  }
+
+  EventLoop eventLoop() {
+    return eventLoop;
+  }
+
+  /** Stops reading the file, releasing any resources. */
+  public void abort() {
+    content.abort();
+  }
+}
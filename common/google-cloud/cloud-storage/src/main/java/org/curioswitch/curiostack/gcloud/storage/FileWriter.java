@@ -38,6 +38,7 @@ import com.linecorp.armeria.common.HttpMethod;
 import com.linecorp.armeria.common.HttpStatusClass;
 import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.RequestHeadersBuilder;
 import com.linecorp.armeria.common.ResponseHeaders;
 import com.spotify.futures.CompletableFuturesExtra;
 import io.netty.buffer.ByteBuf;
@@ -48,6 +49,7 @@ import io.netty.channel.EventLoop;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32C;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import org.curioswitch.curiostack.gcloud.storage.StorageModule.ForStorage;
@@ -126,11 +128,15 @@ public class FileWriter {
   private long filePosition;
   @Nullable private ByteBuf unfinishedChunk;
 
+  // The checksum of all data written so far, or null if it is not being computed.
+  @Nullable private CRC32C crc32c;
+
   FileWriter(String uploadUrl, ByteBufAllocator alloc, EventLoop eventLoop, WebClient httpClient) {
     this.uploadUrl = uploadUrl;
     this.httpClient = httpClient;
     this.alloc = alloc;
     this.eventLoop = eventLoop;
+    crc32c = new CRC32C();
   }
 
   FileWriter(
@@ -148,6 +154,17 @@ public class FileWriter {
     this.unfinishedChunk = unfinishedChunk;
   }
 
+  /**
+   * Disables computing the CRC32C checksum of the written data, which is otherwise sent when
+   * closing the file for cloud storage to verify the upload was not corrupted. Must be called
+   * before writing any data. Checksums are never computed for a {@link FileWriter} restored by
+   * {@link Resumer}, as the data written before saving is not available.
+   */
+  public FileWriter skipChecksum() {
+    crc32c = null;
+    return this;
+  }
+
   /**
    * Writes the {@link ByteBuffer} to the file. When possible, {@code data} is not copied before
    * writing, so the caller must ensure it is not changed and survives until the future is
@@ -162,6 +179,10 @@ public class FileWriter {
   }
 
   public ListenableFuture<Void> write(ByteBuf nextBuf) {
+    if (crc32c != null) {
+      Checksums.update(crc32c, nextBuf);
+    }
+
     final ByteBuf buf;
     if (unfinishedChunk == null) {
       buf = nextBuf;
@@ -198,6 +219,10 @@ public class FileWriter {
   }
 
   public CompletableFuture<Void> writeAndClose(ByteBuf data) {
+    if (crc32c != null) {
+      Checksums.update(crc32c, data);
+    }
+
     if (unfinishedChunk == null) {
       return uploadChunk(data, true);
     } else {
@@ -256,12 +281,17 @@ public class FileWriter {
       range.append('*');
     }
 
-    RequestHeaders headers =
-        RequestHeaders.of(
-            HttpMethod.PUT, uploadUrl, HttpHeaderNames.CONTENT_RANGE, range.toString());
+    RequestHeadersBuilder headersBuilder =
+        RequestHeaders.builder(HttpMethod.PUT, uploadUrl)
+            .set(HttpHeaderNames.CONTENT_RANGE, range.toString());
+    if (endOfFile && crc32c != null) {
+      headersBuilder.set(Checksums.GOOG_HASH, Checksums.hashHeaderValue(crc32c));
+    }
+    RequestHeaders headers = headersBuilder.build();
 
-    HttpData data = HttpData.wrap(chunk).withEndOfStream();
+    // Retain before wrapping, which releases an empty chunk immediately.
     chunk.retain();
+    HttpData data = HttpData.wrap(chunk).withEndOfStream();
 
     return httpClient
         .execute(headers, data)
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.common.stream.SubscriptionOption;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.EventExecutor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Nullable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A blocking {@link ReadableByteChannel} over a {@link StreamMessage} of {@link HttpData}. Chunks
+ * are requested from the stream as they are read, with a small number prefetched to keep the stream
+ * busy while the reader is processing data.
+ */
+final class HttpDataChannel implements ReadableByteChannel, Subscriber<HttpData> {
+
+  private static final int PREFETCH = 4;
+
+  private static final Object COMPLETE = new Object();
+
+  private final StreamMessage<HttpData> stream;
+
+  // Contains HttpData, Throwable or COMPLETE.
+  private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+  private volatile boolean open = true;
+
+  // Only set before the first signal is enqueued, so reads always see it.
+  @Nullable private volatile Subscription subscription;
+
+  // Only accessed by the reading thread.
+  @Nullable private HttpData current;
+  @Nullable private ByteBuf currentBuf;
+  private boolean finished;
+
+  HttpDataChannel(StreamMessage<HttpData> stream, EventExecutor executor) {
+    this.stream = stream;
+    stream.subscribe(this, executor, SubscriptionOption.WITH_POOLED_OBJECTS);
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+    int read = 0;
+    while (dst.hasRemaining()) {
+      if (currentBuf == null || !currentBuf.isReadable()) {
+        releaseCurrent();
+        if (finished) {
+          break;
+        }
+        Object next = read > 0 ? queue.poll() : take();
+        if (next == null) {
+          break;
+        }
+        if (next instanceof HttpData) {
+          current = (HttpData) next;
+          currentBuf = current.byteBuf();
+          subscription.request(1);
+          continue;
+        }
+        finished = true;
+        if (next instanceof Throwable) {
+          throw new IOException("Error reading file.", (Throwable) next);
+        }
+        break;
+      }
+      int length = Math.min(dst.remaining(), currentBuf.readableBytes());
+      int limit = dst.limit();
+      dst.limit(dst.position() + length);
+      currentBuf.readBytes(dst);
+      dst.limit(limit);
+      read += length;
+    }
+    if (read == 0 && finished) {
+      return -1;
+    }
+    return read;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    if (!open) {
+      return;
+    }
+    open = false;
+    stream.abort();
+    releaseCurrent();
+    drainQueue();
+  }
+
+  @Override
+  public void onSubscribe(Subscription s) {
+    subscription = s;
+    s.request(PREFETCH);
+  }
+
+  @Override
+  public void onNext(HttpData data) {
+    queue.add(data);
+    if (!open) {
+      drainQueue();
+    }
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    queue.add(t);
+  }
+
+  @Override
+  public void onComplete() {
+    queue.add(COMPLETE);
+  }
+
+  private Object take() throws IOException {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new ClosedByInterruptException();
+    }
+  }
+
+  private void releaseCurrent() {
+    if (current != null) {
+      current.close();
+      current = null;
+      currentBuf = null;
+    }
+  }
+
+  private void drainQueue() {
+    for (Object next; (next = queue.poll()) != null; ) {
+      if (next instanceof HttpData) {
+        ((HttpData) next).close();
+      }
+    }
+  }
+}
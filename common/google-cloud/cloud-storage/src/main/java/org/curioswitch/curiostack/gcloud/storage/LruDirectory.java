@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * A directory of files which are evicted in least recently used order when their total size exceeds
+ * a maximum. Files are written to a temporary file and then committed under their name, so readers
+ * only ever see complete files. The access order is kept in the modification time of the files, so
+ * it survives reloading the directory, e.g., after a restart.
+ *
+ * <p>Used by {@link StorageClient} for its disk cache and by the curiostack build cache for its
+ * local tier.
+ */
+public final class LruDirectory {
+
+  private static final String TEMP_PREFIX = "tmp-";
+
+  private final Path directory;
+  private final long maxSizeBytes;
+  private final Consumer<String> evictionListener;
+
+  // Guarded by this, sizes of files in access order for LRU eviction.
+  private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  /**
+   * Creates a {@link LruDirectory} for the {@code directory}, creating it if needed and loading any
+   * files already in it.
+   *
+   * @throws IllegalStateException if the directory could not be loaded.
+   */
+  public LruDirectory(Path directory, long maxSizeBytes) {
+    this(directory, maxSizeBytes, name -> {});
+  }
+
+  /**
+   * Creates a {@link LruDirectory} which notifies the {@code evictionListener} with the name of
+   * each evicted file. The listener is called while holding the lock of this directory.
+   */
+  LruDirectory(Path directory, long maxSizeBytes, Consumer<String> evictionListener) {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+    this.evictionListener = evictionListener;
+
+    load();
+  }
+
+  /**
+   * Returns the path of the file with the {@code name}, or {@code null} if there is none. The file
+   * may still be evicted before it is read, in which case reading it fails with {@link
+   * java.nio.file.NoSuchFileException}.
+   */
+  @Nullable
+  public Path get(String name) {
+    synchronized (this) {
+      if (files.get(name) == null) {
+        return null;
+      }
+    }
+    Path path = directory.resolve(name);
+    try {
+      // Keep the access order when reloading the directory.
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // Ignore, at worst the file will be evicted earlier than needed.
+    }
+    return path;
+  }
+
+  /** Returns whether there is a file with the {@code name}, without updating its access order. */
+  public synchronized boolean contains(String name) {
+    return files.containsKey(name);
+  }
+
+  /**
+   * Returns a new temporary file in the directory to write to, which is added to the directory with
+   * {@link #commit(String, Path)} once completely written.
+   */
+  public Path newTempFile() throws IOException {
+    return Files.createFile(directory.resolve(TEMP_PREFIX + UUID.randomUUID()));
+  }
+
+  /**
+   * Adds a completely written temporary file to the directory with the {@code name}, replacing any
+   * existing file with the name. Returns whether the file was added, failures are not thrown as the
+   * contents of the directory can always be written again.
+   */
+  public boolean commit(String name, Path temp) {
+    Path path = directory.resolve(name);
+    final long size;
+    try {
+      size = Files.size(temp);
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      discard(temp);
+      return false;
+    }
+
+    synchronized (this) {
+      Long previous = files.put(name, size);
+      totalBytes += size;
+      if (previous != null) {
+        // Replaced by the move.
+        totalBytes -= previous;
+      }
+      evict();
+    }
+    return true;
+  }
+
+  /** Deletes a temporary file which will not be added to the directory. */
+  public void discard(Path temp) {
+    try {
+      Files.deleteIfExists(temp);
+    } catch (IOException e) {
+      // Ignore, the file will be deleted when reloading the directory.
+    }
+  }
+
+  /** Removes the file with the {@code name}, without notifying the eviction listener. */
+  public synchronized void remove(String name) {
+    Long size = files.remove(name);
+    if (size != null) {
+      delete(name, size);
+    }
+  }
+
+  /** Returns the names of the files in the directory, from least to most recently used. */
+  synchronized List<String> names() {
+    return new ArrayList<>(files.keySet());
+  }
+
+  synchronized long totalBytes() {
+    return totalBytes;
+  }
+
+  private void load() {
+    try {
+      Files.createDirectories(directory);
+      final List<Path> paths;
+      try (Stream<Path> stream = Files.list(directory)) {
+        paths =
+            stream
+                .filter(Files::isRegularFile)
+                .sorted(Comparator.comparing(LruDirectory::lastModifiedTime))
+                .collect(Collectors.toList());
+      }
+      synchronized (this) {
+        for (Path path : paths) {
+          String name = path.getFileName().toString();
+          if (name.startsWith(TEMP_PREFIX)) {
+            // Left over from a crash while writing.
+            Files.deleteIfExists(path);
+            continue;
+          }
+          long size = Files.size(path);
+          files.put(name, size);
+          totalBytes += size;
+        }
+        evict();
+      }
+    } catch (IOException | UncheckedIOException e) {
+      throw new IllegalStateException("Could not load directory " + directory, e);
+    }
+  }
+
+  // Must be called while holding the lock.
+  private void evict() {
+    for (Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+        totalBytes > maxSizeBytes && it.hasNext(); ) {
+      Map.Entry<String, Long> file = it.next();
+      it.remove();
+      delete(file.getKey(), file.getValue());
+      evictionListener.accept(file.getKey());
+    }
+  }
+
+  // Must be called while holding the lock, after removing the file.
+  private void delete(String name, long size) {
+    totalBytes -= size;
+    try {
+      Files.deleteIfExists(directory.resolve(name));
+    } catch (IOException e) {
+      // Ignore, the file will be deleted when reloading the directory.
+    }
+  }
+
+  private static FileTime lastModifiedTime(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -24,19 +24,37 @@
 
 package org.curioswitch.curiostack.gcloud.storage;
 
-import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.RequestHeaders;
 import com.linecorp.armeria.common.logging.RequestLog;
 import com.linecorp.armeria.common.logging.RequestOnlyLog;
 import com.linecorp.armeria.common.metric.MeterIdPrefix;
 import com.linecorp.armeria.common.metric.MeterIdPrefixFunction;
 import io.micrometer.core.instrument.MeterRegistry;
+import java.util.regex.Pattern;
 
 final class MetricLabels {
 
+  // Bucket names cannot contain a slash, so this doesn't match reads of an object named "o".
+  private static final Pattern LIST_PATH = Pattern.compile("/storage/v1/b/[^/?]+/o(\\?.*)?");
+
   static MeterIdPrefixFunction storageRequestLabeler() {
     return StorageRequestLabeler.INSTANCE;
   }
 
+  /**
+   * The prefix for metrics of whole-file parallel reads, which are made up of several requests that
+   * are also recorded individually as {@code ReadRange}.
+   */
+  static MeterIdPrefix parallelReadPrefix() {
+    return new MeterIdPrefix("grpc_clients", "service", "CloudStorage", "method", "ReadParallel");
+  }
+
+  /** The prefix for metrics of the {@link DiskCache}. */
+  static MeterIdPrefix diskCachePrefix() {
+    return new MeterIdPrefix("cloud_storage_disk_cache");
+  }
+
   private enum StorageRequestLabeler implements MeterIdPrefixFunction {
     INSTANCE;
 
@@ -44,11 +62,7 @@ final class MetricLabels {
     public MeterIdPrefix activeRequestPrefix(MeterRegistry registry, RequestOnlyLog log) {
       // Not gRPC, but for now just use the standard convention.
       return new MeterIdPrefix(
-          "grpc_clients",
-          "service",
-          "CloudStorage",
-          "method",
-          serviceMethod(log.requestHeaders().method()));
+          "grpc_clients", "service", "CloudStorage", "method", serviceMethod(log.requestHeaders()));
     }
 
     @Override
@@ -57,12 +71,15 @@ final class MetricLabels {
     }
   }
 
-  private static String serviceMethod(HttpMethod method) {
-    switch (method) {
+  private static String serviceMethod(RequestHeaders headers) {
+    switch (headers.method()) {
       case GET:
-        return "Read";
+        if (LIST_PATH.matcher(headers.path()).matches()) {
+          return "List";
+        }
+        return headers.contains(HttpHeaderNames.RANGE) ? "ReadRange" : "Read";
       case POST:
-        return "Create";
+        return headers.path().startsWith("/batch/") ? "Batch" : "Create";
       case PUT:
         return "Upload";
       case PATCH:
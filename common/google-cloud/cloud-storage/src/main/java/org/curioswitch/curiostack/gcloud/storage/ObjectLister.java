@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.QueryParams;
+import com.linecorp.armeria.common.QueryParamsBuilder;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.common.stream.StreamWriter;
+import io.netty.channel.EventLoop;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.ObjectInfo;
+
+/**
+ * Lists objects in a bucket as a {@link StreamMessage}, fetching pages of up to 1000 objects from
+ * cloud storage as the stream is consumed. The next page is requested as soon as the previous one
+ * starts being emitted, so consumers rarely wait on the network, while at most two pages are held
+ * in memory at a time regardless of the number of objects listed. Pages are decoded with a
+ * streaming JSON parser without building a tree of the response.
+ */
+final class ObjectLister {
+
+  private final WebClient httpClient;
+  private final String listUrl;
+  private final QueryParams params;
+  private final EventLoop eventLoop;
+
+  private final StreamWriter<ObjectInfo> writer = StreamMessage.streaming();
+
+  ObjectLister(
+      WebClient httpClient,
+      String listUrl,
+      String prefix,
+      String delimiter,
+      String fields,
+      EventLoop eventLoop) {
+    this.httpClient = httpClient;
+    this.listUrl = listUrl;
+    this.eventLoop = eventLoop;
+
+    QueryParamsBuilder params = QueryParams.builder();
+    if (!prefix.isEmpty()) {
+      params.add("prefix", prefix);
+    }
+    if (!delimiter.isEmpty()) {
+      params.add("delimiter", delimiter);
+    }
+    if (!fields.isEmpty()) {
+      params.add("fields", "nextPageToken,prefixes,items(" + fields + ')');
+    }
+    this.params = params.build();
+  }
+
+  StreamMessage<ObjectInfo> start() {
+    fetchPage(null).handle(this::onPage);
+    return writer;
+  }
+
+  private Void onPage(@Nullable Page page, @Nullable Throwable t) {
+    if (t != null) {
+      writer.close(t);
+      return null;
+    }
+    CompletableFuture<Page> nextPage =
+        page.nextPageToken != null ? fetchPage(page.nextPageToken) : null;
+    emit(page.objects.iterator(), nextPage);
+    return null;
+  }
+
+  private void emit(Iterator<ObjectInfo> objects, @Nullable CompletableFuture<Page> nextPage) {
+    while (objects.hasNext()) {
+      if (!writer.tryWrite(objects.next())) {
+        // Subscriber cancelled.
+        if (nextPage != null) {
+          nextPage.cancel(false);
+        }
+        return;
+      }
+      CompletableFuture<Void> consumed = writer.whenConsumed();
+      if (!consumed.isDone()) {
+        consumed.thenRun(() -> emit(objects, nextPage));
+        return;
+      }
+    }
+    if (nextPage == null) {
+      writer.close();
+    } else {
+      nextPage.handle(this::onPage);
+    }
+  }
+
+  private CompletableFuture<Page> fetchPage(@Nullable String pageToken) {
+    String query =
+        pageToken != null
+            ? params.toBuilder().add("pageToken", pageToken).toQueryString()
+            : params.toQueryString();
+    String url = query.isEmpty() ? listUrl : listUrl + '?' + query;
+    return httpClient
+        .get(url)
+        .aggregate(eventLoop)
+        .thenApply(
+            msg -> {
+              if (!msg.status().equals(HttpStatus.OK)) {
+                throw new IllegalStateException(
+                    "Could not list objects at " + url + ": " + msg.content().toStringUtf8());
+              }
+              try {
+                return parsePage(msg.content().array());
+              } catch (IOException e) {
+                throw new UncheckedIOException("Could not parse object list.", e);
+              }
+            });
+  }
+
+  private static Page parsePage(byte[] content) throws IOException {
+    List<ObjectInfo> objects = new ArrayList<>();
+    String nextPageToken = null;
+    try (JsonParser parser = StorageClient.OBJECT_MAPPER.getFactory().createParser(content)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Object list is not a JSON object.");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "nextPageToken":
+            nextPageToken = parser.getValueAsString();
+            break;
+          case "prefixes":
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+              objects.add(
+                  ImmutableObjectInfo.builder().name(parser.getText()).isPrefix(true).build());
+            }
+            break;
+          case "items":
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+              objects.add(parser.readValueAs(ObjectInfo.class));
+            }
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+    return new Page(objects, nextPageToken);
+  }
+
+  private static class Page {
+    private final List<ObjectInfo> objects;
+    @Nullable private final String nextPageToken;
+
+    private Page(List<ObjectInfo> objects, @Nullable String nextPageToken) {
+      this.objects = objects;
+      this.nextPageToken = nextPageToken;
+    }
+  }
+}
@@ -0,0 +1,404 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.linecorp.armeria.common.CommonPools;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.stream.ByteStreamMessage;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.common.stream.SubscriptionOption;
+import com.linecorp.armeria.common.util.Exceptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.EventLoop;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import javax.annotation.Nullable;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.ObjectInfo;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reads a file by splitting it into byte ranges which are fetched concurrently. All ranges are
+ * pinned to the generation of the file when the read started so a file being replaced during the
+ * read fails it instead of mixing contents. The contents are verified against the CRC32C checksum
+ * of the file, either as they are streamed in order or by combining the checksums of the ranges
+ * when they are written out of order.
+ */
+final class ParallelFileReader {
+
+  private final StorageClient client;
+  private final String filename;
+  private final long rangeSize;
+  private final int concurrency;
+  private final int maxRetries;
+  private final EventLoop eventLoop;
+
+  private final DistributionSummary throughput;
+  private final Counter retries;
+
+  ParallelFileReader(
+      StorageClient client,
+      String filename,
+      long rangeSize,
+      int concurrency,
+      int maxRetries,
+      EventLoop eventLoop,
+      MeterRegistry registry) {
+    this.client = client;
+    this.filename = filename;
+    this.rangeSize = rangeSize;
+    this.concurrency = concurrency;
+    this.maxRetries = maxRetries;
+    this.eventLoop = eventLoop;
+
+    var prefix = MetricLabels.parallelReadPrefix();
+    throughput =
+        DistributionSummary.builder(prefix.name("throughput"))
+            .tags(prefix.tags())
+            .baseUnit("bytes_per_second")
+            .register(registry);
+    retries = registry.counter(prefix.name("range.retries"), prefix.tags());
+  }
+
+  /** Reads the file into {@code destination}, completing with its size. */
+  CompletableFuture<Long> readTo(FileChannel destination) {
+    long startNanos = System.nanoTime();
+    return client
+        .readObjectInfo(filename, eventLoop)
+        .thenCompose(
+            info -> {
+              if (info == null) {
+                return completedFuture(null);
+              }
+              AtomicInteger nextRange = new AtomicInteger();
+              int numRanges = numRanges(info);
+              CRC32C[] checksums = new CRC32C[numRanges];
+              List<CompletableFuture<Void>> workers = new ArrayList<>();
+              for (int i = 0; i < Math.min(concurrency, numRanges); i++) {
+                workers.add(writeRanges(destination, info, nextRange, numRanges, checksums));
+              }
+              return CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]))
+                  .thenApply(
+                      unused -> {
+                        verifyChecksum(info, checksums);
+                        recordThroughput(info.getSize(), startNanos);
+                        return info.getSize();
+                      });
+            });
+  }
+
+  /** Reads the file into a stream with the ranges in order. */
+  CompletableFuture<FileStream> read() {
+    long startNanos = System.nanoTime();
+    return client
+        .readObjectInfo(filename, eventLoop)
+        .thenApply(
+            info -> {
+              if (info == null) {
+                return null;
+              }
+              int numRanges = numRanges(info);
+              List<CompletableFuture<StreamMessage<HttpData>>> ranges = new ArrayList<>(numRanges);
+              List<StreamMessage<HttpData>> deferred = new ArrayList<>(numRanges);
+              for (int i = 0; i < numRanges; i++) {
+                CompletableFuture<StreamMessage<HttpData>> range = new CompletableFuture<>();
+                ranges.add(range);
+                deferred.add(StreamMessage.of(range));
+              }
+              AtomicReferenceArray<FileStream> started = new AtomicReferenceArray<>(numRanges);
+              StreamMessage<HttpData> ranged = StreamMessage.concat(deferred);
+              ByteStreamMessage content =
+                  info.getCrc32c().isEmpty()
+                      ? ByteStreamMessage.of(ranged)
+                      : Checksums.verifying(filename, info.getCrc32c(), ranged);
+              content
+                  .whenComplete()
+                  .handle(
+                      (unused, t) -> {
+                        if (t != null) {
+                          for (int i = 0; i < numRanges; i++) {
+                            FileStream stream = started.get(i);
+                            if (stream != null) {
+                              stream.abort();
+                            }
+                            ranges.get(i).completeExceptionally(t);
+                          }
+                        } else {
+                          recordThroughput(info.getSize(), startNanos);
+                        }
+                        return null;
+                      });
+              for (int i = 0; i < Math.min(concurrency, numRanges); i++) {
+                startRange(info, i, ranges, started);
+              }
+              return new FileStream(
+                  info.getSize(), 0, info.getSize(), info.getGeneration(), "", content, eventLoop);
+            });
+  }
+
+  private void startRange(
+      ObjectInfo info,
+      int range,
+      List<CompletableFuture<StreamMessage<HttpData>>> ranges,
+      AtomicReferenceArray<FileStream> started) {
+    if (range >= ranges.size() || ranges.get(range).isDone()) {
+      return;
+    }
+    long offset = range * rangeSize;
+    long end = Math.min(info.getSize(), offset + rangeSize);
+    openRange(info, offset, end, 0)
+        .handle(
+            (stream, t) -> {
+              if (t != null) {
+                ranges.get(range).completeExceptionally(t);
+                return null;
+              }
+              started.set(range, stream);
+              if (!ranges.get(range).complete(stream.content())) {
+                // Reading was already aborted.
+                stream.abort();
+                return null;
+              }
+              // Start the next range once this one has been consumed, keeping the number of
+              // ranges being read at the same time bounded.
+              stream
+                  .content()
+                  .whenComplete()
+                  .handle(
+                      (unused, cause) -> {
+                        if (cause == null) {
+                          startRange(info, range + concurrency, ranges, started);
+                        }
+                        return null;
+                      });
+              return null;
+            });
+  }
+
+  /**
+   * Opens a range for reading, retrying if the request fails. Failures after data has started being
+   * streamed are not retried since the data may already have been consumed.
+   */
+  private CompletableFuture<FileStream> openRange(
+      ObjectInfo info, long offset, long end, int attempt) {
+    return client
+        .readFileStream(filename, offset, end - offset, info.getGeneration(), eventLoop)
+        .thenApply(stream -> checkGeneration(info, stream))
+        .handle(
+            (stream, t) -> {
+              if (t == null) {
+                return completedFuture(stream);
+              }
+              if (!isRetriable(t, attempt)) {
+                return CompletableFuture.<FileStream>failedFuture(t);
+              }
+              retries.increment();
+              return openRange(info, offset, end, attempt + 1);
+            })
+        .thenCompose(Function.identity());
+  }
+
+  private CompletableFuture<Void> writeRanges(
+      FileChannel destination,
+      ObjectInfo info,
+      AtomicInteger nextRange,
+      int numRanges,
+      CRC32C[] checksums) {
+    int range = nextRange.getAndIncrement();
+    if (range >= numRanges) {
+      return completedFuture(null);
+    }
+    long offset = range * rangeSize;
+    long end = Math.min(info.getSize(), offset + rangeSize);
+    CRC32C checksum = new CRC32C();
+    checksums[range] = checksum;
+    return writeRange(destination, info, offset, end, checksum, 0)
+        .thenCompose(unused -> writeRanges(destination, info, nextRange, numRanges, checksums));
+  }
+
+  /**
+   * Writes a range of the file to {@code destination}, resuming from the last written position if
+   * it fails. {@code checksum} is updated with the data written, which is contiguous across
+   * retries.
+   */
+  private CompletableFuture<Void> writeRange(
+      FileChannel destination,
+      ObjectInfo info,
+      long position,
+      long end,
+      CRC32C checksum,
+      int attempt) {
+    RangeWriter writer = new RangeWriter(destination, position, checksum);
+    return client
+        .readFileStream(filename, position, end - position, info.getGeneration(), eventLoop)
+        .thenCompose(stream -> writer.write(checkGeneration(info, stream)))
+        .handle(
+            (unused, t) -> {
+              if (t == null) {
+                if (writer.position == end) {
+                  return CompletableFuture.<Void>completedFuture(null);
+                }
+                t = new IllegalStateException("Range of " + filename + " ended early.");
+              }
+              if (!isRetriable(t, attempt)) {
+                return CompletableFuture.<Void>failedFuture(t);
+              }
+              retries.increment();
+              return writeRange(destination, info, writer.position, end, checksum, attempt + 1);
+            })
+        .thenCompose(Function.identity());
+  }
+
+  /** Verifies the combined checksums of all ranges, which have been completely written. */
+  private void verifyChecksum(ObjectInfo info, CRC32C[] checksums) {
+    if (info.getCrc32c().isEmpty()) {
+      return;
+    }
+    int crc32c = 0;
+    for (int i = 0; i < checksums.length; i++) {
+      long length = Math.min(info.getSize() - i * rangeSize, rangeSize);
+      crc32c = Checksums.combine(crc32c, (int) checksums[i].getValue(), length);
+    }
+    Checksums.verify(filename, info.getCrc32c(), crc32c);
+  }
+
+  private FileStream checkGeneration(ObjectInfo info, @Nullable FileStream stream) {
+    if (stream == null || stream.generation() != info.getGeneration()) {
+      if (stream != null) {
+        stream.abort();
+      }
+      throw new FileChangedException(
+          "File " + filename + " was replaced or deleted while being read.");
+    }
+    return stream;
+  }
+
+  private boolean isRetriable(Throwable t, int attempt) {
+    Throwable cause = Exceptions.peel(t);
+    return attempt < maxRetries
+        && !(cause instanceof FileChangedException)
+        && !(cause instanceof UncheckedIOException)
+        && !(cause instanceof ChecksumMismatchException);
+  }
+
+  private int numRanges(ObjectInfo info) {
+    return (int) ((info.getSize() + rangeSize - 1) / rangeSize);
+  }
+
+  private void recordThroughput(long bytes, long startNanos) {
+    long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+    throughput.record(bytes * 1e9 / elapsedNanos);
+  }
+
+  private static final class FileChangedException extends IllegalStateException {
+    FileChangedException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Writes the contents of a range to its position in the destination. Writes are done on the
+   * blocking task executor, with the next chunk only requested once the previous one is written.
+   */
+  private static final class RangeWriter implements Subscriber<HttpData> {
+
+    private final FileChannel destination;
+    private final CRC32C checksum;
+    private final Executor executor =
+        MoreExecutors.newSequentialExecutor(CommonPools.blockingTaskExecutor());
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private volatile long position;
+
+    @Nullable private Subscription subscription;
+
+    private RangeWriter(FileChannel destination, long position, CRC32C checksum) {
+      this.destination = destination;
+      this.position = position;
+      this.checksum = checksum;
+    }
+
+    CompletableFuture<Void> write(FileStream stream) {
+      stream.content().subscribe(this, stream.eventLoop(), SubscriptionOption.WITH_POOLED_OBJECTS);
+      return result;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      subscription = s;
+      s.request(1);
+    }
+
+    @Override
+    public void onNext(HttpData data) {
+      executor.execute(
+          () -> {
+            try (data) {
+              if (result.isDone()) {
+                return;
+              }
+              ByteBuffer buf = data.byteBuf().nioBuffer();
+              long pos = position;
+              while (buf.hasRemaining()) {
+                pos += destination.write(buf, pos);
+              }
+              checksum.update(buf.flip());
+              position = pos;
+            } catch (IOException e) {
+              subscription.cancel();
+              result.completeExceptionally(
+                  new UncheckedIOException("Could not write to destination.", e));
+              return;
+            }
+            subscription.request(1);
+          });
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      executor.execute(() -> result.completeExceptionally(t));
+    }
+
+    @Override
+    public void onComplete() {
+      executor.execute(() -> result.complete(null));
+    }
+  }
+}
@@ -0,0 +1,462 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import com.linecorp.armeria.client.InvalidResponseException;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpResponse;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpStatusClass;
+import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.RequestHeadersBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.EventLoop;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import javax.annotation.Nullable;
+
+/**
+ * A Cloud Storage file writer which accepts writes at any time, without waiting for previous writes
+ * to complete. Written data is queued and uploaded in chunks as large as possible, with the next
+ * chunk sent as soon as the previous one is acknowledged. Data is not copied when queued or when
+ * the server only persists part of a chunk. As with {@link FileWriter}, the CRC32C checksum of the
+ * data is computed as it is written and sent with the last chunk, so cloud storage rejects the
+ * upload if the data it received doesn't match.
+ *
+ * <p>The future returned by a write completes when the amount of queued data that has not been
+ * uploaded is within the limit given when creating the writer, so waiting for it before writing
+ * more bounds memory usage. {@link #newChannel()} and {@link #newOutputStream()} provide blocking
+ * adapters which do so.
+ *
+ * <p>If cloud storage acknowledges a chunk without having persisted any more of it, the chunk is
+ * sent again after a backoff, failing the upload after {@value #MAX_NO_PROGRESS_RETRIES} retries
+ * without progress.
+ */
+public class PipelinedFileWriter {
+
+  // All chunks must be a multiple of 256KB except the last one, so at least one chunk must fit in
+  // the buffer.
+  static final int CHUNK_ALIGNMENT = 256 * 1024;
+
+  private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+  static final int MAX_NO_PROGRESS_RETRIES = 5;
+
+  private static final long INITIAL_NO_PROGRESS_BACKOFF_MILLIS = 100;
+
+  private final String uploadUrl;
+  private final long maxBufferedBytes;
+  private final int chunkSize;
+  private final ByteBufAllocator alloc;
+  private final EventLoop eventLoop;
+  private final WebClient httpClient;
+
+  private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+
+  // All fields below are only accessed from the event loop.
+
+  // Data that has been written but not acknowledged yet, including the chunk being uploaded.
+  private final CompositeByteBuf buffered;
+  private final Queue<CompletableFuture<Void>> waitingWrites = new ArrayDeque<>();
+  private final CRC32C crc32c = new CRC32C();
+
+  private long filePosition;
+  private int noProgressRetries;
+  // Also set while waiting to retry a chunk without progress.
+  private boolean uploading;
+  private boolean closed;
+  @Nullable private Throwable failure;
+
+  PipelinedFileWriter(
+      String uploadUrl,
+      long maxBufferedBytes,
+      ByteBufAllocator alloc,
+      EventLoop eventLoop,
+      WebClient httpClient) {
+    this.uploadUrl = uploadUrl;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.alloc = alloc;
+    this.eventLoop = eventLoop;
+    this.httpClient = httpClient;
+
+    // Leave room to fill the next chunk while the previous one is being uploaded.
+    chunkSize =
+        (int)
+            Math.max(CHUNK_ALIGNMENT, Math.min(MAX_CHUNK_SIZE, alignedSize(maxBufferedBytes / 2)));
+    // Never consolidate components, which would copy the data.
+    buffered = alloc.compositeBuffer(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Writes the {@link ByteBuffer} to the file. As the write may complete before the data is
+   * uploaded, {@code data} is copied.
+   */
+  public CompletableFuture<Void> write(ByteBuffer data) {
+    return write(alloc.buffer(data.remaining()).writeBytes(data));
+  }
+
+  /**
+   * Writes the {@link ByteBuf} to the file. Ownership of {@code data} is transferred to the writer,
+   * which will release it after it is uploaded, so it must not be modified by the caller. The
+   * returned future completes when the amount of data waiting to be uploaded is within the limit of
+   * this writer.
+   */
+  public CompletableFuture<Void> write(ByteBuf data) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    if (eventLoop.inEventLoop()) {
+      doWrite(data, result);
+    } else {
+      eventLoop.execute(() -> doWrite(data, result));
+    }
+    return result;
+  }
+
+  /**
+   * Closes the file after all written data has been uploaded. The returned future completes when
+   * the upload is finished. No further writes will be possible.
+   */
+  public CompletableFuture<Void> close() {
+    if (eventLoop.inEventLoop()) {
+      doClose();
+    } else {
+      eventLoop.execute(this::doClose);
+    }
+    return closeFuture;
+  }
+
+  /**
+   * Writes the {@link ByteBuf} to the file and closes it. Ownership of {@code data} is transferred
+   * to the writer. No further writes will be possible.
+   */
+  public CompletableFuture<Void> writeAndClose(ByteBuf data) {
+    write(data);
+    return close();
+  }
+
+  /** Stops uploading the file, releasing any queued data. */
+  public void abort() {
+    eventLoop.execute(() -> fail(new CancellationException("Upload aborted.")));
+  }
+
+  /**
+   * Returns a blocking {@link WritableByteChannel} which writes to this file, blocking while the
+   * limit of queued data is exceeded. Closing the channel closes the file and waits for the upload
+   * to finish. Must not be used from an event loop thread.
+   */
+  public WritableByteChannel newChannel() {
+    return new UploadChannel();
+  }
+
+  /**
+   * Returns a blocking {@link OutputStream} which writes to this file, blocking while the limit of
+   * queued data is exceeded. Small writes are buffered before being queued. Closing the stream
+   * closes the file and waits for the upload to finish. Must not be used from an event loop thread.
+   */
+  public OutputStream newOutputStream() {
+    return newOutputStream(true);
+  }
+
+  /**
+   * Returns a blocking {@link OutputStream} like {@link #newOutputStream()}. If {@code awaitUpload}
+   * is {@code false}, closing the stream closes the file without waiting for the upload to finish,
+   * which can instead be waited for with the future returned by {@link #close()}.
+   */
+  public OutputStream newOutputStream(boolean awaitUpload) {
+    return new UploadOutputStream(awaitUpload);
+  }
+
+  private void doWrite(ByteBuf data, CompletableFuture<Void> result) {
+    if (failure != null || closed) {
+      data.release();
+      result.completeExceptionally(
+          failure != null ? failure : new IllegalStateException("File is already closed."));
+      return;
+    }
+    Checksums.update(crc32c, data);
+    buffered.addComponent(true, data);
+    if (buffered.readableBytes() <= maxBufferedBytes) {
+      result.complete(null);
+    } else {
+      waitingWrites.add(result);
+    }
+    maybeUploadChunk();
+  }
+
+  private void doClose() {
+    if (!closed) {
+      closed = true;
+      maybeUploadChunk();
+    }
+  }
+
+  private void maybeUploadChunk() {
+    if (uploading || failure != null || closeFuture.isDone()) {
+      return;
+    }
+    int readable = buffered.readableBytes();
+    boolean endOfFile = closed && readable <= chunkSize;
+    int length = endOfFile ? readable : (int) Math.min(alignedSize(readable), chunkSize);
+    if (length == 0 && !endOfFile) {
+      return;
+    }
+    uploading = true;
+
+    long limit = filePosition + length;
+    StringBuilder range = new StringBuilder("bytes ");
+    if (length == 0) {
+      range.append('*');
+    } else {
+      range.append(filePosition).append('-').append(limit - 1);
+    }
+    range.append('/');
+    if (endOfFile) {
+      range.append(limit);
+    } else {
+      range.append('*');
+    }
+
+    RequestHeadersBuilder headersBuilder =
+        RequestHeaders.builder(HttpMethod.PUT, uploadUrl)
+            .set(HttpHeaderNames.CONTENT_RANGE, range.toString());
+    if (endOfFile) {
+      headersBuilder.set(Checksums.GOOG_HASH, Checksums.hashHeaderValue(crc32c));
+    }
+    RequestHeaders headers = headersBuilder.build();
+    ByteBuf chunk = buffered.retainedSlice(buffered.readerIndex(), length);
+    httpClient
+        .execute(headers, HttpData.wrap(chunk).withEndOfStream())
+        .aggregate(eventLoop)
+        .handle(
+            (msg, t) -> {
+              onChunkUploaded(headers, msg, t);
+              return null;
+            });
+  }
+
+  private void onChunkUploaded(
+      RequestHeaders headers, @Nullable AggregatedHttpResponse msg, @Nullable Throwable t) {
+    uploading = false;
+    if (failure != null) {
+      return;
+    }
+    if (t != null) {
+      fail(t);
+      return;
+    }
+    if (msg.status().codeClass().equals(HttpStatusClass.SUCCESS)) {
+      acknowledge(filePosition + buffered.readableBytes());
+      closeFuture.complete(null);
+      buffered.release();
+      return;
+    }
+    if (msg.status().code() != 308) {
+      fail(
+          new InvalidResponseException(
+              "Unsuccessful response uploading chunk: Request headers: "
+                  + headers
+                  + "\n"
+                  + " Response headers: "
+                  + msg.headers()
+                  + "\n"
+                  + msg.contentUtf8()));
+      return;
+    }
+
+    // Any data past the persisted range is kept and sent again with the next chunk.
+    String persistedRange = msg.headers().get(HttpHeaderNames.RANGE);
+    long persisted =
+        persistedRange != null
+            ? Long.parseLong(persistedRange.substring(persistedRange.indexOf('-') + 1)) + 1
+            : 0;
+    if (persisted > filePosition) {
+      noProgressRetries = 0;
+      acknowledge(persisted);
+      maybeUploadChunk();
+      return;
+    }
+
+    if (noProgressRetries == MAX_NO_PROGRESS_RETRIES) {
+      fail(
+          new InvalidResponseException(
+              "Upload made no progress after "
+                  + (MAX_NO_PROGRESS_RETRIES + 1)
+                  + " attempts: Request headers: "
+                  + headers
+                  + "\n"
+                  + " Response headers: "
+                  + msg.headers()));
+      return;
+    }
+    long backoffMillis = INITIAL_NO_PROGRESS_BACKOFF_MILLIS << noProgressRetries;
+    noProgressRetries++;
+    // Keep other chunks from being sent while waiting.
+    uploading = true;
+    eventLoop.schedule(
+        () -> {
+          uploading = false;
+          maybeUploadChunk();
+        },
+        backoffMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void acknowledge(long persisted) {
+    buffered.skipBytes((int) (persisted - filePosition));
+    buffered.discardReadComponents();
+    filePosition = persisted;
+    if (buffered.readableBytes() <= maxBufferedBytes) {
+      for (CompletableFuture<Void> write; (write = waitingWrites.poll()) != null; ) {
+        write.complete(null);
+      }
+    }
+  }
+
+  private void fail(Throwable t) {
+    if (failure != null || closeFuture.isDone()) {
+      return;
+    }
+    failure = t;
+    buffered.release();
+    for (CompletableFuture<Void> write; (write = waitingWrites.poll()) != null; ) {
+      write.completeExceptionally(t);
+    }
+    closeFuture.completeExceptionally(t);
+  }
+
+  private static long alignedSize(long num) {
+    return (num / CHUNK_ALIGNMENT) * CHUNK_ALIGNMENT;
+  }
+
+  private static void await(CompletableFuture<Void> future) throws IOException {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      throw new IOException("Error uploading file.", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted uploading file.");
+    }
+  }
+
+  private class UploadChannel implements WritableByteChannel {
+
+    private boolean open = true;
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      if (!open) {
+        throw new ClosedChannelException();
+      }
+      int length = src.remaining();
+      await(PipelinedFileWriter.this.write(src));
+      return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (open) {
+        open = false;
+        await(PipelinedFileWriter.this.close());
+      }
+    }
+  }
+
+  private class UploadOutputStream extends OutputStream {
+
+    private final boolean awaitUpload;
+
+    @Nullable private ByteBuf current;
+    private boolean open = true;
+
+    private UploadOutputStream(boolean awaitUpload) {
+      this.awaitUpload = awaitUpload;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (!open) {
+        throw new IOException("Stream closed.");
+      }
+      while (len > 0) {
+        if (current == null) {
+          current = alloc.buffer(CHUNK_ALIGNMENT, CHUNK_ALIGNMENT);
+        }
+        int length = Math.min(len, current.writableBytes());
+        current.writeBytes(b, off, length);
+        off += length;
+        len -= length;
+        if (!current.isWritable()) {
+          flush();
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (current != null) {
+        ByteBuf buf = current;
+        current = null;
+        await(PipelinedFileWriter.this.write(buf));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (open) {
+        flush();
+        open = false;
+        CompletableFuture<Void> upload = PipelinedFileWriter.this.close();
+        if (awaitUpload) {
+          await(upload);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static com.google.common.net.UrlEscapers.urlPathSegmentEscaper;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpResponse;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpStatusClass;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.RequestHeaders;
+import io.netty.channel.EventLoop;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.FileRequest;
+
+/**
+ * A batch of Cloud Storage object operations, sent using the JSON API's batch endpoint. Operations
+ * are added with methods like {@link #delete(String)}, which return a future that completes with
+ * the result of that single operation, and are sent when {@link #execute()} is called. Up to 100
+ * operations are packed into each batch request, with larger batches split into several requests
+ * that are sent concurrently.
+ *
+ * <p>A {@link StorageBatch} is not thread-safe - operations should be added from a single thread
+ * before executing it. After {@link #execute()} is called, the batch is empty and can be reused.
+ */
+public class StorageBatch {
+
+  // The maximum number of operations the batch endpoint accepts in a single request.
+  private static final int MAX_OPERATIONS_PER_REQUEST = 100;
+
+  private static final String BATCH_URL = "/batch/storage/v1";
+
+  private final WebClient httpClient;
+  private final String objectUrlPrefix;
+  private final int concurrency;
+  private final EventLoop eventLoop;
+
+  private final List<Operation> operations = new ArrayList<>();
+
+  StorageBatch(WebClient httpClient, String objectUrlPrefix, int concurrency, EventLoop eventLoop) {
+    this.httpClient = httpClient;
+    this.objectUrlPrefix = objectUrlPrefix;
+    this.concurrency = concurrency;
+    this.eventLoop = eventLoop;
+  }
+
+  /** Adds deleting a file to the batch. See {@link StorageClient#delete(String)}. */
+  public CompletableFuture<Void> delete(String filename) {
+    return add(HttpMethod.DELETE, filename, null);
+  }
+
+  /**
+   * Adds updating the metadata of a file to the batch. See {@link
+   * StorageClient#updateFileMetadata(String, Map)}.
+   */
+  public CompletableFuture<Void> updateFileMetadata(String filename, Map<String, String> metadata) {
+    return updateFileMetadata(new FileRequest.Builder().name(filename).metadata(metadata).build());
+  }
+
+  /** Adds updating the metadata of a file to the batch. */
+  public CompletableFuture<Void> updateFileMetadata(FileRequest request) {
+    final String body;
+    try {
+      body = StorageClient.OBJECT_MAPPER.writeValueAsString(request);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException("Could not serialize resource JSON.", e);
+    }
+    return add(HttpMethod.PUT, request.getName(), body);
+  }
+
+  /** Returns the number of operations that have been added to the batch. */
+  public int size() {
+    return operations.size();
+  }
+
+  /**
+   * Sends all the operations added to the batch, with up to the configured batch concurrency
+   * requests in flight at a time. The returned future completes when all operations have completed,
+   * even if some of them failed - the result of each operation is reported through the future
+   * returned when adding it.
+   */
+  public CompletableFuture<Void> execute() {
+    if (operations.isEmpty()) {
+      return completedFuture(null);
+    }
+    List<List<Operation>> requests =
+        Lists.partition(ImmutableList.copyOf(operations), MAX_OPERATIONS_PER_REQUEST);
+    operations.clear();
+
+    AtomicInteger nextRequest = new AtomicInteger();
+    CompletableFuture<?>[] workers =
+        new CompletableFuture<?>[Math.min(concurrency, requests.size())];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = sendNext(requests, nextRequest);
+    }
+    return CompletableFuture.allOf(workers);
+  }
+
+  private CompletableFuture<Void> add(HttpMethod method, String filename, @Nullable String body) {
+    Operation operation =
+        new Operation(method, objectUrlPrefix + urlPathSegmentEscaper().escape(filename), body);
+    operations.add(operation);
+    return operation.result;
+  }
+
+  private CompletableFuture<Void> sendNext(
+      List<List<Operation>> requests, AtomicInteger nextRequest) {
+    int index = nextRequest.getAndIncrement();
+    if (index >= requests.size()) {
+      return completedFuture(null);
+    }
+    return send(requests.get(index)).thenCompose(unused -> sendNext(requests, nextRequest));
+  }
+
+  private CompletableFuture<Void> send(List<Operation> batch) {
+    String boundary = "batch_" + UUID.randomUUID();
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < batch.size(); i++) {
+      Operation operation = batch.get(i);
+      body.append("--")
+          .append(boundary)
+          .append("\r\n")
+          .append("Content-Type: application/http\r\n")
+          .append("Content-Transfer-Encoding: binary\r\n")
+          .append("Content-ID: <")
+          .append(i)
+          .append(">\r\n\r\n")
+          .append(operation.method)
+          .append(' ')
+          .append(operation.url)
+          .append(" HTTP/1.1\r\n");
+      if (operation.body != null) {
+        body.append("Content-Type: application/json; charset=UTF-8\r\n")
+            .append("Content-Length: ")
+            .append(operation.body.getBytes(StandardCharsets.UTF_8).length)
+            .append("\r\n\r\n")
+            .append(operation.body);
+      }
+      body.append("\r\n");
+    }
+    body.append("--").append(boundary).append("--\r\n");
+
+    RequestHeaders headers =
+        RequestHeaders.builder(HttpMethod.POST, BATCH_URL)
+            .contentType(MediaType.parse("multipart/mixed; boundary=" + boundary))
+            .build();
+    return httpClient
+        .execute(headers, HttpData.ofUtf8(body))
+        .aggregate(eventLoop)
+        .handle(
+            (msg, t) -> {
+              if (t != null) {
+                failAll(batch, new RuntimeException("Unexpected error sending batch.", t));
+              } else if (!msg.status().codeClass().equals(HttpStatusClass.SUCCESS)) {
+                failAll(
+                    batch,
+                    new IllegalStateException(
+                        "Could not execute batch: " + msg.content().toStringUtf8()));
+              } else {
+                completeAll(batch, msg);
+              }
+              return null;
+            });
+  }
+
+  private static void completeAll(List<Operation> batch, AggregatedHttpResponse msg) {
+    MediaType contentType = msg.contentType();
+    List<String> boundaryParam =
+        contentType != null ? contentType.parameters().get("boundary") : null;
+    if (boundaryParam == null || boundaryParam.isEmpty()) {
+      failAll(
+          batch, new IllegalStateException("Batch response is not multipart: " + msg.headers()));
+      return;
+    }
+    String delimiter = "--" + unquote(boundaryParam.get(0));
+
+    // Parts are matched to operations by Content-ID, falling back to response order if the
+    // server omits it.
+    String[] parts = msg.content().toStringUtf8().split(delimiter, -1);
+    int partIndex = 0;
+    for (int i = 1; i < parts.length; i++) {
+      String part = parts[i];
+      if (part.startsWith("--")) {
+        // Closing delimiter.
+        break;
+      }
+      int index = partIndex++;
+      int headersEnd = part.indexOf("\r\n\r\n");
+      if (headersEnd < 0) {
+        continue;
+      }
+      for (String header : part.substring(0, headersEnd).split("\r\n")) {
+        int colon = header.indexOf(':');
+        if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-ID")) {
+          String id = unquote(header.substring(colon + 1).trim());
+          id = id.startsWith("<") && id.endsWith(">") ? id.substring(1, id.length() - 1) : id;
+          id = id.startsWith("response-") ? id.substring("response-".length()) : id;
+          try {
+            index = Integer.parseInt(id);
+          } catch (NumberFormatException e) {
+            // Fallback to response order.
+          }
+        }
+      }
+      if (index < 0 || index >= batch.size()) {
+        continue;
+      }
+      completeOperation(batch.get(index), part.substring(headersEnd + 4));
+    }
+    failAll(
+        batch, new IllegalStateException("Batch response did not include result of operation."));
+  }
+
+  private static void completeOperation(Operation operation, String response) {
+    // HTTP/1.1 204 No Content
+    int statusEnd = response.indexOf("\r\n");
+    String[] statusLine =
+        (statusEnd >= 0 ? response.substring(0, statusEnd) : response).split(" ", 3);
+    int status;
+    try {
+      status = statusLine.length >= 2 ? Integer.parseInt(statusLine[1]) : -1;
+    } catch (NumberFormatException e) {
+      status = -1;
+    }
+    if (status >= 200 && status < 300) {
+      operation.result.complete(null);
+      return;
+    }
+    int bodyStart = response.indexOf("\r\n\r\n");
+    String body = bodyStart >= 0 ? response.substring(bodyStart + 4).trim() : "";
+    operation.result.completeExceptionally(
+        new IllegalStateException(
+            "Could not execute "
+                + operation.method
+                + " of "
+                + operation.url
+                + " in batch: "
+                + (statusEnd >= 0 ? response.substring(0, statusEnd) : response)
+                + "\n"
+                + body));
+  }
+
+  private static void failAll(List<Operation> batch, Throwable t) {
+    for (Operation operation : batch) {
+      operation.result.completeExceptionally(t);
+    }
+  }
+
+  private static String unquote(String value) {
+    return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+        ? value.substring(1, value.length() - 1)
+        : value;
+  }
+
+  private static class Operation {
+    private final HttpMethod method;
+    private final String url;
+    @Nullable private final String body;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private Operation(HttpMethod method, String url, @Nullable String body) {
+      this.method = method;
+      this.url = url;
+      this.body = body;
+    }
+  }
+}
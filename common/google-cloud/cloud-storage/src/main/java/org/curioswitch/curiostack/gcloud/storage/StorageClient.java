@@ -24,8 +24,10 @@
 
 package org.curioswitch.curiostack.gcloud.storage;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.net.UrlEscapers.urlPathSegmentEscaper;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,6 +36,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.linecorp.armeria.client.InvalidResponseException;
 import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpResponse;
 import com.linecorp.armeria.common.CommonPools;
 import com.linecorp.armeria.common.HttpData;
 import com.linecorp.armeria.common.HttpHeaderNames;
@@ -44,7 +47,11 @@ import com.linecorp.armeria.common.HttpStatusClass;
 import com.linecorp.armeria.common.MediaType;
 import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.RequestHeadersBuilder;
 import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.SplitHttpResponse;
+import com.linecorp.armeria.common.stream.ByteStreamMessage;
+import com.linecorp.armeria.common.stream.StreamMessage;
 import com.spotify.futures.CompletableFuturesExtra;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
@@ -52,16 +59,23 @@ import io.netty.buffer.ByteBufHolder;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.EventLoop;
+import io.netty.util.AsciiString;
 import io.netty.util.ReferenceCountUtil;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.curioswitch.curiostack.gcloud.storage.StorageModule.ForStorage;
+import org.immutables.value.Value.Default;
 import org.immutables.value.Value.Derived;
 import org.immutables.value.Value.Immutable;
 
@@ -73,9 +87,15 @@ import org.immutables.value.Value.Immutable;
 @Singleton
 public class StorageClient {
 
-  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+  static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+  private static final AsciiString GOOG_GENERATION = AsciiString.of("x-goog-generation");
+  private static final AsciiString GOOG_STORED_CONTENT_LENGTH =
+      AsciiString.of("x-goog-stored-content-length");
 
   private final WebClient httpClient;
+  private final StorageConfig config;
+  @Nullable private final DiskCache diskCache;
 
   private final String uploadUrl;
   private final String objectUrlPrefix;
@@ -83,9 +103,18 @@ public class StorageClient {
   @Inject
   public StorageClient(@ForStorage WebClient httpClient, StorageConfig config) {
     this.httpClient = httpClient;
+    this.config = config;
 
     uploadUrl = "/upload/storage/v1/b/" + config.getBucket() + "/o?uploadType=resumable";
     objectUrlPrefix = "/storage/v1/b/" + config.getBucket() + "/o/";
+
+    diskCache =
+        config.getDiskCacheDirectory().isEmpty()
+            ? null
+            : new DiskCache(
+                Paths.get(config.getDiskCacheDirectory()),
+                config.getDiskCacheMaxSizeBytes(),
+                httpClient.options().factory().meterRegistry());
   }
 
   /** Create a new file for uploading data to cloud storage. */
@@ -113,6 +142,44 @@ public class StorageClient {
   /** Create a new file for uploading data to cloud storage. */
   public CompletableFuture<FileWriter> createFile(
       FileRequest request, EventLoop eventLoop, ByteBufAllocator alloc) {
+    return startUpload(request, eventLoop, alloc)
+        .thenApply(pathAndQuery -> new FileWriter(pathAndQuery, alloc, eventLoop, httpClient));
+  }
+
+  /**
+   * Create a new file for uploading data to cloud storage with a {@link PipelinedFileWriter}, which
+   * buffers up to {@code maxBufferedBytes} of written data that has not been uploaded yet. As data
+   * is uploaded in chunks of multiples of 256KB, {@code maxBufferedBytes} must be at least 256KB.
+   */
+  public CompletableFuture<PipelinedFileWriter> createPipelinedFile(
+      FileRequest request, long maxBufferedBytes) {
+    return createPipelinedFile(
+        request,
+        maxBufferedBytes,
+        CommonPools.workerGroup().next(),
+        PooledByteBufAllocator.DEFAULT);
+  }
+
+  /**
+   * Create a new file for uploading data to cloud storage with a {@link PipelinedFileWriter}, which
+   * buffers up to {@code maxBufferedBytes} of written data that has not been uploaded yet. As data
+   * is uploaded in chunks of multiples of 256KB, {@code maxBufferedBytes} must be at least 256KB.
+   */
+  public CompletableFuture<PipelinedFileWriter> createPipelinedFile(
+      FileRequest request, long maxBufferedBytes, EventLoop eventLoop, ByteBufAllocator alloc) {
+    checkArgument(
+        maxBufferedBytes >= PipelinedFileWriter.CHUNK_ALIGNMENT,
+        "maxBufferedBytes must be at least 256KB.");
+    return startUpload(request, eventLoop, alloc)
+        .thenApply(
+            pathAndQuery ->
+                new PipelinedFileWriter(
+                    pathAndQuery, maxBufferedBytes, alloc, eventLoop, httpClient));
+  }
+
+  /** Starts a resumable upload, returning the path and query to upload data to. */
+  private CompletableFuture<String> startUpload(
+      FileRequest request, EventLoop eventLoop, ByteBufAllocator alloc) {
     HttpData data = serializeRequest(request, alloc);
 
     RequestHeaders headers =
@@ -139,11 +206,38 @@ public class StorageClient {
               }
 
               String location = responseHeaders.get(HttpHeaderNames.LOCATION);
-              String pathAndQuery = location.substring("https://www.googleapis.com".length());
-              return new FileWriter(pathAndQuery, alloc, eventLoop, httpClient);
+              return location.substring("https://www.googleapis.com".length());
             });
   }
 
+  /**
+   * Create a new file for uploading data to cloud storage in parts of {@code partSize} bytes, with
+   * up to {@code concurrency} parts uploaded at the same time. See {@link ParallelFileWriter}.
+   */
+  public ParallelFileWriter createParallelFile(FileRequest request, int partSize, int concurrency) {
+    return createParallelFile(
+        request,
+        partSize,
+        concurrency,
+        CommonPools.workerGroup().next(),
+        PooledByteBufAllocator.DEFAULT);
+  }
+
+  /**
+   * Create a new file for uploading data to cloud storage in parts of {@code partSize} bytes, with
+   * up to {@code concurrency} parts uploaded at the same time. See {@link ParallelFileWriter}.
+   */
+  public ParallelFileWriter createParallelFile(
+      FileRequest request,
+      int partSize,
+      int concurrency,
+      EventLoop eventLoop,
+      ByteBufAllocator alloc) {
+    checkArgument(partSize > 0, "partSize must be positive.");
+    checkArgument(concurrency > 0 && concurrency <= 32, "concurrency must be between 1 and 32.");
+    return new ParallelFileWriter(this, request, partSize, concurrency, alloc, eventLoop);
+  }
+
   /**
    * Reads the contents of a file from cloud storage. Ownership of the returned {@link ByteBuf} is
    * transferred to the caller, which must release it. The future will complete with {@code null} if
@@ -160,34 +254,315 @@ public class StorageClient {
    */
   public CompletableFuture<ByteBuf> readFile(
       String filename, EventLoop eventLoop, ByteBufAllocator alloc) {
+    return readFile(filename, eventLoop, alloc, true);
+  }
+
+  /**
+   * Reads the contents of a file from cloud storage. Ownership of the returned {@link ByteBuf} is
+   * transferred to the caller, which must release it. The future will complete with {@code null} if
+   * the file is not found. If {@code verifyChecksum} is {@code true}, the future will fail with
+   * {@link ChecksumMismatchException} if the contents do not match the file's CRC32C checksum.
+   * Contents served from the disk cache were verified when they were stored, and are verified again
+   * if the revalidation response includes the checksum, refetching the file if they don't match.
+   */
+  public CompletableFuture<ByteBuf> readFile(
+      String filename, EventLoop eventLoop, ByteBufAllocator alloc, boolean verifyChecksum) {
+    if (diskCache != null) {
+      return readCachedFile(filename, eventLoop, alloc, verifyChecksum);
+    }
+
     String url = objectUrlPrefix + urlPathSegmentEscaper().escape(filename) + "?alt=media";
 
     return httpClient
         .get(url)
         .aggregateWithPooledObjects(eventLoop, alloc)
+        .thenApply(msg -> fileContent(filename, msg, alloc, verifyChecksum));
+  }
+
+  private CompletableFuture<ByteBuf> readCachedFile(
+      String filename, EventLoop eventLoop, ByteBufAllocator alloc, boolean verifyChecksum) {
+    String url = objectUrlPrefix + urlPathSegmentEscaper().escape(filename) + "?alt=media";
+
+    DiskCache.Entry cached = diskCache.get(filename);
+    RequestHeadersBuilder headers = RequestHeaders.builder(HttpMethod.GET, url);
+    if (cached != null) {
+      headers.set(HttpHeaderNames.IF_NONE_MATCH, cached.etag());
+    }
+
+    return httpClient
+        .execute(headers.build())
+        .aggregateWithPooledObjects(eventLoop, alloc)
+        .thenCompose(
+            msg -> {
+              if (cached != null && msg.status().equals(HttpStatus.NOT_MODIFIED)) {
+                ReferenceCountUtil.safeRelease(msg.content());
+                return diskCache
+                    .read(cached)
+                    .thenApply(
+                        buf -> {
+                          if (verifyChecksum) {
+                            try {
+                              Checksums.verify(filename, msg.headers(), buf);
+                            } catch (ChecksumMismatchException e) {
+                              buf.release();
+                              throw e;
+                            }
+                          }
+                          return buf;
+                        })
+                    .handle(
+                        (buf, t) -> {
+                          if (t == null) {
+                            return CompletableFuture.completedFuture(buf);
+                          }
+                          // Evicted after revalidating or corrupted on disk, just read it again.
+                          diskCache.invalidate(filename);
+                          return readCachedFile(filename, eventLoop, alloc, verifyChecksum);
+                        })
+                    .thenCompose(Function.identity());
+              }
+              ByteBuf buf = fileContent(filename, msg, alloc, verifyChecksum);
+              if (buf == null) {
+                diskCache.invalidate(filename);
+                return CompletableFuture.completedFuture(null);
+              }
+              diskCache.recordMiss();
+              String etag = msg.headers().get(HttpHeaderNames.ETAG);
+              if (etag == null) {
+                return CompletableFuture.completedFuture(buf);
+              }
+              return diskCache
+                  .store(filename, etag, buf.retainedDuplicate())
+                  .handle((unused, t) -> buf);
+            });
+  }
+
+  @Nullable
+  private static ByteBuf fileContent(
+      String filename, AggregatedHttpResponse msg, ByteBufAllocator alloc, boolean verifyChecksum) {
+    if (msg.status().equals(HttpStatus.NOT_FOUND)) {
+      ReferenceCountUtil.safeRelease(msg.content());
+      return null;
+    }
+    if (!msg.status().equals(HttpStatus.OK)) {
+      String response = msg.contentUtf8();
+      ReferenceCountUtil.safeRelease(msg.content());
+      throw new InvalidResponseException("Could not fetch file at " + filename + ": " + response);
+    }
+    HttpData data = msg.content();
+    final ByteBuf buf;
+    if (data instanceof ByteBufHolder) {
+      buf = ((ByteBufHolder) msg.content()).content();
+    } else {
+      buf = alloc.buffer(data.length());
+      buf.writeBytes(data.array());
+    }
+    if (verifyChecksum) {
+      try {
+        Checksums.verify(filename, msg.headers(), buf);
+      } catch (ChecksumMismatchException e) {
+        buf.release();
+        throw e;
+      }
+    }
+    return buf;
+  }
+
+  /**
+   * Reads the contents of a file from cloud storage without buffering it in memory. The future
+   * completes with the file's metadata as soon as the response headers are received, with the
+   * contents streamed as they are consumed from the returned {@link FileStream}. The future will
+   * complete with {@code null} if the file is not found.
+   *
+   * <p>The CRC32C checksum of the file is computed as the contents are streamed, and the stream
+   * fails with {@link ChecksumMismatchException} after the last chunk if it doesn't match.
+   */
+  public CompletableFuture<FileStream> readFileStream(String filename) {
+    return readFileStream(filename, 0, -1);
+  }
+
+  /**
+   * Reads {@code length} bytes of a file starting from {@code offset} without buffering them in
+   * memory. If {@code length} is negative, the file is read until the end. The future will complete
+   * with {@code null} if the file is not found.
+   *
+   * <p>Only reads of the whole file are verified with its CRC32C checksum, since cloud storage does
+   * not provide checksums of ranges.
+   */
+  public CompletableFuture<FileStream> readFileStream(String filename, long offset, long length) {
+    return readFileStream(filename, offset, length, CommonPools.workerGroup().next());
+  }
+
+  /**
+   * Reads {@code length} bytes of a file starting from {@code offset} without buffering them in
+   * memory. If {@code length} is negative, the file is read until the end. The future will complete
+   * with {@code null} if the file is not found.
+   *
+   * <p>Only reads of the whole file are verified with its CRC32C checksum, since cloud storage does
+   * not provide checksums of ranges.
+   */
+  public CompletableFuture<FileStream> readFileStream(
+      String filename, long offset, long length, EventLoop eventLoop) {
+    return readFileStream(filename, offset, length, 0, eventLoop);
+  }
+
+  /**
+   * Reads a file from cloud storage by splitting it into byte ranges that are fetched concurrently,
+   * writing each range directly to its position in {@code destination}. The sizes of the ranges and
+   * the number read at the same time are set by {@link StorageConfig}. All ranges are read from the
+   * same generation of the file, and individual ranges are retried on failure. The future completes
+   * with the size of the file once all of it has been written, or with {@code null} if the file is
+   * not found. The checksums of the ranges are combined and verified against the file's CRC32C
+   * checksum, failing with {@link ChecksumMismatchException} if they don't match.
+   */
+  public CompletableFuture<Long> readFileParallel(String filename, FileChannel destination) {
+    return newParallelReader(filename).readTo(destination);
+  }
+
+  /**
+   * Reads a file from cloud storage by splitting it into byte ranges that are fetched concurrently,
+   * returning a {@link FileStream} with the ranges put back together in order. Ranges are started
+   * ahead of the consumer up to the concurrency set by {@link StorageConfig}, with the data of
+   * ranges not yet consumed limited by flow control of the connection. All ranges are read from the
+   * same generation of the file. The future will complete with {@code null} if the file is not
+   * found. As with {@link #readFileStream(String)}, the stream fails with {@link
+   * ChecksumMismatchException} after the last chunk if the contents don't match the file's CRC32C
+   * checksum.
+   */
+  public CompletableFuture<FileStream> readFileParallel(String filename) {
+    return newParallelReader(filename).read();
+  }
+
+  private ParallelFileReader newParallelReader(String filename) {
+    return new ParallelFileReader(
+        this,
+        filename,
+        config.getParallelReadRangeSize(),
+        config.getParallelReadConcurrency(),
+        config.getParallelReadMaxRetries(),
+        CommonPools.workerGroup().next(),
+        httpClient.options().factory().meterRegistry());
+  }
+
+  /**
+   * Reads the given range of a specific generation of a file, or the latest generation if {@code
+   * generation} is {@code 0}.
+   */
+  CompletableFuture<FileStream> readFileStream(
+      String filename, long offset, long length, long generation, EventLoop eventLoop) {
+    checkArgument(offset >= 0, "offset must be non-negative.");
+    checkArgument(length != 0, "length must not be zero.");
+
+    String url = objectUrlPrefix + urlPathSegmentEscaper().escape(filename) + "?alt=media";
+    if (generation != 0) {
+      url += "&generation=" + generation;
+    }
+    RequestHeadersBuilder headers = RequestHeaders.builder(HttpMethod.GET, url);
+    if (offset > 0 || length > 0) {
+      headers.set(
+          HttpHeaderNames.RANGE,
+          "bytes=" + offset + '-' + (length > 0 ? String.valueOf(offset + length - 1) : ""));
+    }
+
+    SplitHttpResponse res = httpClient.execute(headers.build()).split(eventLoop);
+    return res.headers()
+        .thenCompose(
+            responseHeaders -> {
+              HttpStatus status = responseHeaders.status();
+              if (status.equals(HttpStatus.NOT_FOUND)) {
+                res.body().abort();
+                return CompletableFuture.completedFuture(null);
+              }
+              if (!status.equals(HttpStatus.OK) && !status.equals(HttpStatus.PARTIAL_CONTENT)) {
+                return res.body()
+                    .collectBytes(eventLoop)
+                    .thenApply(
+                        content -> {
+                          throw new InvalidResponseException(
+                              "Could not fetch file at "
+                                  + filename
+                                  + ": "
+                                  + new String(content, StandardCharsets.UTF_8));
+                        });
+              }
+              ByteStreamMessage content = res.body();
+              String crc32c = Checksums.crc32c(responseHeaders);
+              // Cloud storage only returns the checksum of the whole object, so ranges can't be
+              // verified.
+              if (status.equals(HttpStatus.OK) && crc32c != null) {
+                content = Checksums.verifying(filename, crc32c, content);
+              }
+              return CompletableFuture.completedFuture(
+                  newFileStream(responseHeaders, content, eventLoop));
+            });
+  }
+
+  /**
+   * Reads the size and generation of a file. The future will complete with {@code null} if the file
+   * is not found.
+   */
+  CompletableFuture<ObjectInfo> readObjectInfo(String filename, EventLoop eventLoop) {
+    String url = objectUrlPrefix + urlPathSegmentEscaper().escape(filename);
+    return httpClient
+        .get(url)
+        .aggregate(eventLoop)
         .thenApply(
             msg -> {
               if (msg.status().equals(HttpStatus.NOT_FOUND)) {
-                ReferenceCountUtil.safeRelease(msg.content());
                 return null;
               }
               if (!msg.status().equals(HttpStatus.OK)) {
-                String response = msg.contentUtf8();
-                ReferenceCountUtil.safeRelease(msg.content());
                 throw new InvalidResponseException(
-                    "Could not fetch file at " + filename + ": " + response);
+                    "Could not fetch metadata of file at " + filename + ": " + msg.contentUtf8());
               }
-              HttpData data = msg.content();
-              if (data instanceof ByteBufHolder) {
-                return ((ByteBufHolder) msg.content()).content();
-              } else {
-                ByteBuf buf = alloc.buffer(data.length());
-                buf.writeBytes(data.array());
-                return buf;
+              try {
+                return OBJECT_MAPPER.readValue(msg.content().array(), ObjectInfo.class);
+              } catch (IOException e) {
+                throw new UncheckedIOException("Could not parse file metadata.", e);
               }
             });
   }
 
+  /**
+   * Lists the objects whose name starts with {@code prefix}. If {@code delimiter} is not empty,
+   * objects whose name contains {@code delimiter} after the prefix are not listed, and the prefixes
+   * up to and including the delimiter are listed instead, as with directories in a file system. See
+   * {@link ObjectLister}.
+   */
+  public StreamMessage<ObjectInfo> listObjects(String prefix, String delimiter) {
+    return listObjects(prefix, delimiter, "");
+  }
+
+  /**
+   * Lists the objects whose name starts with {@code prefix}, with only the metadata {@code fields},
+   * a comma-separated list of object resource fields like {@code name,size}, populated. All
+   * metadata is populated if {@code fields} is empty.
+   *
+   * @see #listObjects(String, String)
+   */
+  public StreamMessage<ObjectInfo> listObjects(String prefix, String delimiter, String fields) {
+    return listObjects(prefix, delimiter, fields, CommonPools.workerGroup().next());
+  }
+
+  /**
+   * Lists the objects whose name starts with {@code prefix}, with only the metadata {@code fields},
+   * a comma-separated list of object resource fields like {@code name,size}, populated. All
+   * metadata is populated if {@code fields} is empty.
+   *
+   * @see #listObjects(String, String)
+   */
+  public StreamMessage<ObjectInfo> listObjects(
+      String prefix, String delimiter, String fields, EventLoop eventLoop) {
+    return new ObjectLister(
+            httpClient,
+            objectUrlPrefix.substring(0, objectUrlPrefix.length() - 1),
+            prefix,
+            delimiter,
+            fields,
+            eventLoop)
+        .start();
+  }
+
   public CompletableFuture<Void> updateFileMetadata(String filename, Map<String, String> metadata) {
     return updateFileMetadata(
         filename, metadata, CommonPools.workerGroup().next(), PooledByteBufAllocator.DEFAULT);
@@ -239,6 +614,22 @@ public class StorageClient {
             });
   }
 
+  /**
+   * Returns a new {@link StorageBatch} for sending many deletes or metadata updates in a few
+   * requests.
+   */
+  public StorageBatch newBatch() {
+    return newBatch(CommonPools.workerGroup().next());
+  }
+
+  /**
+   * Returns a new {@link StorageBatch} for sending many deletes or metadata updates in a few
+   * requests.
+   */
+  public StorageBatch newBatch(EventLoop eventLoop) {
+    return new StorageBatch(httpClient, objectUrlPrefix, config.getBatchConcurrency(), eventLoop);
+  }
+
   private CompletableFuture<Void> sendMutationRequest(
       HttpMethod method, Object request, String url, EventLoop eventLoop, ByteBufAllocator alloc) {
     HttpData data = serializeRequest(request, alloc);
@@ -265,6 +656,35 @@ public class StorageClient {
             });
   }
 
+  private static FileStream newFileStream(
+      ResponseHeaders headers, ByteStreamMessage content, EventLoop eventLoop) {
+    long offset = 0;
+    long length = headers.contentLength();
+    final long size;
+    String contentRange = headers.get(HttpHeaderNames.CONTENT_RANGE);
+    if (headers.status().equals(HttpStatus.PARTIAL_CONTENT) && contentRange != null) {
+      // bytes first-last/size
+      int dash = contentRange.indexOf('-');
+      int slash = contentRange.indexOf('/');
+      offset = Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+      if (length < 0) {
+        length = Long.parseLong(contentRange.substring(dash + 1, slash)) - offset + 1;
+      }
+      String total = contentRange.substring(slash + 1);
+      size = total.equals("*") ? -1 : Long.parseLong(total);
+    } else {
+      size = headers.getLong(GOOG_STORED_CONTENT_LENGTH, length);
+    }
+    return new FileStream(
+        size,
+        offset,
+        length,
+        headers.getLong(GOOG_GENERATION, 0),
+        headers.get(HttpHeaderNames.ETAG, ""),
+        content,
+        eventLoop);
+  }
+
   private static HttpData serializeRequest(Object request, ByteBufAllocator alloc) {
     ByteBuf buf = alloc.buffer();
     try (ByteBufOutputStream os = new ByteBufOutputStream(buf)) {
@@ -310,6 +730,69 @@ public class StorageClient {
     Map<String, String> getMetadata();
   }
 
+  /**
+   * Metadata of an object in cloud storage. Attributes that are not returned by the server, e.g.,
+   * because they were not included in the requested {@code fields}, are empty or zero.
+   */
+  @Immutable
+  @JsonDeserialize(as = ImmutableObjectInfo.class)
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public interface ObjectInfo {
+    @Default
+    default String getName() {
+      return "";
+    }
+
+    @Default
+    default long getSize() {
+      return 0;
+    }
+
+    @Default
+    default long getGeneration() {
+      return 0;
+    }
+
+    @Default
+    default String getContentType() {
+      return "";
+    }
+
+    @Default
+    default String getEtag() {
+      return "";
+    }
+
+    /** The base64-encoded MD5 hash of the object's content. */
+    @Default
+    default String getMd5Hash() {
+      return "";
+    }
+
+    /** The base64-encoded CRC32C checksum of the object's content, in big-endian byte order. */
+    @Default
+    default String getCrc32c() {
+      return "";
+    }
+
+    /** The modification time of the object, in RFC 3339 format. */
+    @Default
+    default String getUpdated() {
+      return "";
+    }
+
+    Map<String, String> getMetadata();
+
+    /**
+     * Whether this is a prefix of objects, i.e., a directory, returned when listing objects with a
+     * delimiter rather than an actual object. Only {@link #getName()} is set for prefixes.
+     */
+    @Default
+    default boolean isPrefix() {
+      return false;
+    }
+  }
+
   @Immutable
   @JsonSerialize(as = ImmutableComposeRequest.class)
   @JsonDeserialize(as = ImmutableComposeRequest.class)
@@ -45,4 +45,50 @@ public interface StorageConfig {
 
   /** The bucket to upload files to. */
   String getBucket();
+
+  /**
+   * The size of the byte ranges a file is split into when reading it in parallel with {@link
+   * StorageClient#readFileParallel(String)}. Defaults to 16MB.
+   */
+  default int getParallelReadRangeSize() {
+    return 16 * 1024 * 1024;
+  }
+
+  /** The maximum number of byte ranges of a file to read at the same time. Defaults to 8. */
+  default int getParallelReadConcurrency() {
+    return 8;
+  }
+
+  /**
+   * The number of times reading a byte range of a file is retried after a failure when reading in
+   * parallel. Defaults to 3.
+   */
+  default int getParallelReadMaxRetries() {
+    return 3;
+  }
+
+  /**
+   * A directory on local disk to cache files read with {@link StorageClient#readFile(String)} in.
+   * Cached files are revalidated on every read, and only downloaded again if they have changed. If
+   * empty, the default, files are not cached.
+   */
+  default String getDiskCacheDirectory() {
+    return "";
+  }
+
+  /**
+   * The maximum total size of the files in the disk cache, after which the least recently used
+   * files are evicted. Defaults to 1GB.
+   */
+  default long getDiskCacheMaxSizeBytes() {
+    return 1024L * 1024 * 1024;
+  }
+
+  /**
+   * The maximum number of requests of a {@link StorageBatch} to send at the same time, each
+   * containing up to 100 operations. Defaults to 4.
+   */
+  default int getBatchConcurrency() {
+    return 4;
+  }
 }
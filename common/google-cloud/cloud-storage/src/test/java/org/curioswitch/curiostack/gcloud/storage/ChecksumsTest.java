@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+
+class ChecksumsTest {
+
+  // CRC32C check value of "123456789", 0xE3069283.
+  private static final String CHECK_VALUE = "4waSgw==";
+
+  @Test
+  void compositeBuffer() {
+    ByteBuf buf =
+        Unpooled.wrappedBuffer(
+            Unpooled.copiedBuffer("1234", StandardCharsets.UTF_8),
+            Unpooled.directBuffer().writeBytes("56789".getBytes(StandardCharsets.UTF_8)));
+    CRC32C crc32c = new CRC32C();
+    Checksums.update(crc32c, buf);
+
+    assertThat(Checksums.hashHeaderValue(crc32c)).isEqualTo("crc32c=" + CHECK_VALUE);
+    assertThat(buf.readableBytes()).isEqualTo(9);
+    buf.release();
+  }
+
+  @Test
+  void parsesHashHeader() {
+    assertThat(
+            Checksums.crc32c(
+                HttpHeaders.of(
+                    Checksums.GOOG_HASH, "crc32c=n03x6A==,md5=Ojk9c3dhfxgoKVVHYwFbHQ==")))
+        .isEqualTo("n03x6A==");
+    assertThat(
+            Checksums.crc32c(
+                HttpHeaders.builder()
+                    .add(Checksums.GOOG_HASH, "md5=Ojk9c3dhfxgoKVVHYwFbHQ==")
+                    .add(Checksums.GOOG_HASH, "crc32c=n03x6A==")
+                    .build()))
+        .isEqualTo("n03x6A==");
+    assertThat(
+            Checksums.crc32c(
+                HttpHeaders.of(
+                    Checksums.GOOG_HASH,
+                    "crc32c=n03x6A==",
+                    "x-goog-stored-content-encoding",
+                    "gzip")))
+        .isNull();
+  }
+
+  @Test
+  void verify() {
+    ByteBuf buf = Unpooled.copiedBuffer("123456789", StandardCharsets.UTF_8);
+
+    Checksums.verify("file", HttpHeaders.of(Checksums.GOOG_HASH, "crc32c=" + CHECK_VALUE), buf);
+    Checksums.verify("file", HttpHeaders.of(), buf);
+    assertThatThrownBy(
+            () ->
+                Checksums.verify(
+                    "file", HttpHeaders.of(Checksums.GOOG_HASH, "crc32c=n03x6A=="), buf))
+        .isInstanceOf(ChecksumMismatchException.class)
+        .hasMessageContaining("file");
+  }
+
+  @Test
+  void combine() {
+    byte[] first = "1234".getBytes(StandardCharsets.UTF_8);
+    byte[] second = "56789".getBytes(StandardCharsets.UTF_8);
+    CRC32C crc1 = new CRC32C();
+    crc1.update(first);
+    CRC32C crc2 = new CRC32C();
+    crc2.update(second);
+
+    int combined = Checksums.combine((int) crc1.getValue(), (int) crc2.getValue(), second.length);
+    assertThat(Checksums.encode(combined)).isEqualTo(CHECK_VALUE);
+    assertThat(Checksums.combine((int) crc1.getValue(), 0, 0)).isEqualTo((int) crc1.getValue());
+  }
+
+  @Test
+  void verifyingStream() {
+    assertThat(
+            Checksums.verifying(
+                    "file",
+                    CHECK_VALUE,
+                    StreamMessage.of(HttpData.ofUtf8("1234"), HttpData.ofUtf8("56789")))
+                .collectBytes()
+                .join())
+        .isEqualTo("123456789".getBytes(StandardCharsets.UTF_8));
+    assertThatThrownBy(
+            () ->
+                Checksums.verifying(
+                        "file",
+                        CHECK_VALUE,
+                        StreamMessage.of(HttpData.ofUtf8("1234"), HttpData.ofUtf8("5678")))
+                    .collectBytes()
+                    .join())
+        .hasCauseInstanceOf(ChecksumMismatchException.class);
+  }
+}
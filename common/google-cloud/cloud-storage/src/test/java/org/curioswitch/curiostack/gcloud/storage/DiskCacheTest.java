@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.server.Server;
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskCacheTest {
+
+  private final Map<String, String> files = new ConcurrentHashMap<>();
+  private final AtomicInteger downloads = new AtomicInteger();
+
+  @TempDir Path cacheDir;
+
+  private Server server;
+
+  @BeforeEach
+  void setUp() {
+    server =
+        Server.builder()
+            .http(0)
+            .serviceUnder(
+                "/storage/v1/b/bucket/o/",
+                (ctx, req) -> {
+                  String contents = files.get(ctx.mappedPath().substring(1));
+                  if (contents == null) {
+                    return HttpResponse.of(HttpStatus.NOT_FOUND);
+                  }
+                  String etag = '"' + Integer.toHexString(contents.hashCode()) + '"';
+                  if (etag.equals(req.headers().get(HttpHeaderNames.IF_NONE_MATCH))) {
+                    return HttpResponse.of(HttpStatus.NOT_MODIFIED);
+                  }
+                  downloads.incrementAndGet();
+                  return HttpResponse.of(
+                      ResponseHeaders.builder(HttpStatus.OK)
+                          .contentType(MediaType.PLAIN_TEXT_UTF_8)
+                          .set(HttpHeaderNames.ETAG, etag)
+                          .build(),
+                      HttpData.ofUtf8(contents));
+                })
+            .build();
+    server.start().join();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void servesUnchangedFilesFromDisk() {
+    StorageClient client = newClient(1024 * 1024);
+    files.put("model", "weights");
+
+    assertThat(read(client, "model")).isEqualTo("weights");
+    assertThat(read(client, "model")).isEqualTo("weights");
+    assertThat(downloads).hasValue(1);
+
+    files.put("model", "new weights");
+    assertThat(read(client, "model")).isEqualTo("new weights");
+    assertThat(downloads).hasValue(2);
+
+    // A new client, e.g., after a restart, reuses the cached files.
+    StorageClient restarted = newClient(1024 * 1024);
+    assertThat(read(restarted, "model")).isEqualTo("new weights");
+    assertThat(downloads).hasValue(2);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() throws Exception {
+    StorageClient client = newClient(20);
+    files.put("a", "0123456789");
+    files.put("b", "0123456789");
+    files.put("c", "0123456789");
+
+    read(client, "a");
+    read(client, "b");
+    read(client, "a");
+    read(client, "c");
+    assertThat(downloads).hasValue(3);
+    try (Stream<Path> cached = Files.list(cacheDir)) {
+      assertThat(cached).hasSize(2);
+    }
+
+    read(client, "a");
+    assertThat(downloads).hasValue(3);
+    read(client, "b");
+    assertThat(downloads).hasValue(4);
+  }
+
+  @Test
+  void notFound() {
+    StorageClient client = newClient(1024);
+    assertThat(client.readFile("missing").join()).isNull();
+  }
+
+  private StorageClient newClient(long maxSizeBytes) {
+    return new StorageClient(
+        WebClient.of("http://127.0.0.1:" + server.activeLocalPort()),
+        new StorageConfig.Builder()
+            .bucket("bucket")
+            .diskCacheDirectory(cacheDir.toString())
+            .diskCacheMaxSizeBytes(maxSizeBytes)
+            .build());
+  }
+
+  private static String read(StorageClient client, String filename) {
+    ByteBuf buf = client.readFile(filename).join();
+    try {
+      return buf.toString(StandardCharsets.UTF_8);
+    } finally {
+      buf.release();
+    }
+  }
+}
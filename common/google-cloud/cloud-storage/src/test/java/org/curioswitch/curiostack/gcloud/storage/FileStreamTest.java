@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.ResponseHeadersBuilder;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.server.Server;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileStreamTest {
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final int FAILING_RANGE_OFFSET = 300_000;
+
+  private final byte[] contents = new byte[1024 * 1024 + 123];
+  private final AtomicInteger rangeFailures = new AtomicInteger();
+  private final AtomicBoolean corrupt = new AtomicBoolean();
+
+  private Server server;
+  private StorageClient client;
+
+  @BeforeEach
+  void setUp() {
+    new Random(1).nextBytes(contents);
+    CRC32C crc32c = new CRC32C();
+    crc32c.update(contents);
+    String checksum = Checksums.encode((int) crc32c.getValue());
+    server =
+        Server.builder()
+            .http(0)
+            .service(
+                "/storage/v1/b/bucket/o/dir%2Ffile",
+                (ctx, req) -> {
+                  if (!"media".equals(ctx.queryParam("alt"))) {
+                    return HttpResponse.of(
+                        HttpStatus.OK,
+                        MediaType.JSON_UTF_8,
+                        "{\"name\":\"dir/file\",\"size\":\"%d\",\"generation\":\"12345\","
+                            + "\"crc32c\":\"%s\"}",
+                        contents.length,
+                        checksum);
+                  }
+                  int first = 0;
+                  int last = contents.length - 1;
+                  String range = req.headers().get(HttpHeaderNames.RANGE);
+                  ResponseHeadersBuilder headers;
+                  if (range != null) {
+                    String[] parts = range.substring("bytes=".length()).split("-", -1);
+                    first = Integer.parseInt(parts[0]);
+                    if (first == FAILING_RANGE_OFFSET && rangeFailures.getAndDecrement() > 0) {
+                      return HttpResponse.of(HttpStatus.SERVICE_UNAVAILABLE);
+                    }
+                    if (!parts[1].isEmpty()) {
+                      last = Math.min(last, Integer.parseInt(parts[1]));
+                    }
+                    headers =
+                        ResponseHeaders.builder(HttpStatus.PARTIAL_CONTENT)
+                            .set(
+                                HttpHeaderNames.CONTENT_RANGE,
+                                "bytes " + first + '-' + last + '/' + contents.length);
+                  } else {
+                    headers = ResponseHeaders.builder(HttpStatus.OK);
+                  }
+                  headers
+                      .contentLength(last - first + 1)
+                      .set("x-goog-generation", "12345")
+                      .set("x-goog-hash", "crc32c=" + checksum)
+                      .set(HttpHeaderNames.ETAG, "\"etag\"");
+                  byte[] served = contents;
+                  if (corrupt.get()) {
+                    served = contents.clone();
+                    served[served.length - 1]++;
+                  }
+                  HttpData[] chunks = new HttpData[(last - first) / CHUNK_SIZE + 1];
+                  for (int i = 0; i < chunks.length; i++) {
+                    int start = first + i * CHUNK_SIZE;
+                    chunks[i] =
+                        HttpData.copyOf(served, start, Math.min(CHUNK_SIZE, last + 1 - start));
+                  }
+                  return HttpResponse.of(headers.build(), StreamMessage.of(chunks));
+                })
+            .build();
+    server.start().join();
+
+    client =
+        new StorageClient(
+            WebClient.of("http://127.0.0.1:" + server.activeLocalPort()),
+            new StorageConfig.Builder()
+                .bucket("bucket")
+                .parallelReadRangeSize(100_000)
+                .parallelReadConcurrency(3)
+                .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void readsWholeFile() throws Exception {
+    FileStream stream = client.readFileStream("dir/file").join();
+
+    assertThat(stream.size()).isEqualTo(contents.length);
+    assertThat(stream.offset()).isZero();
+    assertThat(stream.length()).isEqualTo(contents.length);
+    assertThat(stream.generation()).isEqualTo(12345);
+    assertThat(stream.etag()).isEqualTo("\"etag\"");
+    assertThat(readAll(stream)).isEqualTo(contents);
+  }
+
+  @Test
+  void readsRange() throws Exception {
+    FileStream stream = client.readFileStream("dir/file", 100_000, 200_000).join();
+
+    assertThat(stream.size()).isEqualTo(contents.length);
+    assertThat(stream.offset()).isEqualTo(100_000);
+    assertThat(stream.length()).isEqualTo(200_000);
+    assertThat(readAll(stream)).isEqualTo(Arrays.copyOfRange(contents, 100_000, 300_000));
+  }
+
+  @Test
+  void readsToEnd() throws Exception {
+    FileStream stream = client.readFileStream("dir/file", 1024 * 1024, -1).join();
+
+    assertThat(stream.length()).isEqualTo(123);
+    assertThat(readAll(stream))
+        .isEqualTo(Arrays.copyOfRange(contents, 1024 * 1024, contents.length));
+  }
+
+  @Test
+  void notFound() {
+    assertThat(client.readFileStream("missing").join()).isNull();
+  }
+
+  @Test
+  void readsParallelToChannel(@TempDir Path dir) throws Exception {
+    rangeFailures.set(2);
+    Path path = dir.resolve("file");
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      assertThat(client.readFileParallel("dir/file", channel).join()).isEqualTo(contents.length);
+    }
+
+    assertThat(Files.readAllBytes(path)).isEqualTo(contents);
+    assertThat(rangeFailures).hasNegativeValue();
+  }
+
+  @Test
+  void readsParallelStream() throws Exception {
+    rangeFailures.set(1);
+    FileStream stream = client.readFileParallel("dir/file").join();
+
+    assertThat(stream.size()).isEqualTo(contents.length);
+    assertThat(stream.generation()).isEqualTo(12345);
+    assertThat(readAll(stream)).isEqualTo(contents);
+  }
+
+  @Test
+  void readsParallelNotFound() {
+    assertThat(client.readFileParallel("missing").join()).isNull();
+  }
+
+  @Test
+  void detectsCorruption(@TempDir Path dir) throws Exception {
+    corrupt.set(true);
+
+    FileStream stream = client.readFileStream("dir/file").join();
+    assertThatThrownBy(() -> readAll(stream))
+        .hasRootCauseInstanceOf(ChecksumMismatchException.class);
+
+    FileStream parallelStream = client.readFileParallel("dir/file").join();
+    assertThatThrownBy(() -> readAll(parallelStream))
+        .hasRootCauseInstanceOf(ChecksumMismatchException.class);
+
+    try (FileChannel channel =
+        FileChannel.open(
+            dir.resolve("file"), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      assertThatThrownBy(() -> client.readFileParallel("dir/file", channel).join())
+          .hasCauseInstanceOf(ChecksumMismatchException.class);
+    }
+  }
+
+  private static byte[] readAll(FileStream stream) throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    // Deliberately not aligned with the size of the chunks being streamed.
+    ByteBuffer buf = ByteBuffer.allocate(10_000);
+    try (ReadableByteChannel channel = stream.newChannel()) {
+      while (channel.read(buf) >= 0) {
+        buf.flip();
+        os.write(buf.array(), 0, buf.limit());
+        buf.clear();
+      }
+    }
+    return os.toByteArray();
+  }
+}
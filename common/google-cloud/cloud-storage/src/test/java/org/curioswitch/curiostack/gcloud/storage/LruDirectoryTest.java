@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LruDirectoryTest {
+
+  @Test
+  void evictsLeastRecentlyUsed(@TempDir Path path) throws Exception {
+    var directory = new LruDirectory(path, 100);
+    put(directory, "a", 40);
+    put(directory, "b", 40);
+    assertThat(directory.get("a")).isNotNull();
+
+    put(directory, "c", 40);
+    assertThat(directory.contains("a")).isTrue();
+    assertThat(directory.contains("b")).isFalse();
+    assertThat(directory.contains("c")).isTrue();
+    assertThat(path.resolve("b")).doesNotExist();
+
+    var reloaded = new LruDirectory(path, 100);
+    assertThat(reloaded.contains("a")).isTrue();
+    assertThat(reloaded.contains("c")).isTrue();
+  }
+
+  private static void put(LruDirectory directory, String name, int size) throws Exception {
+    Path temp = directory.newTempFile();
+    Files.write(temp, new byte[size]);
+    directory.commit(name, temp);
+  }
+}
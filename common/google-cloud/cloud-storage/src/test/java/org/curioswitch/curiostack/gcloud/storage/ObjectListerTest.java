@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.QueryParams;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.server.Server;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.ObjectInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+class ObjectListerTest {
+
+  private final ConcurrentLinkedQueue<QueryParams> requests = new ConcurrentLinkedQueue<>();
+
+  private Server server;
+  private StorageClient client;
+
+  @BeforeEach
+  void setUp() {
+    server =
+        Server.builder()
+            .http(0)
+            .service(
+                "/storage/v1/b/bucket/o",
+                (ctx, req) -> {
+                  QueryParams params = ctx.queryParams();
+                  requests.add(params);
+                  String pageToken = params.get("pageToken", "");
+                  final String body;
+                  switch (pageToken) {
+                    case "":
+                      body =
+                          "{\"kind\":\"storage#objects\",\"nextPageToken\":\"page2\","
+                              + "\"prefixes\":[\"dir/sub/\"],\"items\":["
+                              + "{\"kind\":\"storage#object\",\"name\":\"dir/a\",\"size\":\"10\","
+                              + "\"generation\":\"1\",\"metadata\":{\"tag\":\"hot\"},"
+                              + "\"owner\":{\"entity\":\"user\"}},"
+                              + "{\"name\":\"dir/b\",\"size\":\"20\"}]}";
+                      break;
+                    case "page2":
+                      body =
+                          "{\"nextPageToken\":\"page3\",\"items\":[{\"name\":\"dir/c\"},"
+                              + "{\"name\":\"dir/d\"}]}";
+                      break;
+                    case "page3":
+                      body = "{\"items\":[{\"name\":\"dir/e\"}]}";
+                      break;
+                    default:
+                      return HttpResponse.of(HttpStatus.BAD_REQUEST);
+                  }
+                  return HttpResponse.of(HttpStatus.OK, MediaType.JSON_UTF_8, body);
+                })
+            .build();
+    server.start().join();
+
+    client =
+        new StorageClient(
+            WebClient.of("http://127.0.0.1:" + server.activeLocalPort()),
+            new StorageConfig.Builder().bucket("bucket").build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void listsAllPages() {
+    List<ObjectInfo> objects =
+        client.listObjects("dir/", "/", "name,size,metadata").collect().join();
+
+    assertThat(objects.stream().map(ObjectInfo::getName).collect(Collectors.toList()))
+        .containsExactly("dir/sub/", "dir/a", "dir/b", "dir/c", "dir/d", "dir/e");
+    assertThat(objects.get(0).isPrefix()).isTrue();
+    assertThat(objects.get(1).isPrefix()).isFalse();
+    assertThat(objects.get(1).getSize()).isEqualTo(10);
+    assertThat(objects.get(1).getGeneration()).isEqualTo(1);
+    assertThat(objects.get(1).getMetadata()).containsEntry("tag", "hot");
+    assertThat(objects.get(3).getSize()).isZero();
+
+    assertThat(requests).hasSize(3);
+    assertThat(requests)
+        .allSatisfy(
+            params -> {
+              assertThat(params.get("prefix")).isEqualTo("dir/");
+              assertThat(params.get("delimiter")).isEqualTo("/");
+              assertThat(params.get("fields"))
+                  .isEqualTo("nextPageToken,prefixes,items(name,size,metadata)");
+            });
+  }
+
+  @Test
+  void prefetchesOnlyNextPage() {
+    StreamMessage<ObjectInfo> objects = client.listObjects("", "");
+    List<ObjectInfo> received = new CopyOnWriteArrayList<>();
+    Subscription[] subscription = new Subscription[1];
+    objects.subscribe(
+        new Subscriber<ObjectInfo>() {
+          @Override
+          public void onSubscribe(Subscription s) {
+            subscription[0] = s;
+            s.request(1);
+          }
+
+          @Override
+          public void onNext(ObjectInfo object) {
+            received.add(object);
+          }
+
+          @Override
+          public void onError(Throwable t) {}
+
+          @Override
+          public void onComplete() {}
+        });
+
+    await().untilAsserted(() -> assertThat(requests).hasSize(2));
+    assertThat(received).hasSize(1);
+    assertThat(requests.stream().map(params -> params.get("pageToken")))
+        .containsExactly(null, "page2");
+
+    subscription[0].request(Long.MAX_VALUE);
+    await().untilAsserted(() -> assertThat(received).hasSize(6));
+    assertThat(requests).hasSize(3);
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.linecorp.armeria.client.InvalidResponseException;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpRequest;
+import com.linecorp.armeria.common.CommonPools;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.ResponseHeadersBuilder;
+import com.linecorp.armeria.server.Server;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoop;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.FileRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PipelinedFileWriterTest {
+
+  private static final int CHUNK = PipelinedFileWriter.CHUNK_ALIGNMENT;
+
+  private final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+  private final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+  private final List<String> contentRanges = new CopyOnWriteArrayList<>();
+
+  // Responses are held until this completes.
+  private volatile CompletableFuture<Void> gate = CompletableFuture.completedFuture(null);
+  // Only persists up to one aligned chunk of each request when set.
+  private volatile boolean partialAcknowledgements;
+  // Number of next requests which are acknowledged without persisting anything or a Range header.
+  private final AtomicInteger noProgressResponses = new AtomicInteger();
+  // Number of next requests which fail with 503 Service Unavailable.
+  private final AtomicInteger failures = new AtomicInteger();
+
+  private final EventLoop eventLoop = CommonPools.workerGroup().next();
+
+  private Server server;
+  private WebClient client;
+
+  @BeforeEach
+  void setUp() {
+    server =
+        Server.builder()
+            .http(0)
+            .maxRequestLength(0)
+            .service(
+                "/upload",
+                (ctx, req) ->
+                    HttpResponse.of(
+                        req.aggregate()
+                            .thenCombine(gate, (msg, unused) -> msg)
+                            .thenApply(this::uploadChunk)))
+            .build();
+    server.start().join();
+    client = WebClient.of("http://127.0.0.1:" + server.activeLocalPort());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void writesCompleteWhenBufferedDataIsWithinLimit() {
+    gate = new CompletableFuture<>();
+    PipelinedFileWriter writer = newWriter(2 * CHUNK);
+    byte[] data = randomBytes(4 * CHUNK);
+
+    assertThat(writer.write(ByteBuffer.wrap(data, 0, CHUNK))).isCompleted();
+    CompletableFuture<Void> overLimit = writer.write(ByteBuffer.wrap(data, CHUNK, 2 * CHUNK));
+    assertThat(overLimit).isNotDone();
+
+    gate.complete(null);
+    overLimit.join();
+    writer.write(ByteBuffer.wrap(data, 3 * CHUNK, CHUNK));
+    writer.close().join();
+    assertThat(uploaded.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  void resendsUnpersistedDataAfterPartialAcknowledgement() {
+    partialAcknowledgements = true;
+    PipelinedFileWriter writer = newWriter(8 * CHUNK);
+    byte[] data = randomBytes(5 * CHUNK + 100);
+
+    writer.writeAndClose(Unpooled.wrappedBuffer(data)).join();
+    assertThat(uploaded.toByteArray()).isEqualTo(data);
+    // Each chunk starts where the previous acknowledgement ended.
+    assertThat(contentRanges).startsWith("bytes 0-" + (4 * CHUNK - 1) + "/*");
+    assertThat(contentRanges.get(1)).startsWith("bytes " + CHUNK + "-");
+  }
+
+  @Test
+  void backsOffWhenNothingIsPersisted() {
+    noProgressResponses.set(2);
+    PipelinedFileWriter writer = newWriter(2 * CHUNK);
+    byte[] data = randomBytes(2 * CHUNK + 100);
+
+    writer.writeAndClose(Unpooled.wrappedBuffer(data)).join();
+    assertThat(uploaded.toByteArray()).isEqualTo(data);
+    assertThat(contentRanges.get(1)).isEqualTo(contentRanges.get(0));
+    assertThat(contentRanges.get(2)).isEqualTo(contentRanges.get(0));
+    assertThat(requestTimes.get(1) - requestTimes.get(0))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(100).toNanos());
+    assertThat(requestTimes.get(2) - requestTimes.get(1))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(200).toNanos());
+  }
+
+  @Test
+  void failsWhenNothingIsPersistedAfterRetries() {
+    noProgressResponses.set(Integer.MAX_VALUE);
+    PipelinedFileWriter writer = newWriter(2 * CHUNK);
+
+    assertThatThrownBy(() -> writer.writeAndClose(Unpooled.wrappedBuffer(new byte[CHUNK])).join())
+        .hasCauseInstanceOf(InvalidResponseException.class);
+    assertThat(contentRanges).hasSize(PipelinedFileWriter.MAX_NO_PROGRESS_RETRIES + 1);
+  }
+
+  @Test
+  void failuresFailWaitingAndLaterWrites() {
+    gate = new CompletableFuture<>();
+    failures.set(1);
+    PipelinedFileWriter writer = newWriter(CHUNK);
+
+    CompletableFuture<Void> waiting = writer.write(ByteBuffer.wrap(new byte[2 * CHUNK]));
+    assertThat(waiting).isNotDone();
+    CompletableFuture<Void> closed = writer.close();
+
+    gate.complete(null);
+    assertThatThrownBy(waiting::join).hasCauseInstanceOf(InvalidResponseException.class);
+    assertThatThrownBy(closed::join).hasCauseInstanceOf(InvalidResponseException.class);
+    assertThatThrownBy(() -> writer.write(ByteBuffer.wrap(new byte[1])).join())
+        .hasCauseInstanceOf(InvalidResponseException.class);
+  }
+
+  @Test
+  void blockingChannel() throws Exception {
+    PipelinedFileWriter writer = newWriter(CHUNK);
+    byte[] data = randomBytes(3 * CHUNK + 100);
+
+    try (WritableByteChannel channel = writer.newChannel()) {
+      for (int i = 0; i < data.length; i += 10000) {
+        assertThat(channel.write(ByteBuffer.wrap(data, i, Math.min(10000, data.length - i))))
+            .isEqualTo(Math.min(10000, data.length - i));
+      }
+    }
+    assertThat(uploaded.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  void blockingOutputStream() throws Exception {
+    PipelinedFileWriter writer = newWriter(CHUNK);
+    byte[] data = randomBytes(3 * CHUNK + 100);
+
+    try (OutputStream os = writer.newOutputStream()) {
+      os.write(data[0]);
+      os.write(data, 1, data.length - 1);
+    }
+    assertThat(uploaded.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  void outputStreamCanCloseWithoutAwaitingUpload() throws Exception {
+    gate = new CompletableFuture<>();
+    PipelinedFileWriter writer = newWriter(2 * CHUNK);
+    byte[] data = randomBytes(CHUNK + 100);
+
+    try (OutputStream os = writer.newOutputStream(false)) {
+      os.write(data);
+    }
+    CompletableFuture<Void> upload = writer.close();
+    assertThat(upload).isNotDone();
+
+    gate.complete(null);
+    upload.join();
+    assertThat(uploaded.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  void blockingAdaptersThrowOnFailure() {
+    failures.set(Integer.MAX_VALUE);
+    PipelinedFileWriter writer = newWriter(CHUNK);
+
+    assertThatThrownBy(
+            () -> {
+              try (OutputStream os = writer.newOutputStream()) {
+                os.write(new byte[4 * CHUNK]);
+              }
+            })
+        .isInstanceOf(IOException.class)
+        .hasCauseInstanceOf(InvalidResponseException.class);
+  }
+
+  @Test
+  void bufferMustFitAChunk() {
+    StorageClient storage =
+        new StorageClient(client, new StorageConfig.Builder().bucket("bucket").build());
+    assertThatThrownBy(
+            () ->
+                storage.createPipelinedFile(
+                    new FileRequest.Builder().name("file").build(), CHUNK - 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private PipelinedFileWriter newWriter(long maxBufferedBytes) {
+    return new PipelinedFileWriter(
+        "/upload", maxBufferedBytes, ByteBufAllocator.DEFAULT, eventLoop, client);
+  }
+
+  private HttpResponse uploadChunk(AggregatedHttpRequest req) {
+    requestTimes.add(System.nanoTime());
+    String contentRange = req.headers().get(HttpHeaderNames.CONTENT_RANGE);
+    contentRanges.add(contentRange);
+
+    if (failures.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+      return HttpResponse.of(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    if (noProgressResponses.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+      return HttpResponse.of(ResponseHeaders.of(HttpStatus.valueOf(308)));
+    }
+
+    // bytes first-last/total, bytes */total or bytes first-last/*
+    String[] rangeAndTotal = contentRange.substring("bytes ".length()).split("/", -1);
+    boolean isFinal = !rangeAndTotal[1].equals("*");
+    byte[] data = req.content().array();
+    synchronized (uploaded) {
+      int offset = 0;
+      if (!rangeAndTotal[0].equals("*")) {
+        long first = Long.parseLong(rangeAndTotal[0].substring(0, rangeAndTotal[0].indexOf('-')));
+        offset = (int) (uploaded.size() - first);
+      }
+      int length = data.length - offset;
+      if (!isFinal && partialAcknowledgements) {
+        length = Math.min(length, CHUNK);
+      }
+      uploaded.write(data, offset, length);
+      if (isFinal) {
+        return HttpResponse.of(HttpStatus.OK);
+      }
+      ResponseHeadersBuilder headers = ResponseHeaders.builder(HttpStatus.valueOf(308));
+      if (uploaded.size() > 0) {
+        headers.set(HttpHeaderNames.RANGE, "bytes=0-" + (uploaded.size() - 1));
+      }
+      return HttpResponse.of(headers.build());
+    }
+  }
+
+  private static byte[] randomBytes(int size) {
+    byte[] bytes = new byte[size];
+    new Random(size).nextBytes(bytes);
+    return bytes;
+  }
+}
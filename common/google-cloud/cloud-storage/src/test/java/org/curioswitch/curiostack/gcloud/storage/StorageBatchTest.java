@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableMap;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.server.Server;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StorageBatchTest {
+
+  private final AtomicInteger numBatchRequests = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final ConcurrentLinkedQueue<String> receivedRequests = new ConcurrentLinkedQueue<>();
+
+  private Server server;
+  private StorageClient client;
+
+  @BeforeEach
+  void setUp() {
+    server =
+        Server.builder()
+            .http(0)
+            .service(
+                "/batch/storage/v1",
+                (ctx, req) -> {
+                  numBatchRequests.incrementAndGet();
+                  maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                  String boundary = req.contentType().parameters().get("boundary").get(0);
+                  HttpResponse res =
+                      HttpResponse.delayed(
+                          HttpResponse.from(
+                              req.aggregate()
+                                  .thenApply(msg -> respond(msg.contentUtf8(), boundary))),
+                          Duration.ofMillis(50));
+                  res.whenComplete().handle((unused, t) -> inFlight.decrementAndGet());
+                  return res;
+                })
+            .build();
+    server.start().join();
+
+    client =
+        new StorageClient(
+            WebClient.of("http://127.0.0.1:" + server.activeLocalPort()),
+            new StorageConfig.Builder().bucket("bucket").batchConcurrency(2).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void splitsIntoRequests() {
+    StorageBatch batch = client.newBatch();
+    List<CompletableFuture<Void>> results = new ArrayList<>();
+    for (int i = 0; i < 450; i++) {
+      results.add(batch.delete("dir/file" + i));
+    }
+    assertThat(batch.size()).isEqualTo(450);
+
+    batch.execute().join();
+
+    assertThat(batch.size()).isZero();
+    assertThat(numBatchRequests).hasValue(5);
+    assertThat(maxInFlight.get()).isEqualTo(2);
+    assertThat(results).allMatch(f -> f.isDone() && !f.isCompletedExceptionally());
+    assertThat(receivedRequests)
+        .hasSize(450)
+        .contains(
+            "DELETE /storage/v1/b/bucket/o/dir%2Ffile0",
+            "DELETE /storage/v1/b/bucket/o/dir%2Ffile449");
+  }
+
+  @Test
+  void completesOperationsIndividually() {
+    StorageBatch batch = client.newBatch();
+    CompletableFuture<Void> deleted = batch.delete("file");
+    CompletableFuture<Void> missing = batch.delete("missing");
+    CompletableFuture<Void> updated =
+        batch.updateFileMetadata("file", ImmutableMap.of("tag", "cold"));
+
+    batch.execute().join();
+
+    assertThat(deleted).isCompleted();
+    assertThatThrownBy(missing::join)
+        .isInstanceOf(CompletionException.class)
+        .hasMessageContaining("404 Not Found");
+    assertThat(updated).isCompleted();
+    assertThat(receivedRequests)
+        .containsExactlyInAnyOrder(
+            "DELETE /storage/v1/b/bucket/o/file",
+            "DELETE /storage/v1/b/bucket/o/missing",
+            "PUT /storage/v1/b/bucket/o/file {\"name\":\"file\",\"metadata\":{\"tag\":\"cold\"}}");
+  }
+
+  // Responds to each part of a batch request, in reverse order to check matching by Content-ID.
+  private HttpResponse respond(String body, String boundary) {
+    String[] parts = body.split("--" + boundary);
+    StringBuilder response = new StringBuilder();
+    for (int i = parts.length - 2; i >= 1; i--) {
+      String part = parts[i];
+      String contentId = part.substring(part.indexOf("Content-ID: <") + "Content-ID: <".length());
+      contentId = contentId.substring(0, contentId.indexOf('>'));
+      String request = part.substring(part.indexOf("\r\n\r\n") + 4);
+      String requestLine = request.substring(0, request.indexOf(" HTTP/1.1"));
+      int requestBody = request.indexOf("\r\n\r\n");
+      receivedRequests.add((requestLine + ' ' + request.substring(requestBody + 4)).trim());
+
+      response
+          .append("--response_boundary\r\n")
+          .append("Content-Type: application/http\r\n")
+          .append("Content-ID: <response-")
+          .append(contentId)
+          .append(">\r\n\r\n");
+      if (requestLine.endsWith("/missing")) {
+        response.append("HTTP/1.1 404 Not Found\r\n\r\n{\"error\":\"not found\"}\r\n");
+      } else {
+        response.append("HTTP/1.1 204 No Content\r\nContent-Length: 0\r\n\r\n\r\n");
+      }
+    }
+    response.append("--response_boundary--\r\n");
+    return HttpResponse.of(
+        HttpStatus.OK,
+        MediaType.parse("multipart/mixed; boundary=response_boundary"),
+        response.toString());
+  }
+}
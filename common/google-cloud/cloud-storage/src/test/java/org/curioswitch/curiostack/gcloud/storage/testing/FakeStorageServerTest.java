@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage.testing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.google.common.collect.ImmutableMap;
+import com.linecorp.armeria.client.InvalidResponseException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.curioswitch.curiostack.gcloud.storage.FileStream;
+import org.curioswitch.curiostack.gcloud.storage.FileWriter;
+import org.curioswitch.curiostack.gcloud.storage.ModifiableStorageConfig;
+import org.curioswitch.curiostack.gcloud.storage.ParallelFileWriter;
+import org.curioswitch.curiostack.gcloud.storage.PipelinedFileWriter;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.FileRequest;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.ObjectInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FakeStorageServerTest {
+
+  private final byte[] contents = new byte[3 * 1024 * 1024 + 123];
+
+  private FakeStorageServer server;
+  private StorageClient client;
+
+  @BeforeEach
+  void setUp() {
+    new Random(1).nextBytes(contents);
+    server = FakeStorageServer.builder().partialAcknowledgements(true).build().start();
+    ModifiableStorageConfig config = new ModifiableStorageConfig();
+    config.setParallelReadRangeSize(1024 * 1024);
+    config.setParallelReadConcurrency(2);
+    client = server.newStorageClient(config);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @Test
+  void uploadsAndReads() throws Exception {
+    FileWriter writer = client.createFile("dir/file", ImmutableMap.of("tag", "hot")).join();
+    writer.write(ByteBuffer.wrap(contents, 0, 2 * 1024 * 1024)).get();
+    writer
+        .writeAndClose(
+            ByteBuffer.wrap(contents, 2 * 1024 * 1024, contents.length - 2 * 1024 * 1024))
+        .get();
+
+    assertThat(server.getObject("dir/file")).isEqualTo(contents);
+    assertThat(server.getObjectMetadata("dir/file")).containsEntry("tag", "hot");
+
+    ByteBuf read = client.readFile("dir/file").join();
+    assertThat(ByteBufUtil.getBytes(read)).isEqualTo(contents);
+    read.release();
+
+    FileStream range = client.readFileStream("dir/file", 1000, 2000).join();
+    assertThat(range.size()).isEqualTo(contents.length);
+    byte[] rangeContents =
+        range.content().collect().join().stream()
+            .map(data -> data.array())
+            .reduce(
+                new byte[0],
+                (a, b) -> {
+                  byte[] joined = Arrays.copyOf(a, a.length + b.length);
+                  System.arraycopy(b, 0, joined, a.length, b.length);
+                  return joined;
+                });
+    assertThat(rangeContents).isEqualTo(Arrays.copyOfRange(contents, 1000, 3000));
+
+    client.updateFileMetadata("dir/file", ImmutableMap.of("tag", "cold")).join();
+    assertThat(server.getObjectMetadata("dir/file")).containsExactly(entry("tag", "cold"));
+
+    client.delete("dir/file").join();
+    assertThat(server.getObject("dir/file")).isNull();
+    assertThat(client.readFile("dir/file").join()).isNull();
+  }
+
+  @Test
+  void pipelinedAndParallelWriters() {
+    PipelinedFileWriter pipelined =
+        client
+            .createPipelinedFile(new FileRequest.Builder().name("pipelined").build(), 1024 * 1024)
+            .join();
+    pipelined.writeAndClose(Unpooled.wrappedBuffer(contents)).join();
+    assertThat(server.getObject("pipelined")).isEqualTo(contents);
+
+    ParallelFileWriter parallel =
+        client.createParallelFile(
+            new FileRequest.Builder().name("parallel").build(), 512 * 1024, 4);
+    parallel.writeAndClose(Unpooled.wrappedBuffer(contents)).join();
+    assertThat(server.getObject("parallel")).isEqualTo(contents);
+    assertThat(server.objectNames()).containsExactly("parallel", "pipelined");
+
+    ByteBuf read =
+        client
+            .readFileParallel("parallel")
+            .thenCompose(stream -> stream.content().collect())
+            .join()
+            .stream()
+            .map(data -> Unpooled.wrappedBuffer(data.array()))
+            .reduce(Unpooled.buffer(), (a, b) -> a.writeBytes(b));
+    assertThat(ByteBufUtil.getBytes(read)).isEqualTo(contents);
+  }
+
+  @Test
+  void injectsFailures() {
+    server.putObject("file", contents);
+    server.failNextRequests(1);
+
+    assertThatThrownBy(() -> client.readFile("file").join())
+        .hasCauseInstanceOf(InvalidResponseException.class);
+    ByteBuf read = client.readFile("file").join();
+    assertThat(ByteBufUtil.getBytes(read)).isEqualTo(contents);
+    read.release();
+    assertThat(server.numRequests()).isEqualTo(2);
+  }
+
+  @Test
+  void parallelFileCleanedUpOnFailure() {
+    server.failNextRequests(1);
+
+    ParallelFileWriter parallel =
+        client.createParallelFile(
+            new FileRequest.Builder().name("parallel").build(), 512 * 1024, 2);
+    assertThatThrownBy(() -> parallel.writeAndClose(Unpooled.wrappedBuffer(contents)).join())
+        .hasMessageContaining("503");
+    assertThat(server.objectNames()).isEmpty();
+  }
+
+  @Test
+  void listsObjects() {
+    for (String name : new String[] {"a/1", "a/2", "a/b/1", "a/b/2", "a/c/1", "b/1"}) {
+      server.putObject(name, new byte[] {1});
+    }
+
+    List<String> names =
+        client.listObjects("a/", "/").collect().join().stream()
+            .map(ObjectInfo::getName)
+            .collect(Collectors.toList());
+    assertThat(names).containsExactly("a/b/", "a/c/", "a/1", "a/2");
+    assertThat(client.listObjects("", "").collect().join()).hasSize(6);
+  }
+}
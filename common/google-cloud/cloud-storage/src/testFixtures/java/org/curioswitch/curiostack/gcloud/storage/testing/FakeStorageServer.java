@@ -0,0 +1,653 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gcloud.storage.testing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Ints;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpRequest;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.ResponseHeadersBuilder;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+import javax.annotation.Nullable;
+import org.curioswitch.curiostack.gcloud.storage.ModifiableStorageConfig;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient;
+
+/**
+ * An in-memory fake of the Cloud Storage JSON API, for testing and benchmarking {@link
+ * StorageClient} without a real bucket. Resumable uploads, media downloads with ranges, metadata,
+ * compose, delete and list are supported for a single bucket, with optional injected latency and
+ * failures. Only the behavior {@link StorageClient} relies on is implemented, e.g., authentication,
+ * preconditions other than generations and {@code If-None-Match}, and the {@code fields} projection
+ * are ignored.
+ *
+ * <pre>{@code
+ * try (FakeStorageServer server = FakeStorageServer.builder().build().start()) {
+ *   StorageClient client = server.newStorageClient();
+ *   ...
+ * }
+ * }</pre>
+ */
+public final class FakeStorageServer implements AutoCloseable {
+
+  /** Returns a new {@link Builder} of a {@link FakeStorageServer}. */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** A builder of {@link FakeStorageServer}. */
+  public static final class Builder {
+    private String bucket = "bucket";
+    private Duration latency = Duration.ZERO;
+    private double failureRate;
+    private boolean partialAcknowledgements;
+
+    private Builder() {}
+
+    /** The name of the bucket to serve. Defaults to {@code bucket}. */
+    public Builder bucket(String bucket) {
+      this.bucket = bucket;
+      return this;
+    }
+
+    /** The latency to add to every response. Defaults to none. */
+    public Builder latency(Duration latency) {
+      checkArgument(!latency.isNegative(), "latency must not be negative.");
+      this.latency = latency;
+      return this;
+    }
+
+    /**
+     * The fraction of requests, between 0 and 1, that fail with {@code 503 Service Unavailable}.
+     * Defaults to 0.
+     */
+    public Builder failureRate(double failureRate) {
+      checkArgument(failureRate >= 0 && failureRate <= 1, "failureRate must be between 0 and 1.");
+      this.failureRate = failureRate;
+      return this;
+    }
+
+    /**
+     * Whether to only persist part of the data of non-final resumable upload requests, as cloud
+     * storage is allowed to, acknowledging the persisted range with {@code 308 Resume Incomplete}.
+     * Defaults to {@code false}.
+     */
+    public Builder partialAcknowledgements(boolean partialAcknowledgements) {
+      this.partialAcknowledgements = partialAcknowledgements;
+      return this;
+    }
+
+    /** Returns a new {@link FakeStorageServer}, which must be started with {@link #start()}. */
+    public FakeStorageServer build() {
+      return new FakeStorageServer(this);
+    }
+  }
+
+  // All chunks of a resumable upload must be a multiple of 256KB except the last one.
+  private static final int CHUNK_ALIGNMENT = 256 * 1024;
+
+  private static final int DEFAULT_MAX_RESULTS = 1000;
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final String bucket;
+  private final Duration latency;
+  private final double failureRate;
+  private final boolean partialAcknowledgements;
+
+  private final String objectsPath;
+  private final String uploadPath;
+
+  private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+  private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+  private final AtomicLong nextGeneration = new AtomicLong(1);
+  private final AtomicLong nextUploadId = new AtomicLong();
+  private final AtomicInteger numRequests = new AtomicInteger();
+  private final AtomicInteger pendingFailures = new AtomicInteger();
+
+  private final Server server;
+
+  private FakeStorageServer(Builder builder) {
+    bucket = builder.bucket;
+    latency = builder.latency;
+    failureRate = builder.failureRate;
+    partialAcknowledgements = builder.partialAcknowledgements;
+
+    objectsPath = "/storage/v1/b/" + bucket + "/o";
+    uploadPath = "/upload/storage/v1/b/" + bucket + "/o";
+
+    server =
+        Server.builder()
+            .http(0)
+            .maxRequestLength(0)
+            .requestTimeout(Duration.ZERO)
+            .serviceUnder("/", this::serve)
+            .build();
+  }
+
+  /** Starts the server, returning this for chaining. */
+  public FakeStorageServer start() {
+    server.start().join();
+    return this;
+  }
+
+  /** Stops the server. */
+  @Override
+  public void close() {
+    server.stop().join();
+  }
+
+  /** Returns the URI of the server, e.g., {@code http://127.0.0.1:12345}. */
+  public String uri() {
+    checkState(server.activePorts().size() > 0, "Server is not started.");
+    return "http://127.0.0.1:" + server.activeLocalPort();
+  }
+
+  /** Returns a new {@link WebClient} for the server without limits on response sizes. */
+  public WebClient newWebClient() {
+    return WebClient.builder(uri()).maxResponseLength(0).responseTimeout(Duration.ZERO).build();
+  }
+
+  /** Returns a new {@link StorageClient} of the server's bucket. */
+  public StorageClient newStorageClient() {
+    return newStorageClient(new ModifiableStorageConfig());
+  }
+
+  /**
+   * Returns a new {@link StorageClient} of the server's bucket, with other configuration from
+   * {@code config}.
+   */
+  public StorageClient newStorageClient(ModifiableStorageConfig config) {
+    config.setBucket(bucket);
+    return new StorageClient(newWebClient(), config.toImmutable());
+  }
+
+  /** Fails the next {@code count} requests with {@code 503 Service Unavailable}. */
+  public void failNextRequests(int count) {
+    pendingFailures.set(count);
+  }
+
+  /** Returns the total number of requests received by the server. */
+  public int numRequests() {
+    return numRequests.get();
+  }
+
+  /** Stores an object in the bucket, replacing any existing object with the same name. */
+  public void putObject(String name, byte[] content) {
+    putObject(name, content, ImmutableMap.of());
+  }
+
+  /** Stores an object in the bucket, replacing any existing object with the same name. */
+  public void putObject(String name, byte[] content, Map<String, String> metadata) {
+    objects.put(name, newObject(content, "", metadata));
+  }
+
+  /** Returns the content of the object with the {@code name}, or {@code null} if not found. */
+  @Nullable
+  public byte[] getObject(String name) {
+    StoredObject object = objects.get(name);
+    return object != null ? object.content : null;
+  }
+
+  /** Returns the metadata of the object with the {@code name}, or {@code null} if not found. */
+  @Nullable
+  public Map<String, String> getObjectMetadata(String name) {
+    StoredObject object = objects.get(name);
+    return object != null ? object.metadata : null;
+  }
+
+  /** Returns the names of all objects in the bucket, in lexicographical order. */
+  public Set<String> objectNames() {
+    return objects.keySet();
+  }
+
+  private HttpResponse serve(ServiceRequestContext ctx, HttpRequest req) {
+    numRequests.incrementAndGet();
+
+    final HttpResponse res;
+    if (pendingFailures.getAndUpdate(count -> Math.max(0, count - 1)) > 0
+        || (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate)) {
+      res = HttpResponse.of(HttpStatus.SERVICE_UNAVAILABLE);
+    } else {
+      res =
+          HttpResponse.of(
+              req.aggregate()
+                  .thenApply(
+                      msg -> {
+                        try {
+                          return handle(ctx, msg);
+                        } catch (IOException e) {
+                          return HttpResponse.of(
+                              HttpStatus.BAD_REQUEST, MediaType.PLAIN_TEXT_UTF_8, e.getMessage());
+                        }
+                      }));
+    }
+    return latency.isZero() ? res : HttpResponse.delayed(res, latency, ctx.eventLoop());
+  }
+
+  private HttpResponse handle(ServiceRequestContext ctx, AggregatedHttpRequest req)
+      throws IOException {
+    String path = ctx.path();
+    HttpMethod method = req.method();
+    if (path.equals(uploadPath)) {
+      String uploadId = ctx.queryParam("upload_id");
+      if (method == HttpMethod.POST && uploadId == null) {
+        return startUpload(req);
+      }
+      if (method == HttpMethod.PUT && uploadId != null) {
+        return uploadChunk(uploadId, req);
+      }
+    } else if (path.equals(objectsPath)) {
+      if (method == HttpMethod.GET) {
+        return list(ctx);
+      }
+    } else if (path.startsWith(objectsPath + '/')) {
+      String encodedName = path.substring(objectsPath.length() + 1);
+      if (method == HttpMethod.POST && encodedName.endsWith("/compose")) {
+        return compose(
+            decode(encodedName.substring(0, encodedName.length() - "/compose".length())), req);
+      }
+      String name = decode(encodedName);
+      switch (method) {
+        case GET:
+          return "media".equals(ctx.queryParam("alt"))
+              ? download(name, ctx, req)
+              : objectResponse(name, objects.get(name));
+        case DELETE:
+          return objects.remove(name) != null
+              ? HttpResponse.of(HttpStatus.NO_CONTENT)
+              : HttpResponse.of(HttpStatus.NOT_FOUND);
+        case PUT:
+        case POST:
+          return updateMetadata(name, req, false);
+        case PATCH:
+          return updateMetadata(name, req, true);
+        default:
+      }
+    }
+    return HttpResponse.of(HttpStatus.NOT_FOUND);
+  }
+
+  private HttpResponse startUpload(AggregatedHttpRequest req) throws IOException {
+    JsonNode resource = OBJECT_MAPPER.readTree(req.content().array());
+    String name = resource.path("name").asText();
+    if (name.isEmpty()) {
+      throw new IOException("Object name is required.");
+    }
+    String uploadId = Long.toString(nextUploadId.incrementAndGet());
+    uploads.put(
+        uploadId, new Upload(name, resource.path("contentType").asText(""), metadata(resource)));
+    return HttpResponse.of(
+        ResponseHeaders.of(
+            HttpStatus.OK,
+            HttpHeaderNames.LOCATION,
+            "https://www.googleapis.com"
+                + uploadPath
+                + "?uploadType=resumable&upload_id="
+                + uploadId));
+  }
+
+  private HttpResponse uploadChunk(String uploadId, AggregatedHttpRequest req) throws IOException {
+    Upload upload = uploads.get(uploadId);
+    if (upload == null) {
+      return HttpResponse.of(HttpStatus.NOT_FOUND);
+    }
+    String contentRange = req.headers().get(HttpHeaderNames.CONTENT_RANGE);
+    if (contentRange == null || !contentRange.startsWith("bytes ")) {
+      throw new IOException("Invalid Content-Range: " + contentRange);
+    }
+    // bytes first-last/total, bytes */total or bytes first-last/*
+    String[] rangeAndTotal = contentRange.substring("bytes ".length()).split("/", -1);
+    byte[] data = req.content().array();
+    boolean isFinal = !rangeAndTotal[1].equals("*");
+
+    synchronized (upload) {
+      int offset = 0;
+      if (!rangeAndTotal[0].equals("*")) {
+        long first = Long.parseLong(rangeAndTotal[0].substring(0, rangeAndTotal[0].indexOf('-')));
+        if (first > upload.data.size()) {
+          throw new IOException("Upload is missing data before " + first);
+        }
+        // Data that was already persisted is resent after partial acknowledgements.
+        offset = (int) Math.min(data.length, upload.data.size() - first);
+      }
+      int length = data.length - offset;
+      if (!isFinal) {
+        if (length % CHUNK_ALIGNMENT != 0) {
+          throw new IOException("Non-final chunks must be a multiple of 256KB.");
+        }
+        if (partialAcknowledgements && length > CHUNK_ALIGNMENT) {
+          length = length / 2 / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT;
+        }
+      }
+      upload.data.write(data, offset, length);
+
+      if (!isFinal) {
+        ResponseHeadersBuilder headers = ResponseHeaders.builder(HttpStatus.valueOf(308));
+        if (upload.data.size() > 0) {
+          headers.set(HttpHeaderNames.RANGE, "bytes=0-" + (upload.data.size() - 1));
+        }
+        return HttpResponse.of(headers.build());
+      }
+
+      if (upload.data.size() != Long.parseLong(rangeAndTotal[1])) {
+        throw new IOException(
+            "Upload size " + upload.data.size() + " does not match " + rangeAndTotal[1]);
+      }
+      StoredObject object =
+          newObject(upload.data.toByteArray(), upload.contentType, upload.metadata);
+      String hash = req.headers().get("x-goog-hash");
+      if (hash != null
+          && hash.startsWith("crc32c=")
+          && !hash.substring("crc32c=".length()).equals(object.crc32c)) {
+        uploads.remove(uploadId);
+        throw new IOException("Provided CRC32C " + hash + " doesn't match " + object.crc32c);
+      }
+      uploads.remove(uploadId);
+      objects.put(upload.name, object);
+      return objectResponse(upload.name, object);
+    }
+  }
+
+  private HttpResponse download(String name, ServiceRequestContext ctx, AggregatedHttpRequest req) {
+    StoredObject object = objects.get(name);
+    String generation = ctx.queryParam("generation");
+    if (object == null || (generation != null && Long.parseLong(generation) != object.generation)) {
+      return HttpResponse.of(HttpStatus.NOT_FOUND);
+    }
+    if (object.etag().equals(req.headers().get(HttpHeaderNames.IF_NONE_MATCH))) {
+      return HttpResponse.of(
+          ResponseHeaders.of(HttpStatus.NOT_MODIFIED, HttpHeaderNames.ETAG, object.etag()));
+    }
+
+    int size = object.content.length;
+    int first = 0;
+    int last = size - 1;
+    ResponseHeadersBuilder headers;
+    String range = req.headers().get(HttpHeaderNames.RANGE);
+    if (range != null && range.startsWith("bytes=") && size > 0) {
+      String[] firstAndLast = range.substring("bytes=".length()).split("-", -1);
+      if (firstAndLast[0].isEmpty()) {
+        first = Math.max(0, size - Integer.parseInt(firstAndLast[1]));
+      } else {
+        first = (int) Math.min(Long.parseLong(firstAndLast[0]), Integer.MAX_VALUE);
+        if (!firstAndLast[1].isEmpty()) {
+          last = (int) Math.min(Long.parseLong(firstAndLast[1]), last);
+        }
+      }
+      if (first >= size) {
+        return HttpResponse.of(
+            ResponseHeaders.of(
+                HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE,
+                HttpHeaderNames.CONTENT_RANGE,
+                "bytes */" + size));
+      }
+      headers =
+          ResponseHeaders.builder(HttpStatus.PARTIAL_CONTENT)
+              .set(HttpHeaderNames.CONTENT_RANGE, "bytes " + first + '-' + last + '/' + size);
+    } else {
+      headers = ResponseHeaders.builder(HttpStatus.OK);
+    }
+    headers
+        .contentType(
+            object.contentType.isEmpty()
+                ? MediaType.OCTET_STREAM
+                : MediaType.parse(object.contentType))
+        .contentLength(last - first + 1)
+        .set(HttpHeaderNames.ETAG, object.etag())
+        .set("x-goog-generation", Long.toString(object.generation))
+        .set("x-goog-stored-content-length", Integer.toString(size))
+        .set("x-goog-hash", "crc32c=" + object.crc32c);
+    return HttpResponse.of(headers.build(), HttpData.wrap(object.content, first, last - first + 1));
+  }
+
+  private HttpResponse updateMetadata(String name, AggregatedHttpRequest req, boolean patch)
+      throws IOException {
+    JsonNode resource = OBJECT_MAPPER.readTree(req.content().array());
+    StoredObject updated =
+        objects.computeIfPresent(
+            name,
+            (unused, object) -> {
+              Map<String, String> metadata = new LinkedHashMap<>();
+              if (patch) {
+                metadata.putAll(object.metadata);
+              }
+              metadata.putAll(metadata(resource));
+              return new StoredObject(
+                  object.content,
+                  object.generation,
+                  resource.path("contentType").asText(object.contentType),
+                  metadata,
+                  object.crc32c,
+                  Instant.now());
+            });
+    return objectResponse(name, updated);
+  }
+
+  private HttpResponse compose(String name, AggregatedHttpRequest req) throws IOException {
+    JsonNode request = OBJECT_MAPPER.readTree(req.content().array());
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    for (JsonNode source : request.path("sourceObjects")) {
+      StoredObject object = objects.get(source.path("name").asText());
+      if (object == null) {
+        return HttpResponse.of(HttpStatus.NOT_FOUND);
+      }
+      content.write(object.content);
+    }
+    JsonNode destination = request.path("destination");
+    StoredObject object =
+        newObject(
+            content.toByteArray(),
+            destination.path("contentType").asText(""),
+            metadata(destination));
+    objects.put(name, object);
+    return objectResponse(name, object);
+  }
+
+  private HttpResponse list(ServiceRequestContext ctx) throws JsonProcessingException {
+    String prefix = ctx.queryParams().get("prefix", "");
+    String delimiter = ctx.queryParams().get("delimiter", "");
+    String pageToken = ctx.queryParam("pageToken");
+    int maxResults = ctx.queryParams().getInt("maxResults", DEFAULT_MAX_RESULTS);
+
+    List<Map<String, Object>> items = new ArrayList<>();
+    Set<String> prefixes = new LinkedHashSet<>();
+    String nextPageToken = null;
+    for (Map.Entry<String, StoredObject> entry :
+        objects.tailMap(pageToken != null ? pageToken : prefix, true).entrySet()) {
+      String name = entry.getKey();
+      if (!name.startsWith(prefix)) {
+        break;
+      }
+      String commonPrefix = null;
+      if (!delimiter.isEmpty()) {
+        int index = name.indexOf(delimiter, prefix.length());
+        if (index >= 0) {
+          commonPrefix = name.substring(0, index + delimiter.length());
+          if (prefixes.contains(commonPrefix)) {
+            continue;
+          }
+        }
+      }
+      if (items.size() + prefixes.size() == maxResults) {
+        nextPageToken = name;
+        break;
+      }
+      if (commonPrefix != null) {
+        prefixes.add(commonPrefix);
+      } else {
+        items.add(resource(name, entry.getValue()));
+      }
+    }
+
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("kind", "storage#objects");
+    if (nextPageToken != null) {
+      response.put("nextPageToken", nextPageToken);
+    }
+    if (!prefixes.isEmpty()) {
+      response.put("prefixes", prefixes);
+    }
+    if (!items.isEmpty()) {
+      response.put("items", items);
+    }
+    return HttpResponse.of(
+        HttpStatus.OK, MediaType.JSON_UTF_8, OBJECT_MAPPER.writeValueAsBytes(response));
+  }
+
+  private HttpResponse objectResponse(String name, @Nullable StoredObject object) {
+    if (object == null) {
+      return HttpResponse.of(HttpStatus.NOT_FOUND);
+    }
+    try {
+      return HttpResponse.of(
+          HttpStatus.OK,
+          MediaType.JSON_UTF_8,
+          OBJECT_MAPPER.writeValueAsBytes(resource(name, object)));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException("Could not serialize object.", e);
+    }
+  }
+
+  private Map<String, Object> resource(String name, StoredObject object) {
+    Map<String, Object> resource = new LinkedHashMap<>();
+    resource.put("kind", "storage#object");
+    resource.put("name", name);
+    resource.put("bucket", bucket);
+    resource.put("generation", Long.toString(object.generation));
+    resource.put("size", Integer.toString(object.content.length));
+    if (!object.contentType.isEmpty()) {
+      resource.put("contentType", object.contentType);
+    }
+    resource.put("etag", object.etag());
+    resource.put("crc32c", object.crc32c);
+    resource.put("updated", object.updated.toString());
+    if (!object.metadata.isEmpty()) {
+      resource.put("metadata", object.metadata);
+    }
+    return resource;
+  }
+
+  private StoredObject newObject(byte[] content, String contentType, Map<String, String> metadata) {
+    CRC32C crc32c = new CRC32C();
+    crc32c.update(content);
+    return new StoredObject(
+        content,
+        nextGeneration.getAndIncrement(),
+        contentType,
+        metadata,
+        Base64.getEncoder().encodeToString(Ints.toByteArray((int) crc32c.getValue())),
+        Instant.now());
+  }
+
+  private static Map<String, String> metadata(JsonNode resource) {
+    Map<String, String> metadata = new LinkedHashMap<>();
+    resource
+        .path("metadata")
+        .fields()
+        .forEachRemaining(e -> metadata.put(e.getKey(), e.getValue().asText()));
+    return metadata;
+  }
+
+  private static String decode(String pathSegment) {
+    // URLDecoder decodes form encoding, where '+' is a space, unlike in paths.
+    return URLDecoder.decode(pathSegment.replace("+", "%2B"), StandardCharsets.UTF_8);
+  }
+
+  private static final class StoredObject {
+    private final byte[] content;
+    private final long generation;
+    private final String contentType;
+    private final Map<String, String> metadata;
+    private final String crc32c;
+    private final Instant updated;
+
+    private StoredObject(
+        byte[] content,
+        long generation,
+        String contentType,
+        Map<String, String> metadata,
+        String crc32c,
+        Instant updated) {
+      this.content = content;
+      this.generation = generation;
+      this.contentType = contentType;
+      this.metadata = ImmutableMap.copyOf(metadata);
+      this.crc32c = crc32c;
+      this.updated = updated;
+    }
+
+    private String etag() {
+      return "\"" + generation + '-' + crc32c + '"';
+    }
+  }
+
+  private static final class Upload {
+    private final String name;
+    private final String contentType;
+    private final Map<String, String> metadata;
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    private Upload(String name, String contentType, Map<String, String> metadata) {
+      this.name = name;
+      this.contentType = contentType;
+      this.metadata = metadata;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.curioswitch.gcloud.pubsub.Subscriber.SubscriberOptions;
+import org.curioswitch.gcloud.pubsub.testing.FakePubSubServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures end-to-end throughput and latency of {@link Publisher} and {@link Subscriber} against a
+ * {@link FakePubSubServer}, for each {@link ClientConfig}. {@link #throughput()} publishes a burst
+ * of messages and waits for all of them to be received, so the reported ops/s is messages/s. {@link
+ * #latency()} publishes a single message and waits for it to be received, sampling the time from
+ * publish to receipt. The injected latency approximates the round trip to Cloud Pub/Sub.
+ */
+@State(Scope.Benchmark)
+public class PubSubBenchmark {
+
+  /** A configuration of the {@link Subscriber}. */
+  public enum ClientConfig {
+    /** The default options, processing messages on the event loop. */
+    DEFAULT,
+    /** Four {@code streamingPull} streams. */
+    PARALLEL_PULL,
+    /** Processing messages on a thread pool. */
+    EXECUTOR,
+    /** Without copying message payloads out of network buffers. */
+    UNSAFE_WRAP_BUFFERS,
+    /** Processing messages serially per ordering key, with 16 ordering keys. */
+    ORDERED_DELIVERY,
+  }
+
+  private static final String TOPIC = "projects/benchmark/topics/topic";
+  private static final String SUBSCRIPTION = "projects/benchmark/subscriptions/subscription";
+
+  private static final int NUM_MESSAGES = 1000;
+  private static final int MESSAGE_SIZE = 1024;
+  private static final int NUM_ORDERING_KEYS = 16;
+
+  @Param private ClientConfig config;
+
+  @Param({"0", "5"})
+  private int latencyMillis;
+
+  private FakePubSubServer server;
+  private Publisher publisher;
+  private Subscriber subscriber;
+  @Nullable private ExecutorService executor;
+
+  private PubsubMessage[] messages;
+
+  private volatile CountDownLatch received = new CountDownLatch(0);
+
+  @Setup
+  public void setUp() {
+    server = FakePubSubServer.builder().latency(Duration.ofMillis(latencyMillis)).build().start();
+    server.createTopic(TOPIC);
+    server.createSubscription(SUBSCRIPTION, TOPIC, config == ClientConfig.ORDERED_DELIVERY);
+
+    SubscriberOptions.Builder options =
+        Subscriber.newOptions(
+            SUBSCRIPTION,
+            (message, reply) -> {
+              reply.ack();
+              received.countDown();
+            });
+    switch (config) {
+      case PARALLEL_PULL:
+        options.parallelPullCount(4);
+        break;
+      case EXECUTOR:
+        executor = Executors.newFixedThreadPool(4);
+        options.executor(executor);
+        break;
+      case UNSAFE_WRAP_BUFFERS:
+        options.unsafeWrapBuffers(true);
+        break;
+      case ORDERED_DELIVERY:
+        executor = Executors.newFixedThreadPool(4);
+        options.executor(executor).orderedDelivery(true);
+        break;
+      default:
+    }
+    subscriber = server.newSubscriber(options.build());
+    subscriber.start();
+
+    publisher = server.newPublisher(Publisher.newOptions(TOPIC).build());
+
+    byte[] payload = new byte[MESSAGE_SIZE];
+    new Random(1).nextBytes(payload);
+    messages = new PubsubMessage[NUM_MESSAGES];
+    for (int i = 0; i < NUM_MESSAGES; i++) {
+      PubsubMessage.Builder message =
+          PubsubMessage.newBuilder().setData(ByteString.copyFrom(payload));
+      if (config == ClientConfig.ORDERED_DELIVERY) {
+        message.setOrderingKey("key-" + i % NUM_ORDERING_KEYS);
+      }
+      messages[i] = message.build();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    subscriber.close();
+    if (executor != null) {
+      executor.shutdown();
+    }
+    server.close();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(NUM_MESSAGES)
+  public void throughput() throws InterruptedException {
+    CountDownLatch received = new CountDownLatch(NUM_MESSAGES);
+    this.received = received;
+    for (PubsubMessage message : messages) {
+      publisher.publish(message);
+    }
+    publisher.flush();
+    received.await();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void latency() throws InterruptedException {
+    CountDownLatch received = new CountDownLatch(1);
+    this.received = received;
+    publisher.publish(messages[0]);
+    publisher.flush();
+    received.await();
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import brave.Tracing;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.SubscriberGrpc;
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.util.SafeCloseable;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.curioswitch.gcloud.pubsub.Subscriber.SubscriberOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-message overhead of {@link Subscriber} dispatching received messages to each
+ * kind of receiver, which acks them right away. Responses are passed directly to the {@link
+ * Subscriber}'s stream through an in-memory {@link Channel}, so only the subscriber is measured.
+ * Run with {@code -prof gc} to compare the bytes allocated per message, {@code gc.alloc.rate.norm}.
+ * Messages are published by an unsampled trace, as is typical in production.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SubscriberAllocationBenchmark {
+
+  /** The kind of receiver to process messages with. */
+  public enum ReceiverType {
+    MESSAGE_RECEIVER,
+    BYTE_BUFFER_MESSAGE_RECEIVER,
+  }
+
+  private static final int MESSAGES_PER_RESPONSE = 100;
+
+  @Param private ReceiverType receiverType;
+
+  @Param({"1024"})
+  private int messageSize;
+
+  private Blackhole blackhole;
+  private DirectChannel channel;
+  private Tracing tracing;
+  private Subscriber subscriber;
+  private StreamingPullResponse response;
+  private ClientRequestContext ctx;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    this.blackhole = blackhole;
+
+    final SubscriberOptions.Builder options;
+    switch (receiverType) {
+      case MESSAGE_RECEIVER:
+        options =
+            Subscriber.newOptions(
+                "projects/benchmark/subscriptions/subscription",
+                (message, reply) -> {
+                  this.blackhole.consume(message.getData().asReadOnlyByteBuffer());
+                  reply.ack();
+                });
+        break;
+      case BYTE_BUFFER_MESSAGE_RECEIVER:
+        options =
+            Subscriber.newOptions(
+                "projects/benchmark/subscriptions/subscription",
+                (message, data, reply) -> {
+                  this.blackhole.consume(data);
+                  reply.ack();
+                });
+        break;
+      default:
+        throw new IllegalStateException("Unknown receiver type: " + receiverType);
+    }
+
+    channel = new DirectChannel();
+    tracing = Tracing.newBuilder().build();
+    subscriber =
+        new Subscriber(
+            SubscriberGrpc.newStub(channel),
+            Optional.empty(),
+            tracing,
+            options.maxOutstandingMessages(0).maxOutstandingBytes(0).build());
+    subscriber.start();
+
+    byte[] payload = new byte[messageSize];
+    new Random(1).nextBytes(payload);
+    StreamingPullResponse.Builder response = StreamingPullResponse.newBuilder();
+    for (int i = 0; i < MESSAGES_PER_RESPONSE; i++) {
+      response.addReceivedMessages(
+          ReceivedMessage.newBuilder()
+              .setAckId("ack-" + i)
+              .setMessage(
+                  PubsubMessage.newBuilder()
+                      .setData(ByteString.copyFrom(payload))
+                      .setMessageId(Integer.toString(i))
+                      .putAttributes("b3", "80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1-0")));
+    }
+    this.response = response.build();
+
+    ctx = ClientRequestContext.of(HttpRequest.of(HttpMethod.POST, "/"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    subscriber.close();
+    tracing.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_RESPONSE)
+  public void receive() {
+    try (SafeCloseable ignored = ctx.push()) {
+      channel.listener.onMessage(response);
+    }
+  }
+
+  /** A {@link Channel} whose calls are driven directly through their listener. */
+  private static class DirectChannel extends Channel {
+
+    @Nullable private ClientCall.Listener<StreamingPullResponse> listener;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+        MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+      return new ClientCall<>() {
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+          listener = (Listener<StreamingPullResponse>) responseListener;
+        }
+
+        @Override
+        public void request(int numMessages) {}
+
+        @Override
+        public void cancel(@Nullable String message, @Nullable Throwable cause) {}
+
+        @Override
+        public void halfClose() {}
+
+        @Override
+        public void sendMessage(ReqT message) {}
+      };
+    }
+
+    @Override
+    public String authority() {
+      return "pubsub.googleapis.com";
+    }
+  }
+}
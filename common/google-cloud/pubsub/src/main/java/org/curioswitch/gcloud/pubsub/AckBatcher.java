@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import com.google.pubsub.v1.StreamingPullRequest;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.netty.channel.EventLoop;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Coalesces acks and ack deadline modifications of a {@link Subscriber} into batched {@link
+ * StreamingPullRequest}s. A batch is sent when it reaches a maximum number of ack IDs or bytes, or
+ * when the batch window has passed since the first ack ID was added. Ack IDs stay valid across
+ * streams of a subscription, so a batch added while the stream is reconnecting is sent on the next
+ * stream, after the initial request that opens it. The batcher owns the request side of the stream
+ * and sends every request while holding its lock, so requests are never sent concurrently. Once
+ * closed, acks are dropped and Cloud Pub/Sub redelivers the messages after their deadline.
+ */
+final class AckBatcher {
+
+  // Ack IDs are length-delimited strings, this is an upper bound of the overhead of each.
+  private static final int ACK_ID_OVERHEAD_BYTES = 4;
+
+  private final EventLoop eventLoop;
+  private final Duration window;
+  private final int maxAckIds;
+  private final long maxBytes;
+  private final Counter ackRequests;
+
+  // Guarded by this, null while the stream is not open.
+  @Nullable private StreamObserver<StreamingPullRequest> requestObserver;
+
+  // Guarded by this.
+  private StreamingPullRequest.Builder pending = StreamingPullRequest.newBuilder();
+  private int pendingAckIds;
+  private long pendingBytes;
+  private boolean pendingDeadlineChange;
+  @Nullable private ScheduledFuture<?> flushTimer;
+  private boolean closed;
+
+  AckBatcher(
+      EventLoop eventLoop, Duration window, int maxAckIds, long maxBytes, Counter ackRequests) {
+    this.eventLoop = eventLoop;
+    this.window = window;
+    this.maxAckIds = maxAckIds;
+    this.maxBytes = maxBytes;
+    this.ackRequests = ackRequests;
+  }
+
+  /**
+   * Starts sending batches to a newly opened stream. The {@code initialRequest} is sent first,
+   * followed by any batch added while there was no open stream.
+   */
+  void open(
+      StreamObserver<StreamingPullRequest> requestObserver, StreamingPullRequest initialRequest) {
+    synchronized (this) {
+      if (closed) {
+        // Closed while reconnecting.
+        requestObserver.onCompleted();
+        return;
+      }
+      requestObserver.onNext(initialRequest);
+      this.requestObserver = requestObserver;
+    }
+    flush();
+  }
+
+  /** Holds batches until the next {@link #open}, e.g., because the stream failed. */
+  synchronized void detach() {
+    requestObserver = null;
+  }
+
+  /**
+   * Sends the pending batch and completes the stream. Acks added after closing are dropped. Returns
+   * {@code false} if there was no open stream to complete.
+   */
+  boolean close() {
+    synchronized (this) {
+      flush();
+      closed = true;
+      if (flushTimer != null) {
+        flushTimer.cancel(false);
+        flushTimer = null;
+      }
+      // Only left if there was no open stream to send it to.
+      pending = StreamingPullRequest.newBuilder();
+      pendingAckIds = 0;
+      pendingBytes = 0;
+      pendingDeadlineChange = false;
+      if (requestObserver == null) {
+        return false;
+      }
+      requestObserver.onCompleted();
+      requestObserver = null;
+      return true;
+    }
+  }
+
+  /** Adds an ack of the message with {@code ackId}. */
+  void ack(String ackId) {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      pending.addAckIds(ackId);
+      added(ackId);
+    }
+    maybeFlush();
+  }
+
+  /**
+   * Adds a modification of the ack deadline of the message with {@code ackId}. A deadline of zero
+   * is a nack.
+   */
+  void modifyDeadline(String ackId, int seconds) {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      pending.addModifyDeadlineAckIds(ackId).addModifyDeadlineSeconds(seconds);
+      added(ackId);
+    }
+    maybeFlush();
+  }
+
+  /** Changes the ack deadline of the stream, sent immediately along with any pending batch. */
+  void streamAckDeadline(int seconds) {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      pending.setStreamAckDeadlineSeconds(seconds);
+      pendingDeadlineChange = true;
+    }
+    flush();
+  }
+
+  /** Sends the pending batch immediately, e.g., because the stream is closing. */
+  void flush() {
+    final StreamingPullRequest request;
+    synchronized (this) {
+      if (pendingAckIds == 0 && !pendingDeadlineChange) {
+        return;
+      }
+      if (requestObserver == null) {
+        // Not open yet, will be flushed when opened.
+        return;
+      }
+      request = pending.build();
+      pending = StreamingPullRequest.newBuilder();
+      pendingAckIds = 0;
+      pendingBytes = 0;
+      pendingDeadlineChange = false;
+      if (flushTimer != null) {
+        flushTimer.cancel(false);
+        flushTimer = null;
+      }
+      // Requests are sent while holding the lock so they are never reordered.
+      requestObserver.onNext(request);
+    }
+    ackRequests.increment();
+  }
+
+  // Visible for testing.
+  synchronized boolean hasFlushTimer() {
+    return flushTimer != null;
+  }
+
+  // Must be called while holding the lock.
+  private void added(String ackId) {
+    pendingAckIds++;
+    pendingBytes += ackId.length() + ACK_ID_OVERHEAD_BYTES;
+    if (flushTimer == null && !window.isZero()) {
+      flushTimer = eventLoop.schedule(this::timerFlush, window.toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void maybeFlush() {
+    boolean full;
+    synchronized (this) {
+      full = window.isZero() || pendingAckIds >= maxAckIds || pendingBytes >= maxBytes;
+    }
+    if (full) {
+      flush();
+    }
+  }
+
+  private void timerFlush() {
+    synchronized (this) {
+      flushTimer = null;
+    }
+    flush();
+    synchronized (this) {
+      if (!closed && (pendingAckIds > 0 || pendingDeadlineChange) && flushTimer == null) {
+        // Couldn't be sent yet, try again later.
+        flushTimer = eventLoop.schedule(this::timerFlush, window.toNanos(), TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
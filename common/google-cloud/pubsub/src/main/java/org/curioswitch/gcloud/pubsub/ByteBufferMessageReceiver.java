@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.pubsub.v1.PubsubMessage;
+import java.nio.ByteBuffer;
+
+/**
+ * A receiver of messages that reads the payload of messages as a {@link ByteBuffer}, without
+ * copying it. Together with {@link Subscriber.SubscriberOptions#getUnsafeWrapBuffers()}, the buffer
+ * is a view of the network buffer the message was received in. For lower per-message overhead, the
+ * {@link AckReplyConsumer} is reused for another message once {@link AckReplyConsumer#ack()} or
+ * {@link AckReplyConsumer#nack()} has been called, so neither it, the message nor the buffer must
+ * be accessed afterwards.
+ */
+@FunctionalInterface
+public interface ByteBufferMessageReceiver {
+
+  /**
+   * Called when a {@code message} is received, with its payload as a read-only {@code data} buffer.
+   * The message must be acked or nacked with {@code reply} exactly once.
+   */
+  void receiveMessage(PubsubMessage message, ByteBuffer data, AckReplyConsumer reply);
+}
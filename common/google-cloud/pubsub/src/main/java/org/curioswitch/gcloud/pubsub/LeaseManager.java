@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Extends the ack deadline of messages of a {@link Subscriber} that are still being processed, so
+ * they aren't redelivered while processing takes longer than the deadline. Extensions are sent
+ * through the {@link AckBatcher} shortly before each deadline, until the message has been leased
+ * for the maximum extension period.
+ *
+ * <p>The ack deadline itself follows the 99th percentile of message processing time, so most
+ * messages are acked within their first deadline without any extension. The counts of processing
+ * times are halved every minute, so the deadline follows changes in processing time instead of
+ * being dominated by all messages processed since the subscriber started.
+ */
+final class LeaseManager {
+
+  // Limits of ack deadlines allowed by Cloud Pub/Sub.
+  static final int MIN_ACK_DEADLINE_SECONDS = 10;
+  static final int MAX_ACK_DEADLINE_SECONDS = 600;
+
+  static final int INITIAL_ACK_DEADLINE_SECONDS = 60;
+
+  private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  // Deadlines are extended when they would expire before the next tick plus some padding for
+  // the extension to reach Cloud Pub/Sub.
+  private static final long EXTENSION_PADDING_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private static final long DECAY_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private static class Lease {
+    private final long receivedNanos;
+    private volatile long expiryNanos;
+
+    private Lease(long receivedNanos, long expiryNanos) {
+      this.receivedNanos = receivedNanos;
+      this.expiryNanos = expiryNanos;
+    }
+  }
+
+  private final AckBatcher ackBatcher;
+  private final long maxExtensionNanos;
+  private final LongSupplier nanoTime;
+
+  private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+  // Number of messages processed within each number of seconds, up to the maximum ack deadline.
+  private final AtomicLongArray processingSeconds =
+      new AtomicLongArray(MAX_ACK_DEADLINE_SECONDS + 1);
+
+  // Only accessed by extendLeases.
+  private long lastDecayNanos;
+
+  private volatile int ackDeadlineSeconds = INITIAL_ACK_DEADLINE_SECONDS;
+
+  @Nullable private ScheduledFuture<?> tickFuture;
+
+  LeaseManager(AckBatcher ackBatcher, Duration maxExtension, LongSupplier nanoTime) {
+    this.ackBatcher = ackBatcher;
+    maxExtensionNanos = maxExtension.toNanos();
+    this.nanoTime = nanoTime;
+    lastDecayNanos = nanoTime.getAsLong();
+  }
+
+  /** Starts extending leases periodically on the {@code executor}. */
+  synchronized void start(ScheduledExecutorService executor) {
+    if (tickFuture == null) {
+      tickFuture =
+          executor.scheduleAtFixedRate(
+              this::extendLeases, TICK_NANOS, TICK_NANOS, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  synchronized void close() {
+    if (tickFuture != null) {
+      tickFuture.cancel(false);
+      tickFuture = null;
+    }
+  }
+
+  /** The ack deadline to use for the stream. */
+  int ackDeadlineSeconds() {
+    return ackDeadlineSeconds;
+  }
+
+  /** Starts leasing a received message. */
+  void add(String ackId) {
+    long now = nanoTime.getAsLong();
+    leases.put(ackId, new Lease(now, now + TimeUnit.SECONDS.toNanos(ackDeadlineSeconds)));
+  }
+
+  /** Stops leasing a message that has been acked or nacked after {@code processingNanos}. */
+  void remove(String ackId, long processingNanos) {
+    leases.remove(ackId);
+    processingSeconds.incrementAndGet(
+        (int) Math.min(ceilSeconds(processingNanos), MAX_ACK_DEADLINE_SECONDS));
+  }
+
+  /** Number of messages currently leased. */
+  int size() {
+    return leases.size();
+  }
+
+  // Visible for testing.
+  void extendLeases() {
+    long now = nanoTime.getAsLong();
+    updateAckDeadline(now);
+
+    long extendBefore = now + TICK_NANOS + EXTENSION_PADDING_NANOS;
+    long deadlineNanos = TimeUnit.SECONDS.toNanos(ackDeadlineSeconds);
+    for (Iterator<Map.Entry<String, Lease>> it = leases.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, Lease> entry = it.next();
+      Lease lease = entry.getValue();
+      if (lease.expiryNanos > extendBefore) {
+        continue;
+      }
+      long remainingNanos = lease.receivedNanos + maxExtensionNanos - now;
+      if (remainingNanos < TimeUnit.SECONDS.toNanos(MIN_ACK_DEADLINE_SECONDS)) {
+        // Extending again would lease it for too long, let Cloud Pub/Sub redeliver it.
+        it.remove();
+        continue;
+      }
+      int extensionSeconds =
+          (int)
+              Math.max(
+                  MIN_ACK_DEADLINE_SECONDS, ceilSeconds(Math.min(deadlineNanos, remainingNanos)));
+      lease.expiryNanos = now + TimeUnit.SECONDS.toNanos(extensionSeconds);
+      ackBatcher.modifyDeadline(entry.getKey(), extensionSeconds);
+    }
+  }
+
+  private static long ceilSeconds(long nanos) {
+    long nanosPerSecond = TimeUnit.SECONDS.toNanos(1);
+    return (nanos + nanosPerSecond - 1) / nanosPerSecond;
+  }
+
+  private void updateAckDeadline(long now) {
+    if (now - lastDecayNanos >= DECAY_INTERVAL_NANOS) {
+      lastDecayNanos = now;
+      for (int i = 0; i < processingSeconds.length(); i++) {
+        processingSeconds.getAndUpdate(i, count -> count / 2);
+      }
+    }
+
+    long total = 0;
+    for (int i = 0; i < processingSeconds.length(); i++) {
+      total += processingSeconds.get(i);
+    }
+    if (total == 0) {
+      return;
+    }
+    long p99Count = (long) Math.ceil(total * 0.99);
+    long count = 0;
+    int p99Seconds = MAX_ACK_DEADLINE_SECONDS;
+    for (int i = 0; i < processingSeconds.length(); i++) {
+      count += processingSeconds.get(i);
+      if (count >= p99Count) {
+        p99Seconds = i;
+        break;
+      }
+    }
+    int deadline =
+        Math.max(MIN_ACK_DEADLINE_SECONDS, Math.min(MAX_ACK_DEADLINE_SECONDS, p99Seconds));
+    if (deadline != ackDeadlineSeconds) {
+      ackDeadlineSeconds = deadline;
+      ackBatcher.streamAckDeadline(deadline);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the dispatches of messages with the same ordering key one at a time, in the order they were
+ * submitted, while dispatches for different keys run in parallel. A dispatch is finished when
+ * {@link #complete(String)} is called for its key, i.e., when the message has been acked or nacked,
+ * which may happen after the dispatch itself returns.
+ *
+ * <p>Only keys with a message being processed have a queue, which is removed as soon as it is
+ * drained, so idle keys don't use any memory. Queues are only modified within {@link
+ * ConcurrentHashMap#compute}, which locks just the bin of the key.
+ */
+final class OrderingKeyDispatcher {
+
+  private static class KeyQueue {
+    // Dispatches waiting for the running one to complete.
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+  }
+
+  private final Map<String, KeyQueue> queues = new ConcurrentHashMap<>();
+  private final DistributionSummary queueDepth;
+
+  OrderingKeyDispatcher(DistributionSummary queueDepth) {
+    this.queueDepth = queueDepth;
+  }
+
+  /** Runs {@code dispatch} now if no message with the key is being processed, or queues it. */
+  void submit(String orderingKey, Runnable dispatch) {
+    boolean[] runNow = new boolean[1];
+    queues.compute(
+        orderingKey,
+        (unused, queue) -> {
+          if (queue == null) {
+            runNow[0] = true;
+            return new KeyQueue();
+          }
+          queue.pending.add(dispatch);
+          queueDepth.record(queue.pending.size());
+          return queue;
+        });
+    if (runNow[0]) {
+      queueDepth.record(0);
+      dispatch.run();
+    }
+  }
+
+  /** Finishes processing the current message with the key, running the next one if queued. */
+  void complete(String orderingKey) {
+    Runnable[] next = new Runnable[1];
+    queues.computeIfPresent(
+        orderingKey,
+        (unused, queue) -> {
+          next[0] = queue.pending.poll();
+          return next[0] != null ? queue : null;
+        });
+    if (next[0] != null) {
+      next[0].run();
+    }
+  }
+
+  /** The number of keys with a message being processed. */
+  int activeKeys() {
+    return queues.size();
+  }
+}
@@ -24,6 +24,7 @@
 
 package org.curioswitch.gcloud.pubsub;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import brave.Span;
@@ -32,17 +33,36 @@ import brave.Tracing;
 import brave.propagation.TraceContext;
 import com.google.auto.factory.AutoFactory;
 import com.google.auto.factory.Provided;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.CodedOutputStream;
 import com.google.pubsub.v1.ProjectTopicName;
 import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
 import com.google.pubsub.v1.PublisherGrpc.PublisherFutureStub;
 import com.google.pubsub.v1.PubsubMessage;
+import com.linecorp.armeria.common.CommonPools;
+import io.grpc.Status;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.curioswitch.common.helpers.immutables.CurioStyle;
 import org.curioswitch.gcloud.pubsub.Publisher.Factory;
+import org.immutables.value.Value.Check;
 import org.immutables.value.Value.Immutable;
 
+/**
+ * A publisher of messages to a Cloud Pub/Sub topic. Published messages are batched into a single
+ * {@link PublishRequest} until {@link PublisherOptions#getMaxBatchMessages()} or {@link
+ * PublisherOptions#getMaxBatchBytes()} is reached, or {@link PublisherOptions#getMaxBatchDelay()}
+ * has passed since the first message of the batch was published.
+ */
 @AutoFactory(implementing = Factory.class)
 public class Publisher {
 
@@ -63,6 +83,14 @@ public class Publisher {
   private final PublisherOptions options;
   private final TraceContext.Injector<PubsubMessage.Builder> traceInjector;
 
+  private final Object batchLock = new Object();
+
+  // Guarded by batchLock.
+  @Nullable private Batch batch;
+
+  // Guarded by this.
+  private long outstandingBytes;
+
   public Publisher(
       @Provided PublisherFutureStub stub, @Provided Tracing tracing, PublisherOptions options) {
     this.stub = checkNotNull(stub, "stub");
@@ -73,6 +101,13 @@ public class Publisher {
     traceInjector = tracing.propagation().injector(PubsubMessage.Builder::putAttributes);
   }
 
+  /**
+   * Publishes the message, returning a {@link ListenableFuture} completed with the ID of the
+   * message once its batch has been published. If publishing the message would exceed {@link
+   * PublisherOptions#getMaxOutstandingBytes()}, this either blocks until enough outstanding
+   * messages have been published or fails with {@link Status#RESOURCE_EXHAUSTED}, depending on
+   * {@link PublisherOptions#getLimitExceededBehavior()}.
+   */
   public ListenableFuture<String> publish(PubsubMessage message) {
     Span span = tracer.currentSpan();
     if (span != null) {
@@ -81,25 +116,178 @@ public class Publisher {
       message = messageBuilder.build();
     }
 
+    int size = CodedOutputStream.computeMessageSize(PublishRequest.MESSAGES_FIELD_NUMBER, message);
+    if (!acquireOutstandingBytes(size)) {
+      return Futures.immediateFailedFuture(
+          Status.RESOURCE_EXHAUSTED
+              .withDescription(
+                  "Publisher has more than "
+                      + options.getMaxOutstandingBytes()
+                      + " bytes of unpublished messages.")
+              .asRuntimeException());
+    }
+
+    SettableFuture<String> result = SettableFuture.create();
+    Batch full = null;
+    Batch sendNow = null;
+    synchronized (batchLock) {
+      if (batch != null && !batch.canAdd(size)) {
+        full = batch;
+        batch = null;
+      }
+      if (batch == null) {
+        batch = new Batch();
+        if (!options.getMaxBatchDelay().isZero()) {
+          Batch scheduled = batch;
+          batch.flushTimer =
+              CommonPools.workerGroup()
+                  .schedule(
+                      () -> flush(scheduled),
+                      options.getMaxBatchDelay().toNanos(),
+                      TimeUnit.NANOSECONDS);
+        }
+      }
+      batch.add(message, size, result);
+      if (batch.isFull()) {
+        sendNow = batch;
+        batch = null;
+      }
+    }
+
+    if (full != null) {
+      send(full);
+    }
+    if (sendNow != null) {
+      send(sendNow);
+    }
+    return result;
+  }
+
+  /** Publishes any batched messages immediately, without waiting for the batch to fill. */
+  public void flush() {
+    final Batch toSend;
+    synchronized (batchLock) {
+      toSend = batch;
+      batch = null;
+    }
+    if (toSend != null) {
+      send(toSend);
+    }
+  }
+
+  private void flush(Batch scheduled) {
+    synchronized (batchLock) {
+      if (batch != scheduled) {
+        // Already sent because it was full.
+        return;
+      }
+      batch = null;
+    }
+    send(scheduled);
+  }
+
+  private void send(Batch batch) {
+    if (batch.flushTimer != null) {
+      batch.flushTimer.cancel(false);
+    }
+
     PublishRequest request =
-        PublishRequest.newBuilder().setTopic(options.getTopic()).addMessages(message).build();
+        PublishRequest.newBuilder()
+            .setTopic(options.getTopic())
+            .addAllMessages(batch.messages)
+            .build();
 
-    return Futures.transform(
+    Futures.addCallback(
         stub.publish(request),
-        (response) -> {
-          if (response.getMessageIdsCount() != 1) {
-            throw new IllegalStateException(
-                String.format(
-                    "The publish result count %s does not match "
-                        + "the expected 1 result. Please contact Cloud Pub/Sub support "
-                        + "if this frequently occurs",
-                    response.getMessageIdsCount()));
+        new FutureCallback<>() {
+          @Override
+          public void onSuccess(PublishResponse response) {
+            releaseOutstandingBytes(batch.bytes);
+            if (response.getMessageIdsCount() != batch.results.size()) {
+              batch.fail(
+                  new IllegalStateException(
+                      String.format(
+                          "The publish result count %s does not match "
+                              + "the expected %s results. Please contact Cloud Pub/Sub support "
+                              + "if this frequently occurs",
+                          response.getMessageIdsCount(), batch.results.size())));
+              return;
+            }
+            for (int i = 0; i < batch.results.size(); i++) {
+              batch.results.get(i).set(response.getMessageIds(i));
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            releaseOutstandingBytes(batch.bytes);
+            batch.fail(t);
           }
-          return response.getMessageIds(0);
         },
         MoreExecutors.directExecutor());
   }
 
+  private synchronized boolean acquireOutstandingBytes(int size) {
+    // A single message larger than the limit is still published when nothing else is outstanding.
+    while (outstandingBytes > 0 && outstandingBytes + size > options.getMaxOutstandingBytes()) {
+      if (options.getLimitExceededBehavior() == LimitExceededBehavior.THROW_EXCEPTION) {
+        return false;
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    outstandingBytes += size;
+    return true;
+  }
+
+  private synchronized void releaseOutstandingBytes(long size) {
+    outstandingBytes -= size;
+    notifyAll();
+  }
+
+  private class Batch {
+    private final List<PubsubMessage> messages = new ArrayList<>();
+    private final List<SettableFuture<String>> results = new ArrayList<>();
+    private long bytes;
+
+    @Nullable private ScheduledFuture<?> flushTimer;
+
+    private boolean canAdd(int size) {
+      return messages.size() < options.getMaxBatchMessages()
+          && bytes + size <= options.getMaxBatchBytes();
+    }
+
+    private void add(PubsubMessage message, int size, SettableFuture<String> result) {
+      messages.add(message);
+      results.add(result);
+      bytes += size;
+    }
+
+    private void fail(Throwable t) {
+      for (SettableFuture<String> result : results) {
+        result.setException(t);
+      }
+    }
+
+    private boolean isFull() {
+      return messages.size() >= options.getMaxBatchMessages()
+          || bytes >= options.getMaxBatchBytes()
+          || options.getMaxBatchDelay().isZero();
+    }
+  }
+
+  /** What to do when publishing a message would exceed the maximum outstanding bytes. */
+  public enum LimitExceededBehavior {
+    /** Block the call to {@link #publish(PubsubMessage)} until messages have been published. */
+    BLOCK,
+    /** Fail the returned future with {@link Status#RESOURCE_EXHAUSTED}. */
+    THROW_EXCEPTION,
+  }
+
   @Immutable
   @CurioStyle
   public interface PublisherOptions {
@@ -107,5 +295,56 @@ public class Publisher {
 
     /** Topic which the publisher publishes to. */
     String getTopic();
+
+    /** The maximum number of messages to publish in a single request. Defaults to 100. */
+    default int getMaxBatchMessages() {
+      return 100;
+    }
+
+    /**
+     * The maximum total size of messages to publish in a single request. Cloud Pub/Sub allows at
+     * most 10MB. Defaults to 1MB.
+     */
+    default long getMaxBatchBytes() {
+      return 1024 * 1024;
+    }
+
+    /**
+     * The maximum time to wait for a batch to fill after publishing its first message. If zero,
+     * messages are not batched. Defaults to 10ms.
+     */
+    default Duration getMaxBatchDelay() {
+      return Duration.ofMillis(10);
+    }
+
+    /**
+     * The maximum total size of messages that have been published but not yet acknowledged by Cloud
+     * Pub/Sub, bounding memory usage when messages are published faster than they can be sent.
+     * Defaults to 100MB.
+     */
+    default long getMaxOutstandingBytes() {
+      return 100 * 1024 * 1024;
+    }
+
+    /**
+     * What to do when publishing a message would exceed {@link #getMaxOutstandingBytes()}. As
+     * blocking an event loop stalls all requests on it, defaults to {@link
+     * LimitExceededBehavior#THROW_EXCEPTION}.
+     */
+    default LimitExceededBehavior getLimitExceededBehavior() {
+      return LimitExceededBehavior.THROW_EXCEPTION;
+    }
+
+    @Check
+    default void check() {
+      checkArgument(
+          getMaxBatchMessages() > 0 && getMaxBatchMessages() <= 1000,
+          "maxBatchMessages must be between 1 and 1000.");
+      checkArgument(
+          getMaxBatchBytes() > 0 && getMaxBatchBytes() <= 10 * 1024 * 1024,
+          "maxBatchBytes must be between 1 and 10MB.");
+      checkArgument(!getMaxBatchDelay().isNegative(), "maxBatchDelay must not be negative.");
+      checkArgument(getMaxOutstandingBytes() > 0, "maxOutstandingBytes must be positive.");
+    }
   }
 }
@@ -24,7 +24,8 @@
 
 package org.curioswitch.gcloud.pubsub;
 
-import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 
 import brave.Span;
 import brave.Span.Kind;
@@ -32,42 +33,57 @@ import brave.Tracer;
 import brave.Tracing;
 import brave.propagation.TraceContext.Extractor;
 import brave.propagation.TraceContextOrSamplingFlags;
+import brave.sampler.Sampler;
 import com.google.auto.factory.AutoFactory;
 import com.google.auto.factory.Provided;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.common.collect.ImmutableList;
-import com.google.protobuf.util.Timestamps;
+import com.google.protobuf.Timestamp;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.ReceivedMessage;
 import com.google.pubsub.v1.StreamingPullRequest;
 import com.google.pubsub.v1.StreamingPullResponse;
 import com.google.pubsub.v1.SubscriberGrpc.SubscriberStub;
+import com.linecorp.armeria.client.ClientFactory;
+import com.linecorp.armeria.client.ClientOptions;
 import com.linecorp.armeria.client.Clients;
 import com.linecorp.armeria.client.grpc.GrpcClientOptions;
+import com.linecorp.armeria.common.CommonPools;
 import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.metric.MoreMeters;
 import com.linecorp.armeria.common.metric.NoopMeterRegistry;
 import com.linecorp.armeria.unsafe.grpc.GrpcUnsafeBufferUtil;
-import io.grpc.stub.StreamObserver;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoop;
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
 import java.io.Closeable;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 import javax.annotation.Nullable;
 import org.curioswitch.common.helpers.immutables.CurioStyle;
 import org.curioswitch.gcloud.pubsub.Subscriber.Factory;
+import org.immutables.value.Value.Check;
 import org.immutables.value.Value.Immutable;
 
 @AutoFactory(implementing = Factory.class)
-public class Subscriber implements Closeable, StreamObserver<StreamingPullResponse> {
+public class Subscriber implements Closeable {
 
   public interface Factory {
     Subscriber create(SubscriberOptions options);
@@ -85,25 +101,46 @@ public class Subscriber implements Closeable, StreamObserver<StreamingPullRespon
         .messageReceiver(receiver);
   }
 
+  public static SubscriberOptions.Builder newOptions(
+      String subscription, ByteBufferMessageReceiver receiver) {
+    return new SubscriberOptions.Builder()
+        .subscription(subscription)
+        .byteBufferMessageReceiver(receiver);
+  }
+
+  public static SubscriberOptions.Builder newOptions(
+      ProjectSubscriptionName subscription, ByteBufferMessageReceiver receiver) {
+    return new SubscriberOptions.Builder()
+        .subscription(subscription.toString())
+        .byteBufferMessageReceiver(receiver);
+  }
+
   private static final Duration INITIAL_CHANNEL_RECONNECT_BACKOFF = Duration.ofMillis(100);
   private static final Duration MAX_CHANNEL_RECONNECT_BACKOFF = Duration.ofSeconds(10);
 
-  private final SubscriberStub stub;
+  // Placeholder for recycled replies, which are never acked.
+  private static final AtomicInteger NO_PENDING_ACKS = new AtomicInteger();
+
   private final SubscriberOptions options;
 
   private final Counter receivedMessages;
   private final Counter ackedMessages;
   private final Counter nackedMessages;
+  private final Timer messageQueueingTime;
   private final Timer messageProcessingTime;
 
+  private final Tracing tracing;
   private final Tracer tracer;
   private final Extractor<PubsubMessage> traceExtractor;
 
-  private Duration streamReconnectBackoff = INITIAL_CHANNEL_RECONNECT_BACKOFF;
+  private final AtomicInteger outstandingMessages = new AtomicInteger();
+  private final AtomicLong outstandingBytes = new AtomicLong();
+
+  private final List<PullStream> streams;
 
-  @Nullable private volatile StreamObserver<StreamingPullRequest> requestObserver;
-  @Nullable private volatile RequestContext ctx;
+  @Nullable private final OrderingKeyDispatcher orderingKeyDispatcher;
 
+  private volatile boolean started;
   private volatile boolean closed;
 
   public Subscriber(
@@ -111,11 +148,11 @@ public class Subscriber implements Closeable, StreamObserver<StreamingPullRespon
       @Provided Optional<MeterRegistry> meterRegistry,
       @Provided Tracing tracing,
       SubscriberOptions options) {
-    this.stub =
-        options.getUnsafeWrapBuffers()
-            ? Clients.newDerivedClient(
-                stub, GrpcClientOptions.UNSAFE_WRAP_RESPONSE_BUFFERS.newValue(true))
-            : stub;
+    if (options.getUnsafeWrapBuffers()) {
+      stub =
+          Clients.newDerivedClient(
+              stub, GrpcClientOptions.UNSAFE_WRAP_RESPONSE_BUFFERS.newValue(true));
+    }
     this.options = options;
 
     MeterRegistry registry = meterRegistry.orElse(NoopMeterRegistry.get());
@@ -125,11 +162,67 @@ public class Subscriber implements Closeable, StreamObserver<StreamingPullRespon
     receivedMessages = registry.counter("subscriber-received-messages", tags);
     ackedMessages = registry.counter("subscriber-acked-messages", tags);
     nackedMessages = registry.counter("subscriber-nacked-messages", tags);
-    registry.gauge("reconnect-backoff-millis", tags, streamReconnectBackoff, Duration::toMillis);
 
+    messageQueueingTime = MoreMeters.newTimer(registry, "subscriber-message-queueing-time", tags);
     messageProcessingTime =
         MoreMeters.newTimer(registry, "subscriber-message-processing-time", tags);
 
+    registry.gauge("subscriber-outstanding-messages", tags, outstandingMessages);
+    registry.gauge("subscriber-outstanding-bytes", tags, outstandingBytes);
+
+    if (options.getOrderedDelivery()) {
+      orderingKeyDispatcher =
+          new OrderingKeyDispatcher(
+              DistributionSummary.builder("subscriber-ordering-key-queue-depth")
+                  .tags(tags)
+                  .register(registry));
+      registry.gauge(
+          "subscriber-active-ordering-keys",
+          tags,
+          orderingKeyDispatcher,
+          OrderingKeyDispatcher::activeKeys);
+    } else {
+      orderingKeyDispatcher = null;
+    }
+
+    Counter ackRequests = registry.counter("subscriber-ack-requests", tags);
+    ImmutableList.Builder<PullStream> streams = ImmutableList.builder();
+    if (options.getParallelPullCount() == 1) {
+      streams.add(new PullStream(stub, CommonPools.workerGroup().next(), null, ackRequests));
+    } else {
+      for (int i = 0; i < options.getParallelPullCount(); i++) {
+        // Each stream gets its own connection on its own event loop, instead of all streams to the
+        // same endpoint sharing the connection of one event loop.
+        EventLoop eventLoop = CommonPools.workerGroup().next();
+        ClientFactory clientFactory =
+            ClientFactory.builder().workerGroup(eventLoop, false).meterRegistry(registry).build();
+        streams.add(
+            new PullStream(
+                Clients.newDerivedClient(stub, ClientOptions.FACTORY.newValue(clientFactory)),
+                eventLoop,
+                clientFactory,
+                ackRequests));
+      }
+    }
+    this.streams = streams.build();
+
+    registry.gauge(
+        "reconnect-backoff-millis",
+        tags,
+        this,
+        subscriber -> subscriber.maxOverStreams(s -> s.streamReconnectBackoff.toMillis()));
+    registry.gauge(
+        "subscriber-leased-messages",
+        tags,
+        this,
+        subscriber -> subscriber.streams.stream().mapToLong(s -> s.leaseManager.size()).sum());
+    registry.gauge(
+        "subscriber-ack-deadline-seconds",
+        tags,
+        this,
+        subscriber -> subscriber.maxOverStreams(s -> s.leaseManager.ackDeadlineSeconds()));
+
+    this.tracing = tracing;
     tracer = tracing.tracer();
     traceExtractor =
         tracing
@@ -138,134 +231,419 @@ public class Subscriber implements Closeable, StreamObserver<StreamingPullRespon
   }
 
   public void start() {
-    open();
+    started = true;
+    for (PullStream stream : streams) {
+      stream.start();
+    }
   }
 
   @Override
-  public void onNext(StreamingPullResponse value) {
-    if (ctx == null) {
-      ctx = RequestContext.current();
+  public void close() {
+    checkState(started, "close called before start.");
+
+    closed = true;
+    for (PullStream stream : streams) {
+      stream.close();
     }
+  }
 
-    streamReconnectBackoff = INITIAL_CHANNEL_RECONNECT_BACKOFF;
-
-    receivedMessages.increment(value.getReceivedMessagesCount());
-
-    AtomicInteger pendingAcks = new AtomicInteger(value.getReceivedMessagesCount());
-
-    for (ReceivedMessage message : value.getReceivedMessagesList()) {
-      TraceContextOrSamplingFlags contextOrFlags = traceExtractor.extract(message.getMessage());
-
-      // Add an artificial span modeling the time spent within Pub/Sub until getting here.
-      Span span =
-          contextOrFlags.context() != null
-              ? tracer.joinSpan(contextOrFlags.context())
-              // We want each message to be a new trace rather than having a long trace for the
-              // entire stream.
-              : tracer.newTrace();
-
-      span.kind(Kind.SERVER)
-          .name("google.pubsub.v1.Publisher.Publish")
-          .tag("subscription", options.getSubscription())
-          .start(Timestamps.toMicros(message.getMessage().getPublishTime()))
-          .finish();
-
-      StreamObserver<StreamingPullRequest> requestObserver = this.requestObserver;
-
-      long startTimeNanos = System.nanoTime();
-      options
-          .getMessageReceiver()
-          .receiveMessage(
-              message.getMessage(),
-              new AckReplyConsumer() {
-                @Override
-                public void ack() {
-                  releaseAndRecord();
-
-                  ackedMessages.increment();
-
-                  checkNotNull(requestObserver, "onNext called before start()");
-                  requestObserver.onNext(
-                      StreamingPullRequest.newBuilder().addAckIds(message.getAckId()).build());
-                }
-
-                @Override
-                public void nack() {
-                  releaseAndRecord();
-
-                  nackedMessages.increment();
-
-                  checkNotNull(requestObserver, "onNext called before start()");
-                  requestObserver.onNext(
-                      StreamingPullRequest.newBuilder()
-                          .addModifyDeadlineAckIds(message.getAckId())
-                          .addModifyDeadlineSeconds(0)
-                          .build());
-                }
-
-                private void releaseAndRecord() {
-                  if (options.getUnsafeWrapBuffers() && pendingAcks.decrementAndGet() == 0) {
-                    GrpcUnsafeBufferUtil.releaseBuffer(value, ctx);
-                  }
-
-                  messageProcessingTime.record(
-                      Duration.ofNanos(System.nanoTime() - startTimeNanos));
-                }
-              });
+  private void requestMore() {
+    for (PullStream stream : streams) {
+      stream.maybeRequestResponse();
     }
   }
 
-  @Override
-  public void onError(Throwable t) {
-    if (closed || !StatusUtil.isRetryable(t)) {
-      return;
+  private boolean belowOutstandingLimits() {
+    long maxMessages = options.getMaxOutstandingMessages();
+    long maxBytes = options.getMaxOutstandingBytes();
+    return (maxMessages == 0 || outstandingMessages.get() < maxMessages)
+        && (maxBytes == 0 || outstandingBytes.get() < maxBytes);
+  }
+
+  private double maxOverStreams(ToLongFunction<PullStream> value) {
+    return streams.stream().mapToLong(value).max().orElse(0);
+  }
+
+  /**
+   * A single {@code streamingPull} stream of the subscription, which reconnects with its own
+   * backoff. Acks and ack deadline extensions for a message are sent on the stream it was received
+   * on.
+   */
+  private class PullStream
+      implements ClientResponseObserver<StreamingPullRequest, StreamingPullResponse> {
+
+    private final SubscriberStub stub;
+    private final EventLoop eventLoop;
+    @Nullable private final ClientFactory clientFactory;
+
+    private final AckBatcher ackBatcher;
+    private final LeaseManager leaseManager;
+
+    // Replies are only reused for ByteBufferMessageReceiver, which doesn't allow accessing them
+    // after acking.
+    private final Recycler<MessageReply> replies =
+        new Recycler<>() {
+          @Override
+          protected MessageReply newObject(Handle<MessageReply> handle) {
+            return new MessageReply(handle);
+          }
+        };
+
+    private volatile Duration streamReconnectBackoff = INITIAL_CHANNEL_RECONNECT_BACKOFF;
+
+    // Whether a response has been requested from the current stream and not received yet.
+    private final AtomicBoolean responseRequested = new AtomicBoolean();
+
+    @Nullable private volatile ClientCallStreamObserver<StreamingPullRequest> callStream;
+    @Nullable private volatile RequestContext ctx;
+
+    private PullStream(
+        SubscriberStub stub,
+        EventLoop eventLoop,
+        @Nullable ClientFactory clientFactory,
+        Counter ackRequests) {
+      this.stub = stub;
+      this.eventLoop = eventLoop;
+      this.clientFactory = clientFactory;
+
+      ackBatcher =
+          new AckBatcher(
+              eventLoop,
+              options.getAckBatchWindow(),
+              options.getMaxAckBatchSize(),
+              options.getMaxAckBatchBytes(),
+              ackRequests);
+      leaseManager =
+          new LeaseManager(ackBatcher, options.getMaxAckExtensionPeriod(), System::nanoTime);
     }
 
-    Duration backoff = streamReconnectBackoff;
+    private void start() {
+      leaseManager.start(eventLoop);
+      open();
+    }
 
-    streamReconnectBackoff = streamReconnectBackoff.multipliedBy(2);
-    if (streamReconnectBackoff.compareTo(MAX_CHANNEL_RECONNECT_BACKOFF) > 0) {
-      streamReconnectBackoff = MAX_CHANNEL_RECONNECT_BACKOFF;
+    @Override
+    public void beforeStart(ClientCallStreamObserver<StreamingPullRequest> requestStream) {
+      // Responses are requested one at a time while below the outstanding limits.
+      requestStream.disableAutoRequestWithInitial(0);
+      callStream = requestStream;
     }
 
-    // Possible to come straight to here without onNext, so access the current RequestContext
-    // regardless.
-    RequestContext.current()
-        .eventLoop()
-        .schedule(this::open, backoff.toMillis(), TimeUnit.MILLISECONDS);
-  }
+    @Override
+    public void onNext(StreamingPullResponse value) {
+      if (ctx == null) {
+        ctx = RequestContext.current();
+      }
+      RequestContext ctx = this.ctx;
+
+      responseRequested.set(false);
+      streamReconnectBackoff = INITIAL_CHANNEL_RECONNECT_BACKOFF;
+
+      receivedMessages.increment(value.getReceivedMessagesCount());
+
+      // Count the entire response as outstanding before any of it is acked.
+      long responseBytes = 0;
+      for (ReceivedMessage message : value.getReceivedMessagesList()) {
+        responseBytes += message.getMessage().getSerializedSize();
+        leaseManager.add(message.getAckId());
+      }
+      outstandingMessages.addAndGet(value.getReceivedMessagesCount());
+      outstandingBytes.addAndGet(responseBytes);
+
+      AtomicInteger pendingAcks = new AtomicInteger(value.getReceivedMessagesCount());
+      long receivedNanos = System.nanoTime();
+
+      for (ReceivedMessage message : value.getReceivedMessagesList()) {
+        MessageReply reply =
+            (options.getByteBufferMessageReceiver() != null
+                    ? replies.get()
+                    : new MessageReply(null))
+                .init(value, message, ctx, pendingAcks, receivedNanos);
+        String orderingKey = message.getMessage().getOrderingKey();
+        if (orderingKeyDispatcher != null && !orderingKey.isEmpty()) {
+          // The next message of the key is dispatched from the thread that acked the previous one,
+          // so always hop to the executor or event loop.
+          orderingKeyDispatcher.submit(orderingKey, () -> execute(reply, true));
+        } else {
+          execute(reply, false);
+        }
+      }
+
+      maybeRequestResponse();
+    }
 
-  @Override
-  public void onCompleted() {
-    if (closed) {
-      return;
+    @Override
+    public void onError(Throwable t) {
+      if (closed) {
+        closeClientFactory();
+        return;
+      }
+      if (!StatusUtil.isRetryable(t)) {
+        return;
+      }
+
+      // Hold acks until reconnected rather than sending them to the failed stream.
+      ackBatcher.detach();
+      callStream = null;
+
+      Duration backoff = streamReconnectBackoff;
+
+      Duration nextBackoff = streamReconnectBackoff.multipliedBy(2);
+      if (nextBackoff.compareTo(MAX_CHANNEL_RECONNECT_BACKOFF) > 0) {
+        nextBackoff = MAX_CHANNEL_RECONNECT_BACKOFF;
+      }
+      streamReconnectBackoff = nextBackoff;
+
+      eventLoop.schedule(this::open, backoff.toMillis(), TimeUnit.MILLISECONDS);
     }
 
-    streamReconnectBackoff = INITIAL_CHANNEL_RECONNECT_BACKOFF;
+    @Override
+    public void onCompleted() {
+      if (closed) {
+        closeClientFactory();
+        return;
+      }
 
-    // Stream was closed by the server, reopen it so we can keep on pulling.
-    open();
-  }
+      streamReconnectBackoff = INITIAL_CHANNEL_RECONNECT_BACKOFF;
 
-  @Override
-  public void close() {
-    checkNotNull(requestObserver, "close called before start.");
+      // Stream was closed by the server, reopen it so we can keep on pulling.
+      open();
+    }
 
-    closed = true;
-    requestObserver.onCompleted();
-  }
+    private void close() {
+      leaseManager.close();
+      // If the stream is open, the client factory is closed after the server closes the stream, so
+      // the pending acks sent when completing it are not lost.
+      if (!ackBatcher.close()) {
+        closeClientFactory();
+      }
+    }
+
+    private void open() {
+      if (closed) {
+        // Closed while waiting to reconnect.
+        return;
+      }
+      // Reset in case this is a reconnect.
+      ctx = null;
+
+      // The initial request must be the first on the stream, so acks batched while reconnecting
+      // are only sent after it.
+      ackBatcher.open(
+          stub.streamingPull(this),
+          StreamingPullRequest.newBuilder()
+              .setSubscription(options.getSubscription())
+              .setStreamAckDeadlineSeconds(leaseManager.ackDeadlineSeconds())
+              .setMaxOutstandingMessages(perStreamLimit(options.getMaxOutstandingMessages()))
+              .setMaxOutstandingBytes(perStreamLimit(options.getMaxOutstandingBytes()))
+              .build());
+
+      responseRequested.set(false);
+      maybeRequestResponse();
+    }
 
-  private void open() {
-    // Reset in case this is a reconnect.
-    ctx = null;
+    private void maybeRequestResponse() {
+      ClientCallStreamObserver<StreamingPullRequest> callStream = this.callStream;
+      if (callStream == null || closed) {
+        return;
+      }
+      if (!belowOutstandingLimits()) {
+        // Requested again when enough messages have been acked.
+        return;
+      }
+      if (responseRequested.compareAndSet(false, true)) {
+        callStream.request(1);
+      }
+    }
+
+    // The server applies limits per stream, so they are split between the streams.
+    private long perStreamLimit(long limit) {
+      int numStreams = options.getParallelPullCount();
+      return (limit + numStreams - 1) / numStreams;
+    }
+
+    private void execute(MessageReply reply, boolean hopToEventLoop) {
+      Executor executor = options.getExecutor();
+      if (executor == null && !hopToEventLoop) {
+        reply.dispatch();
+        return;
+      }
+      Runnable dispatch = reply.ctx != null ? reply.ctx.makeContextAware(reply) : reply;
+      try {
+        (executor != null ? executor : eventLoop).execute(dispatch);
+      } catch (RejectedExecutionException e) {
+        // Let it be redelivered, hopefully when the executor has caught up.
+        reply.nack();
+      }
+    }
 
-    requestObserver = stub.streamingPull(this);
+    private void closeClientFactory() {
+      if (clientFactory != null) {
+        clientFactory.closeAsync();
+      }
+    }
 
-    requestObserver.onNext(
-        StreamingPullRequest.newBuilder()
-            .setSubscription(options.getSubscription())
-            .setStreamAckDeadlineSeconds(60)
-            .build());
+    /**
+     * Dispatches a received message to the receiver and handles its ack or nack. Replies to a
+     * {@link ByteBufferMessageReceiver} are recycled once acked or nacked.
+     */
+    private class MessageReply implements AckReplyConsumer, Runnable {
+
+      @Nullable private final Handle<MessageReply> handle;
+
+      // Set by init before the reply is dispatched, which publishes them to the receiver's thread.
+      private StreamingPullResponse response = StreamingPullResponse.getDefaultInstance();
+      private ReceivedMessage message = ReceivedMessage.getDefaultInstance();
+      @Nullable private RequestContext ctx;
+      private AtomicInteger pendingAcks = NO_PENDING_ACKS;
+      private long receivedNanos;
+
+      private volatile long startTimeNanos;
+
+      private final AtomicBoolean replied = new AtomicBoolean();
+
+      private MessageReply(@Nullable Handle<MessageReply> handle) {
+        this.handle = handle;
+      }
+
+      private MessageReply init(
+          StreamingPullResponse response,
+          ReceivedMessage message,
+          @Nullable RequestContext ctx,
+          AtomicInteger pendingAcks,
+          long receivedNanos) {
+        this.response = response;
+        this.message = message;
+        this.ctx = ctx;
+        this.pendingAcks = pendingAcks;
+        this.receivedNanos = receivedNanos;
+        startTimeNanos = receivedNanos;
+        replied.set(false);
+        return this;
+      }
+
+      @Override
+      public void run() {
+        dispatch();
+      }
+
+      private void dispatch() {
+        PubsubMessage pubsubMessage = message.getMessage();
+        recordPublishSpan(pubsubMessage);
+
+        startTimeNanos = System.nanoTime();
+        messageQueueingTime.record(startTimeNanos - receivedNanos, TimeUnit.NANOSECONDS);
+
+        ByteBufferMessageReceiver byteBufferReceiver = options.getByteBufferMessageReceiver();
+        if (byteBufferReceiver != null) {
+          byteBufferReceiver.receiveMessage(
+              pubsubMessage, pubsubMessage.getData().asReadOnlyByteBuffer(), this);
+        } else {
+          options.getMessageReceiver().receiveMessage(pubsubMessage, this);
+        }
+      }
+
+      /** Adds an artificial span modeling the time spent within Pub/Sub until getting here. */
+      private void recordPublishSpan(PubsubMessage pubsubMessage) {
+        if (tracing.isNoop()) {
+          return;
+        }
+        // Publishers only add trace context to the attributes, so there's nothing to extract
+        // without any.
+        TraceContextOrSamplingFlags contextOrFlags =
+            pubsubMessage.getAttributesCount() > 0
+                ? traceExtractor.extract(pubsubMessage)
+                : TraceContextOrSamplingFlags.EMPTY;
+        if (Boolean.FALSE.equals(contextOrFlags.sampled())) {
+          return;
+        }
+
+        final Span span;
+        if (contextOrFlags.context() != null) {
+          span = tracer.joinSpan(contextOrFlags.context());
+        } else if (contextOrFlags.sampled() == null && tracing.sampler() == Sampler.NEVER_SAMPLE) {
+          return;
+        } else {
+          // We want each message to be a new trace rather than having a long trace for the
+          // entire stream.
+          span = tracer.nextSpan(contextOrFlags);
+        }
+        if (span.isNoop()) {
+          return;
+        }
+
+        Timestamp publishTime = pubsubMessage.getPublishTime();
+        span.kind(Kind.SERVER)
+            .name("google.pubsub.v1.Publisher.Publish")
+            .tag("subscription", options.getSubscription())
+            .start(publishTime.getSeconds() * 1_000_000 + publishTime.getNanos() / 1000)
+            .finish();
+      }
+
+      @Override
+      public void ack() {
+        String ackId = message.getAckId();
+        if (!releaseAndRecord()) {
+          return;
+        }
+
+        ackedMessages.increment();
+
+        ackBatcher.ack(ackId);
+      }
+
+      @Override
+      public void nack() {
+        String ackId = message.getAckId();
+        if (!releaseAndRecord()) {
+          return;
+        }
+
+        nackedMessages.increment();
+
+        ackBatcher.modifyDeadline(ackId, 0);
+      }
+
+      private boolean releaseAndRecord() {
+        if (!replied.compareAndSet(false, true)) {
+          // Only the first ack or nack counts.
+          return false;
+        }
+
+        if (options.getUnsafeWrapBuffers() && pendingAcks.decrementAndGet() == 0) {
+          GrpcUnsafeBufferUtil.releaseBuffer(response, ctx);
+        }
+
+        long now = System.nanoTime();
+        messageProcessingTime.record(now - startTimeNanos, TimeUnit.NANOSECONDS);
+        // The ack deadline started when the message was received, including time spent queued.
+        leaseManager.remove(message.getAckId(), now - receivedNanos);
+
+        outstandingMessages.decrementAndGet();
+        outstandingBytes.addAndGet(-message.getMessage().getSerializedSize());
+
+        String orderingKey = message.getMessage().getOrderingKey();
+        recycle();
+
+        requestMore();
+        if (orderingKeyDispatcher != null && !orderingKey.isEmpty()) {
+          orderingKeyDispatcher.complete(orderingKey);
+        }
+        return true;
+      }
+
+      private void recycle() {
+        if (handle == null) {
+          return;
+        }
+        // Don't keep the response alive while pooled.
+        response = StreamingPullResponse.getDefaultInstance();
+        message = ReceivedMessage.getDefaultInstance();
+        ctx = null;
+        pendingAcks = NO_PENDING_ACKS;
+        handle.recycle(this);
+      }
+    }
   }
 
   @Immutable
@@ -277,9 +655,21 @@ public class Subscriber implements Closeable, StreamObserver<StreamingPullRespon
     /** Cloud Pub/Sub subscription to bind the subscriber to. */
     String getSubscription();
 
-    /** An implementation of {@link MessageReceiver} used to process the received messages. */
+    /**
+     * An implementation of {@link MessageReceiver} used to process the received messages. Exactly
+     * one of this or {@link #getByteBufferMessageReceiver()} must be set.
+     */
+    @Nullable
     MessageReceiver getMessageReceiver();
 
+    /**
+     * An implementation of {@link ByteBufferMessageReceiver} used to process the received messages,
+     * reading payloads without copying them. Exactly one of this or {@link #getMessageReceiver()}
+     * must be set.
+     */
+    @Nullable
+    ByteBufferMessageReceiver getByteBufferMessageReceiver();
+
     /**
      * Whether {@link com.google.protobuf.ByteString} should wrap incoming network buffers instead
      * of copying. Can improve performance when dealing with large messages. If {@code true}, a
@@ -289,5 +679,87 @@ public class Subscriber implements Closeable, StreamObserver<StreamingPullRespon
     default boolean getUnsafeWrapBuffers() {
       return false;
     }
+
+    /**
+     * The {@link Executor} to call the {@link MessageReceiver} on. If not set, the receiver is
+     * called directly on the event loop of the stream, so it must not block. Set to a thread pool
+     * for receivers that do blocking I/O. Outstanding messages are limited by {@link
+     * #getMaxOutstandingMessages()}, which also bounds the number of queued messages. On Java 21
+     * and later, {@code Executors.newVirtualThreadPerTaskExecutor()} can be used to process each
+     * message on its own virtual thread. If the executor rejects a message, it is nacked.
+     */
+    @Nullable
+    Executor getExecutor();
+
+    /**
+     * Whether to process messages with the same ordering key one at a time, in the order they were
+     * received, while messages with different keys are processed in parallel. The next message of a
+     * key is dispatched after the previous one has been acked or nacked. Should be enabled when
+     * message ordering is enabled on the subscription. Messages without an ordering key are not
+     * affected.
+     */
+    default boolean getOrderedDelivery() {
+      return false;
+    }
+
+    /**
+     * The maximum time to wait before sending an ack or nack, so it can be sent in the same request
+     * as others. If zero, acks and nacks are sent immediately. Defaults to 100ms.
+     */
+    default Duration getAckBatchWindow() {
+      return Duration.ofMillis(100);
+    }
+
+    /** The maximum number of acks and nacks to send in a single request. Defaults to 1000. */
+    default int getMaxAckBatchSize() {
+      return 1000;
+    }
+
+    /** The maximum total size of ack IDs to send in a single request. Defaults to 512KB. */
+    default long getMaxAckBatchBytes() {
+      return 512 * 1024;
+    }
+
+    /**
+     * The maximum time to keep extending the ack deadline of a message that is still being
+     * processed, after which it may be redelivered. If zero, ack deadlines are not extended.
+     * Defaults to 60 minutes.
+     */
+    default Duration getMaxAckExtensionPeriod() {
+      return Duration.ofMinutes(60);
+    }
+
+    /**
+     * The maximum number of messages that have been received but not acked or nacked yet. No more
+     * messages are pulled while at the limit. If zero, there is no limit. Defaults to 1000.
+     */
+    default long getMaxOutstandingMessages() {
+      return 1000;
+    }
+
+    /**
+     * The maximum total size of messages that have been received but not acked or nacked yet. No
+     * more messages are pulled while at the limit. If zero, there is no limit. Defaults to 100MB.
+     */
+    default long getMaxOutstandingBytes() {
+      return 100 * 1024 * 1024;
+    }
+
+    /**
+     * The number of {@code streamingPull} streams to open for the subscription, each on its own
+     * connection and event loop. Increase to receive more messages than a single stream can handle.
+     * Defaults to 1.
+     */
+    default int getParallelPullCount() {
+      return 1;
+    }
+
+    @Check
+    default void check() {
+      checkArgument(getParallelPullCount() > 0, "parallelPullCount must be positive.");
+      checkArgument(
+          (getMessageReceiver() == null) != (getByteBufferMessageReceiver() == null),
+          "Exactly one of messageReceiver or byteBufferMessageReceiver must be set.");
+    }
   }
 }
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.linecorp.armeria.common.CommonPools;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.jupiter.api.Test;
+
+class AckBatcherTest {
+
+  private final ConcurrentLinkedQueue<StreamingPullRequest> requests =
+      new ConcurrentLinkedQueue<>();
+
+  private final StreamObserver<StreamingPullRequest> requestObserver =
+      new StreamObserver<>() {
+        @Override
+        public void onNext(StreamingPullRequest value) {
+          requests.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {}
+
+        @Override
+        public void onCompleted() {}
+      };
+
+  @Test
+  void coalescesWithinWindow() {
+    AckBatcher batcher = batcher(Duration.ofMillis(50), 100);
+
+    batcher.ack("a");
+    batcher.ack("b");
+    batcher.modifyDeadline("c", 0);
+    assertThat(requests).isEmpty();
+
+    await().untilAsserted(() -> assertThat(requests).hasSize(1));
+    StreamingPullRequest request = requests.peek();
+    assertThat(request.getAckIdsList()).containsExactly("a", "b");
+    assertThat(request.getModifyDeadlineAckIdsList()).containsExactly("c");
+    assertThat(request.getModifyDeadlineSecondsList()).containsExactly(0);
+  }
+
+  @Test
+  void flushesWhenFull() {
+    AckBatcher batcher = batcher(Duration.ofHours(1), 2);
+
+    batcher.ack("a");
+    assertThat(requests).isEmpty();
+    batcher.ack("b");
+    assertThat(requests).singleElement().extracting(r -> r.getAckIdsCount()).isEqualTo(2);
+
+    batcher.ack("c");
+    batcher.flush();
+    assertThat(requests).hasSize(2);
+  }
+
+  @Test
+  void sendsInitialRequestBeforeHeldAcks() {
+    AckBatcher batcher = unopenedBatcher(Duration.ZERO, 100);
+
+    batcher.ack("a");
+    assertThat(requests).isEmpty();
+
+    StreamingPullRequest initial =
+        StreamingPullRequest.newBuilder().setSubscription("subscription").build();
+    batcher.open(requestObserver, initial);
+    assertThat(requests).hasSize(2);
+    assertThat(requests.poll()).isEqualTo(initial);
+    assertThat(requests.poll().getAckIdsList()).containsExactly("a");
+
+    batcher.detach();
+    batcher.ack("b");
+    assertThat(requests).isEmpty();
+  }
+
+  @Test
+  void dropsAcksAfterClose() throws Exception {
+    AckBatcher batcher = batcher(Duration.ofMillis(10), 100);
+
+    batcher.ack("a");
+    assertThat(batcher.close()).isTrue();
+    assertThat(requests).singleElement().extracting(r -> r.getAckIdsCount()).isEqualTo(1);
+    requests.clear();
+
+    batcher.ack("b");
+    batcher.modifyDeadline("c", 0);
+    batcher.flush();
+    Thread.sleep(50);
+    assertThat(requests).isEmpty();
+    assertThat(batcher.hasFlushTimer()).isFalse();
+  }
+
+  @Test
+  void closeWithoutStreamCancelsTimer() throws Exception {
+    AckBatcher batcher = unopenedBatcher(Duration.ofMillis(10), 100);
+
+    batcher.ack("a");
+    assertThat(batcher.hasFlushTimer()).isTrue();
+    assertThat(batcher.close()).isFalse();
+    assertThat(batcher.hasFlushTimer()).isFalse();
+
+    batcher.ack("b");
+    assertThat(batcher.hasFlushTimer()).isFalse();
+    batcher.open(requestObserver, StreamingPullRequest.getDefaultInstance());
+    assertThat(requests).isEmpty();
+  }
+
+  private AckBatcher batcher(Duration window, int maxAckIds) {
+    AckBatcher batcher = unopenedBatcher(window, maxAckIds);
+    batcher.open(requestObserver, StreamingPullRequest.getDefaultInstance());
+    requests.clear();
+    return batcher;
+  }
+
+  private static AckBatcher unopenedBatcher(Duration window, int maxAckIds) {
+    return new AckBatcher(
+        CommonPools.workerGroup().next(),
+        window,
+        maxAckIds,
+        1024 * 1024,
+        new SimpleMeterRegistry().counter("requests"));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.linecorp.armeria.common.CommonPools;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LeaseManagerTest {
+
+  private final List<StreamingPullRequest> requests = new ArrayList<>();
+
+  private long nanoTime;
+
+  private LeaseManager leaseManager;
+
+  @BeforeEach
+  void setUp() {
+    StreamObserver<StreamingPullRequest> requestObserver =
+        new StreamObserver<>() {
+          @Override
+          public void onNext(StreamingPullRequest value) {
+            requests.add(value);
+          }
+
+          @Override
+          public void onError(Throwable t) {}
+
+          @Override
+          public void onCompleted() {}
+        };
+    AckBatcher ackBatcher =
+        new AckBatcher(
+            CommonPools.workerGroup().next(),
+            Duration.ZERO,
+            1000,
+            1024 * 1024,
+            new SimpleMeterRegistry().counter("requests"));
+    ackBatcher.open(requestObserver, StreamingPullRequest.getDefaultInstance());
+    requests.clear();
+    leaseManager = new LeaseManager(ackBatcher, Duration.ofMinutes(3), () -> nanoTime);
+  }
+
+  @Test
+  void extendsUntilMaxExtension() {
+    leaseManager.add("slow");
+    leaseManager.add("fast");
+
+    advanceSeconds(30);
+    leaseManager.extendLeases();
+    assertThat(requests).isEmpty();
+
+    leaseManager.remove("fast", TimeUnit.SECONDS.toNanos(30));
+    advanceSeconds(25);
+    leaseManager.extendLeases();
+    assertThat(requests).hasSize(2);
+    // The deadline follows the processing time of the fast message.
+    assertThat(requests.get(0).getStreamAckDeadlineSeconds()).isEqualTo(30);
+    assertThat(requests.get(1).getModifyDeadlineAckIdsList()).containsExactly("slow");
+    assertThat(requests.get(1).getModifyDeadlineSecondsList()).containsExactly(30);
+
+    // Keeps extending up to 3 minutes after receiving the message, then lets it be redelivered.
+    for (int i = 0; i < 130; i++) {
+      advanceSeconds(1);
+      leaseManager.extendLeases();
+    }
+    assertThat(leaseManager.size()).isZero();
+    assertThat(requests)
+        .flatExtracting(StreamingPullRequest::getModifyDeadlineSecondsList)
+        .containsExactly(30, 30, 30, 30, 29);
+  }
+
+  @Test
+  void deadlineFollowsRecentProcessingTime() {
+    for (int i = 0; i < 100; i++) {
+      leaseManager.remove("slow", TimeUnit.SECONDS.toNanos(40));
+    }
+    leaseManager.extendLeases();
+    assertThat(leaseManager.ackDeadlineSeconds()).isEqualTo(40);
+
+    // Older processing times decay, so faster processing lowers the deadline again even though
+    // the slow messages are still more than 1% of all messages processed.
+    for (int minute = 0; minute < 8; minute++) {
+      for (int i = 0; i < 200; i++) {
+        leaseManager.remove("fast", TimeUnit.SECONDS.toNanos(1));
+      }
+      advanceSeconds(60);
+      leaseManager.extendLeases();
+    }
+    assertThat(leaseManager.ackDeadlineSeconds()).isEqualTo(LeaseManager.MIN_ACK_DEADLINE_SECONDS);
+  }
+
+  private void advanceSeconds(long seconds) {
+    nanoTime += TimeUnit.SECONDS.toNanos(seconds);
+  }
+}
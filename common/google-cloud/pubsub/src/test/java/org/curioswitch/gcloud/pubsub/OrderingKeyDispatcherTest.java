@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OrderingKeyDispatcherTest {
+
+  private final DistributionSummary queueDepth =
+      DistributionSummary.builder("queue-depth").register(new SimpleMeterRegistry());
+
+  private final OrderingKeyDispatcher dispatcher = new OrderingKeyDispatcher(queueDepth);
+
+  private final List<String> dispatched = new ArrayList<>();
+
+  @Test
+  void serialWithinKey() {
+    dispatcher.submit("a", () -> dispatched.add("a1"));
+    dispatcher.submit("a", () -> dispatched.add("a2"));
+    dispatcher.submit("a", () -> dispatched.add("a3"));
+    assertThat(dispatched).containsExactly("a1");
+    assertThat(queueDepth.max()).isEqualTo(2);
+
+    dispatcher.complete("a");
+    assertThat(dispatched).containsExactly("a1", "a2");
+    dispatcher.complete("a");
+    assertThat(dispatched).containsExactly("a1", "a2", "a3");
+    assertThat(dispatcher.activeKeys()).isEqualTo(1);
+
+    dispatcher.complete("a");
+    assertThat(dispatcher.activeKeys()).isZero();
+
+    dispatcher.submit("a", () -> dispatched.add("a4"));
+    assertThat(dispatched).containsExactly("a1", "a2", "a3", "a4");
+  }
+
+  @Test
+  void parallelAcrossKeys() {
+    dispatcher.submit("a", () -> dispatched.add("a1"));
+    dispatcher.submit("b", () -> dispatched.add("b1"));
+    dispatcher.submit("a", () -> dispatched.add("a2"));
+    dispatcher.submit("c", () -> dispatched.add("c1"));
+    assertThat(dispatched).containsExactly("a1", "b1", "c1");
+    assertThat(dispatcher.activeKeys()).isEqualTo(3);
+
+    dispatcher.complete("b");
+    assertThat(dispatched).containsExactly("a1", "b1", "c1");
+    dispatcher.complete("a");
+    assertThat(dispatched).containsExactly("a1", "b1", "c1", "a2");
+    assertThat(dispatcher.activeKeys()).isEqualTo(2);
+  }
+}
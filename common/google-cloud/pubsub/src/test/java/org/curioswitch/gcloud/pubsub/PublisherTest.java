@@ -24,10 +24,163 @@
 
 package org.curioswitch.gcloud.pubsub;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import brave.Tracing;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc.PublisherFutureStub;
+import com.google.pubsub.v1.PublisherGrpc.PublisherImplBase;
+import com.google.pubsub.v1.PubsubMessage;
+import com.linecorp.armeria.client.grpc.GrpcClients;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.grpc.GrpcService;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.curioswitch.gcloud.pubsub.Publisher.PublisherOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 class PublisherTest {
 
+  private final ConcurrentLinkedQueue<PublishRequest> requests = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Runnable> heldResponses = new ConcurrentLinkedQueue<>();
+
+  private volatile boolean holdResponses;
+
+  private Server server;
+  private PublisherFutureStub stub;
+
+  @BeforeEach
+  void setUp() {
+    server =
+        Server.builder()
+            .http(0)
+            .service(
+                GrpcService.builder()
+                    .addService(
+                        new PublisherImplBase() {
+                          @Override
+                          public void publish(
+                              PublishRequest request,
+                              StreamObserver<PublishResponse> responseObserver) {
+                            requests.add(request);
+                            Runnable respond =
+                                () -> {
+                                  responseObserver.onNext(
+                                      PublishResponse.newBuilder()
+                                          .addAllMessageIds(
+                                              request.getMessagesList().stream()
+                                                  .map(m -> "id-" + m.getData().toStringUtf8())
+                                                  .collect(Collectors.toList()))
+                                          .build());
+                                  responseObserver.onCompleted();
+                                };
+                            if (holdResponses) {
+                              heldResponses.add(respond);
+                            } else {
+                              respond.run();
+                            }
+                          }
+                        })
+                    .build())
+            .build();
+    server.start().join();
+
+    stub =
+        GrpcClients.newClient(
+            "http://127.0.0.1:" + server.activeLocalPort(), PublisherFutureStub.class);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void batchesByCount() throws Exception {
+    Publisher publisher =
+        publisher(
+            Publisher.newOptions("projects/test/topics/test")
+                .maxBatchMessages(10)
+                .maxBatchDelay(Duration.ofHours(1))
+                .build());
+
+    List<ListenableFuture<String>> results = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      results.add(publisher.publish(message(i)));
+    }
+    await().untilAsserted(() -> assertThat(requests).hasSize(2));
+
+    publisher.flush();
+    for (int i = 0; i < 25; i++) {
+      assertThat(results.get(i).get()).isEqualTo("id-" + i);
+    }
+    assertThat(requests)
+        .extracting(PublishRequest::getMessagesCount)
+        .containsExactlyInAnyOrder(10, 10, 5);
+  }
+
+  @Test
+  void flushesAfterDelay() throws Exception {
+    Publisher publisher =
+        publisher(
+            Publisher.newOptions("projects/test/topics/test")
+                .maxBatchDelay(Duration.ofMillis(50))
+                .build());
+
+    ListenableFuture<String> first = publisher.publish(message(1));
+    ListenableFuture<String> second = publisher.publish(message(2));
+
+    assertThat(first.get()).isEqualTo("id-1");
+    assertThat(second.get()).isEqualTo("id-2");
+    assertThat(requests).singleElement().extracting(PublishRequest::getMessagesCount).isEqualTo(2);
+  }
+
   @Test
-  void normal() {}
+  void limitsOutstandingBytes() throws Exception {
+    holdResponses = true;
+    Publisher publisher =
+        publisher(
+            Publisher.newOptions("projects/test/topics/test")
+                .maxBatchDelay(Duration.ZERO)
+                .maxOutstandingBytes(6)
+                .build());
+
+    ListenableFuture<String> first = publisher.publish(message(1));
+    assertThatThrownBy(() -> publisher.publish(message(2)).get())
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(StatusRuntimeException.class)
+        .satisfies(
+            t ->
+                assertThat(Status.fromThrowable(t).getCode())
+                    .isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+
+    await().untilAsserted(() -> assertThat(heldResponses).hasSize(1));
+    heldResponses.poll().run();
+    assertThat(first.get()).isEqualTo("id-1");
+
+    holdResponses = false;
+    assertThat(publisher.publish(message(3)).get()).isEqualTo("id-3");
+  }
+
+  private Publisher publisher(PublisherOptions options) {
+    return new Publisher(stub, Tracing.newBuilder().build(), options);
+  }
+
+  private static PubsubMessage message(int i) {
+    return PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(String.valueOf(i))).build();
+  }
 }
@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import brave.Tracing;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.SubscriberGrpc.SubscriberImplBase;
+import com.google.pubsub.v1.SubscriberGrpc.SubscriberStub;
+import com.linecorp.armeria.client.grpc.GrpcClients;
+import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.server.grpc.GrpcService;
+import io.grpc.stub.StreamObserver;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SubscriberTest {
+
+  private static final int NUM_MESSAGES = 10;
+
+  private final ConcurrentLinkedQueue<StreamingPullRequest> requests =
+      new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<AckReplyConsumer> received = new ConcurrentLinkedQueue<>();
+  private final Set<SocketAddress> streamAddresses = ConcurrentHashMap.newKeySet();
+
+  private Server server;
+  private SubscriberStub stub;
+
+  @BeforeEach
+  void setUp() {
+    server =
+        Server.builder()
+            .http(0)
+            .service(
+                GrpcService.builder()
+                    .addService(
+                        new SubscriberImplBase() {
+                          @Override
+                          public StreamObserver<StreamingPullRequest> streamingPull(
+                              StreamObserver<StreamingPullResponse> responseObserver) {
+                            return new StreamObserver<>() {
+                              @Override
+                              public void onNext(StreamingPullRequest request) {
+                                requests.add(request);
+                                if (!request.getSubscription().isEmpty()) {
+                                  streamAddresses.add(
+                                      ServiceRequestContext.current().remoteAddress());
+                                  for (int i = 0; i < NUM_MESSAGES; i++) {
+                                    responseObserver.onNext(response(i));
+                                  }
+                                }
+                              }
+
+                              @Override
+                              public void onError(Throwable t) {}
+
+                              @Override
+                              public void onCompleted() {
+                                responseObserver.onCompleted();
+                              }
+                            };
+                          }
+                        })
+                    .build())
+            .build();
+    server.start().join();
+
+    stub =
+        GrpcClients.builder("http://127.0.0.1:" + server.activeLocalPort())
+            .responseTimeout(Duration.ZERO)
+            .build(SubscriberStub.class);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop().join();
+  }
+
+  @Test
+  void limitsOutstandingMessages() throws Exception {
+    Subscriber subscriber =
+        new Subscriber(
+            stub,
+            Optional.empty(),
+            Tracing.newBuilder().build(),
+            Subscriber.newOptions(
+                    "projects/test/subscriptions/test", (message, reply) -> received.add(reply))
+                .maxOutstandingMessages(3)
+                .ackBatchWindow(Duration.ZERO)
+                .build());
+    subscriber.start();
+
+    await().untilAsserted(() -> assertThat(received).hasSize(3));
+    assertThat(requests.peek().getMaxOutstandingMessages()).isEqualTo(3);
+    Thread.sleep(200);
+    assertThat(received).hasSize(3);
+
+    received.peek().ack();
+    await().untilAsserted(() -> assertThat(received).hasSize(4));
+    await()
+        .untilAsserted(
+            () -> assertThat(requests).anySatisfy(r -> assertThat(r.getAckIdsCount()).isOne()));
+
+    subscriber.close();
+  }
+
+  @Test
+  void parallelPull() {
+    Subscriber subscriber =
+        new Subscriber(
+            stub,
+            Optional.empty(),
+            Tracing.newBuilder().build(),
+            Subscriber.newOptions(
+                    "projects/test/subscriptions/test", (message, reply) -> received.add(reply))
+                .parallelPullCount(3)
+                .maxOutstandingMessages(0)
+                .build());
+    subscriber.start();
+
+    await().untilAsserted(() -> assertThat(received).hasSize(NUM_MESSAGES * 3));
+    // Each stream is on its own connection.
+    assertThat(streamAddresses).hasSize(3);
+
+    subscriber.close();
+  }
+
+  @Test
+  void dispatchesOnExecutor() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    ConcurrentLinkedQueue<RequestContext> contexts = new ConcurrentLinkedQueue<>();
+    Subscriber subscriber =
+        new Subscriber(
+            stub,
+            Optional.empty(),
+            Tracing.newBuilder().build(),
+            Subscriber.newOptions(
+                    "projects/test/subscriptions/test",
+                    (message, reply) -> {
+                      threads.add(Thread.currentThread());
+                      contexts.add(RequestContext.current());
+                      reply.ack();
+                      received.add(reply);
+                    })
+                .executor(executor)
+                .unsafeWrapBuffers(true)
+                .build());
+    subscriber.start();
+
+    await().untilAsserted(() -> assertThat(received).hasSize(NUM_MESSAGES));
+    assertThat(threads).allSatisfy(t -> assertThat(t).isNotInstanceOf(FastThreadLocalThread.class));
+    assertThat(contexts).hasSize(NUM_MESSAGES);
+
+    subscriber.close();
+    executor.shutdown();
+  }
+
+  @Test
+  void byteBufferReceiver() {
+    Set<String> data = ConcurrentHashMap.newKeySet();
+    Subscriber subscriber =
+        new Subscriber(
+            stub,
+            Optional.empty(),
+            Tracing.newBuilder().build(),
+            Subscriber.newOptions(
+                    "projects/test/subscriptions/test",
+                    (message, buffer, reply) -> {
+                      assertThat(buffer.isReadOnly()).isTrue();
+                      data.add(StandardCharsets.UTF_8.decode(buffer).toString());
+                      reply.ack();
+                    })
+                .unsafeWrapBuffers(true)
+                .ackBatchWindow(Duration.ZERO)
+                .build());
+    subscriber.start();
+
+    await().untilAsserted(() -> assertThat(data).hasSize(NUM_MESSAGES));
+    await()
+        .untilAsserted(
+            () ->
+                assertThat(requests.stream().mapToInt(StreamingPullRequest::getAckIdsCount).sum())
+                    .isEqualTo(NUM_MESSAGES));
+
+    subscriber.close();
+  }
+
+  private static StreamingPullResponse response(int i) {
+    return StreamingPullResponse.newBuilder()
+        .addReceivedMessages(
+            ReceivedMessage.newBuilder()
+                .setAckId("ack-" + i)
+                .setMessage(
+                    PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(String.valueOf(i)))))
+        .build();
+  }
+}
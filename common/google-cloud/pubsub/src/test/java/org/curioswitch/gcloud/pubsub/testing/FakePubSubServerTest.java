@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub.testing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.curioswitch.gcloud.pubsub.Publisher;
+import org.curioswitch.gcloud.pubsub.Subscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FakePubSubServerTest {
+
+  private static final String TOPIC = "projects/test/topics/topic";
+  private static final String SUBSCRIPTION = "projects/test/subscriptions/subscription";
+
+  private FakePubSubServer server;
+
+  @BeforeEach
+  void setUp() {
+    server = FakePubSubServer.builder().maxMessagesPerResponse(3).build().start();
+    server.createTopic(TOPIC);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @Test
+  void publishesAndSubscribes() throws Exception {
+    server.createSubscription(SUBSCRIPTION, TOPIC, false);
+    Set<String> received = ConcurrentHashMap.newKeySet();
+    Set<String> nacked = ConcurrentHashMap.newKeySet();
+    Subscriber subscriber =
+        server.newSubscriber(
+            Subscriber.newOptions(
+                    SUBSCRIPTION,
+                    (message, reply) -> {
+                      String data = message.getData().toStringUtf8();
+                      // Nack every message once.
+                      if (nacked.add(data)) {
+                        reply.nack();
+                      } else {
+                        received.add(data);
+                        reply.ack();
+                      }
+                    })
+                .ackBatchWindow(Duration.ZERO)
+                .build());
+    subscriber.start();
+
+    Publisher publisher = server.newPublisher(Publisher.newOptions(TOPIC).build());
+    List<ListenableFuture<String>> ids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ids.add(publisher.publish(message("", i)));
+    }
+    publisher.flush();
+    for (ListenableFuture<String> id : ids) {
+      assertThat(id.get()).isNotEmpty();
+    }
+
+    await().untilAsserted(() -> assertThat(server.numAcked(SUBSCRIPTION)).isEqualTo(20));
+    assertThat(received).hasSize(20);
+    assertThat(server.numDeliveries(SUBSCRIPTION)).isEqualTo(40);
+    assertThat(server.backlog(SUBSCRIPTION)).isZero();
+
+    subscriber.close();
+  }
+
+  @Test
+  void redeliversAfterDeadline() {
+    server.createSubscription(SUBSCRIPTION, TOPIC, false);
+    ConcurrentLinkedQueue<ReceivedMessage> received = new ConcurrentLinkedQueue<>();
+    StreamObserver<StreamingPullRequest> requests =
+        server
+            .newSubscriberStub()
+            .streamingPull(
+                new StreamObserver<>() {
+                  @Override
+                  public void onNext(StreamingPullResponse value) {
+                    received.addAll(value.getReceivedMessagesList());
+                  }
+
+                  @Override
+                  public void onError(Throwable t) {}
+
+                  @Override
+                  public void onCompleted() {}
+                });
+    requests.onNext(
+        StreamingPullRequest.newBuilder()
+            .setSubscription(SUBSCRIPTION)
+            .setStreamAckDeadlineSeconds(1)
+            .build());
+    await().untilAsserted(() -> assertThat(server.numRequests()).isOne());
+
+    server.publish(TOPIC, message("", 0));
+    await().untilAsserted(() -> assertThat(received).hasSize(1));
+    await().untilAsserted(() -> assertThat(received).hasSize(2));
+    ReceivedMessage redelivered = received.stream().skip(1).findFirst().get();
+    assertThat(redelivered.getDeliveryAttempt()).isEqualTo(2);
+    assertThat(redelivered.getAckId()).isNotEqualTo(received.peek().getAckId());
+
+    requests.onNext(StreamingPullRequest.newBuilder().addAckIds(redelivered.getAckId()).build());
+    await().untilAsserted(() -> assertThat(server.backlog(SUBSCRIPTION)).isZero());
+    requests.onCompleted();
+  }
+
+  @Test
+  void orderingKeys() {
+    server.createSubscription(SUBSCRIPTION, TOPIC, true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Map<String, List<Integer>> acked = new ConcurrentHashMap<>();
+    Set<String> nacked = ConcurrentHashMap.newKeySet();
+    Subscriber subscriber =
+        server.newSubscriber(
+            Subscriber.newOptions(
+                    SUBSCRIPTION,
+                    (message, reply) -> {
+                      String data = message.getData().toStringUtf8();
+                      // Redelivering a message also redelivers the later ones of its key.
+                      if (data.endsWith("-5") && nacked.add(data)) {
+                        reply.nack();
+                        return;
+                      }
+                      acked
+                          .computeIfAbsent(message.getOrderingKey(), unused -> new ArrayList<>())
+                          .add(Integer.parseInt(data.substring(data.indexOf('-') + 1)));
+                      reply.ack();
+                    })
+                .orderedDelivery(true)
+                .executor(executor)
+                .build());
+    subscriber.start();
+
+    for (int i = 0; i < 10; i++) {
+      for (String key : new String[] {"a", "b", "c"}) {
+        server.publish(TOPIC, message(key, i));
+      }
+    }
+
+    await().untilAsserted(() -> assertThat(server.backlog(SUBSCRIPTION)).isZero());
+    assertThat(acked).containsOnlyKeys("a", "b", "c");
+    assertThat(acked.values())
+        .allSatisfy(
+            values -> {
+              // Messages after 5 may have been acked before 5 was nacked, but are all redelivered
+              // in order after it.
+              assertThat(values.subList(0, 5)).containsExactly(0, 1, 2, 3, 4);
+              assertThat(values.subList(values.indexOf(5), values.size()))
+                  .containsExactly(5, 6, 7, 8, 9);
+              assertThat(values.subList(5, values.indexOf(5))).isSorted();
+            });
+
+    subscriber.close();
+    executor.shutdown();
+  }
+
+  @Test
+  void reconnectsAfterFailures() {
+    server.createSubscription(SUBSCRIPTION, TOPIC, false);
+    Set<String> received = ConcurrentHashMap.newKeySet();
+    server.failNextRequests(2);
+    Subscriber subscriber =
+        server.newSubscriber(
+            Subscriber.newOptions(
+                    SUBSCRIPTION,
+                    (message, reply) -> {
+                      received.add(message.getData().toStringUtf8());
+                      reply.ack();
+                    })
+                .build());
+    subscriber.start();
+
+    server.publish(TOPIC, message("", 0));
+    await().untilAsserted(() -> assertThat(received).containsExactly("-0"));
+
+    server.abortStreams();
+    server.publish(TOPIC, message("", 1));
+    await().untilAsserted(() -> assertThat(received).containsExactlyInAnyOrder("-0", "-1"));
+    assertThat(server.numRequests()).isGreaterThanOrEqualTo(4);
+
+    subscriber.close();
+  }
+
+  private static PubsubMessage message(String orderingKey, int i) {
+    return PubsubMessage.newBuilder()
+        .setData(ByteString.copyFromUtf8(orderingKey + "-" + i))
+        .setOrderingKey(orderingKey)
+        .build();
+  }
+}
@@ -0,0 +1,738 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.gcloud.pubsub.testing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import brave.Tracing;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc.PublisherFutureStub;
+import com.google.pubsub.v1.PublisherGrpc.PublisherImplBase;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.SubscriberGrpc.SubscriberImplBase;
+import com.google.pubsub.v1.SubscriberGrpc.SubscriberStub;
+import com.linecorp.armeria.client.grpc.GrpcClients;
+import com.linecorp.armeria.common.CommonPools;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.server.grpc.GrpcService;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.netty.channel.EventLoop;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.curioswitch.gcloud.pubsub.Publisher;
+import org.curioswitch.gcloud.pubsub.Publisher.PublisherOptions;
+import org.curioswitch.gcloud.pubsub.Subscriber;
+import org.curioswitch.gcloud.pubsub.Subscriber.SubscriberOptions;
+
+/**
+ * An in-memory fake of the Cloud Pub/Sub Publisher and Subscriber gRPC services, for testing and
+ * benchmarking {@link Publisher} and {@link Subscriber} without the real service. Messages
+ * published to a topic are delivered to each of its subscriptions over {@code streamingPull},
+ * within the flow control limits of each stream, and are redelivered when nacked or when their ack
+ * deadline expires. For subscriptions with message ordering, messages with the same ordering key
+ * are delivered in the order they were published, all to the same stream, and redelivering a
+ * message also redelivers the messages of its key delivered after it. Latency and failures can be
+ * injected. Only the RPCs used by {@link Publisher} and {@link Subscriber} are implemented, topics
+ * and subscriptions are created with {@link #createTopic(String)} and {@link
+ * #createSubscription(String, String, boolean)}.
+ *
+ * <pre>{@code
+ * try (FakePubSubServer server = FakePubSubServer.builder().build().start()) {
+ *   server.createTopic("projects/test/topics/topic");
+ *   server.createSubscription(
+ *       "projects/test/subscriptions/subscription", "projects/test/topics/topic", false);
+ *   Publisher publisher = server.newPublisher(Publisher.newOptions("projects/test/topics/topic"));
+ *   ...
+ * }
+ * }</pre>
+ */
+public final class FakePubSubServer implements AutoCloseable {
+
+  /** Returns a new {@link Builder} of a {@link FakePubSubServer}. */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** A builder of {@link FakePubSubServer}. */
+  public static final class Builder {
+    private Duration latency = Duration.ZERO;
+    private double failureRate;
+    private int maxMessagesPerResponse = 100;
+
+    private Builder() {}
+
+    /** The latency to add to every response and streamed message. Defaults to none. */
+    public Builder latency(Duration latency) {
+      checkArgument(!latency.isNegative(), "latency must not be negative.");
+      this.latency = latency;
+      return this;
+    }
+
+    /**
+     * The fraction of publish requests and new {@code streamingPull} streams, between 0 and 1, that
+     * fail with {@link Status#UNAVAILABLE}. Defaults to 0.
+     */
+    public Builder failureRate(double failureRate) {
+      checkArgument(failureRate >= 0 && failureRate <= 1, "failureRate must be between 0 and 1.");
+      this.failureRate = failureRate;
+      return this;
+    }
+
+    /**
+     * The maximum number of messages in a single {@code streamingPull} response. Defaults to 100.
+     */
+    public Builder maxMessagesPerResponse(int maxMessagesPerResponse) {
+      checkArgument(maxMessagesPerResponse > 0, "maxMessagesPerResponse must be positive.");
+      this.maxMessagesPerResponse = maxMessagesPerResponse;
+      return this;
+    }
+
+    /** Returns a new {@link FakePubSubServer}, which must be started with {@link #start()}. */
+    public FakePubSubServer build() {
+      return new FakePubSubServer(this);
+    }
+  }
+
+  // The ack deadline of streams that don't specify one, the minimum allowed by Cloud Pub/Sub.
+  private static final int DEFAULT_ACK_DEADLINE_SECONDS = 10;
+
+  private static final Duration EXPIRATION_INTERVAL = Duration.ofMillis(100);
+
+  private final Duration latency;
+  private final double failureRate;
+  private final int maxMessagesPerResponse;
+
+  private final Map<String, List<FakeSubscription>> topics = new ConcurrentHashMap<>();
+  private final Map<String, FakeSubscription> subscriptions = new ConcurrentHashMap<>();
+  private final Set<PullStream> streams = ConcurrentHashMap.newKeySet();
+  private final AtomicLong nextMessageId = new AtomicLong();
+  private final AtomicLong nextAckId = new AtomicLong();
+  private final AtomicInteger numRequests = new AtomicInteger();
+  private final AtomicInteger pendingFailures = new AtomicInteger();
+
+  private final Server server;
+  private final Tracing tracing = Tracing.newBuilder().build();
+
+  @Nullable private ScheduledFuture<?> expirationFuture;
+
+  private FakePubSubServer(Builder builder) {
+    latency = builder.latency;
+    failureRate = builder.failureRate;
+    maxMessagesPerResponse = builder.maxMessagesPerResponse;
+
+    server =
+        Server.builder()
+            .http(0)
+            .requestTimeout(Duration.ZERO)
+            .service(
+                GrpcService.builder()
+                    .addService(new FakePublisher())
+                    .addService(new FakeSubscriber())
+                    .build())
+            .build();
+  }
+
+  /** Starts the server, returning this for chaining. */
+  public FakePubSubServer start() {
+    server.start().join();
+    expirationFuture =
+        CommonPools.workerGroup()
+            .scheduleAtFixedRate(
+                () -> subscriptions.values().forEach(FakeSubscription::expireLeases),
+                EXPIRATION_INTERVAL.toMillis(),
+                EXPIRATION_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  /** Stops the server. */
+  @Override
+  public void close() {
+    if (expirationFuture != null) {
+      expirationFuture.cancel(false);
+    }
+    server.stop().join();
+    tracing.close();
+  }
+
+  /** Returns the URI of the server, e.g., {@code http://127.0.0.1:12345}. */
+  public String uri() {
+    checkState(server.activePorts().size() > 0, "Server is not started.");
+    return "http://127.0.0.1:" + server.activeLocalPort();
+  }
+
+  /** Returns a new {@link PublisherFutureStub} of the server. */
+  public PublisherFutureStub newPublisherStub() {
+    return GrpcClients.newClient(uri(), PublisherFutureStub.class);
+  }
+
+  /** Returns a new {@link SubscriberStub} of the server, suitable for {@code streamingPull}. */
+  public SubscriberStub newSubscriberStub() {
+    return GrpcClients.builder(uri())
+        .maxResponseLength(0)
+        .responseTimeout(Duration.ZERO)
+        .build(SubscriberStub.class);
+  }
+
+  /** Returns a new {@link Publisher} to the server with the {@code options}. */
+  public Publisher newPublisher(PublisherOptions options) {
+    return new Publisher(newPublisherStub(), tracing, options);
+  }
+
+  /** Returns a new {@link Subscriber} of the server with the {@code options}. */
+  public Subscriber newSubscriber(SubscriberOptions options) {
+    return new Subscriber(newSubscriberStub(), Optional.empty(), tracing, options);
+  }
+
+  /** Creates the {@code topic}, e.g., {@code projects/test/topics/topic}, if it doesn't exist. */
+  public void createTopic(String topic) {
+    topics.putIfAbsent(topic, new CopyOnWriteArrayList<>());
+  }
+
+  /**
+   * Creates the {@code subscription}, e.g., {@code projects/test/subscriptions/subscription}, to
+   * the {@code topic}, which must have been created. Only messages published after the subscription
+   * is created are delivered to it.
+   */
+  public void createSubscription(String subscription, String topic, boolean messageOrdering) {
+    List<FakeSubscription> topicSubscriptions = topics.get(topic);
+    checkArgument(topicSubscriptions != null, "Topic not found: %s", topic);
+    FakeSubscription fakeSubscription = new FakeSubscription(messageOrdering);
+    checkArgument(
+        subscriptions.putIfAbsent(subscription, fakeSubscription) == null,
+        "Subscription already exists: %s",
+        subscription);
+    topicSubscriptions.add(fakeSubscription);
+  }
+
+  /** Publishes the {@code message} to the {@code topic}, returning the ID of the message. */
+  public String publish(String topic, PubsubMessage message) {
+    List<FakeSubscription> topicSubscriptions = topics.get(topic);
+    checkArgument(topicSubscriptions != null, "Topic not found: %s", topic);
+    return publish(topicSubscriptions, message);
+  }
+
+  /**
+   * Fails the next {@code count} publish requests and new {@code streamingPull} streams with {@link
+   * Status#UNAVAILABLE}.
+   */
+  public void failNextRequests(int count) {
+    pendingFailures.set(count);
+  }
+
+  /**
+   * Closes all open {@code streamingPull} streams with {@link Status#UNAVAILABLE}, as Cloud Pub/Sub
+   * does periodically. Messages delivered on the streams can still be acked on other streams.
+   */
+  public void abortStreams() {
+    for (PullStream stream : streams) {
+      stream.abort(Status.UNAVAILABLE.withDescription("Stream aborted."));
+    }
+  }
+
+  /** Returns the total number of publish requests and {@code streamingPull} streams received. */
+  public int numRequests() {
+    return numRequests.get();
+  }
+
+  /** Returns the number of messages of the {@code subscription} that have been acked. */
+  public long numAcked(String subscription) {
+    FakeSubscription fakeSubscription = subscription(subscription);
+    synchronized (fakeSubscription) {
+      return fakeSubscription.numAcked;
+    }
+  }
+
+  /**
+   * Returns the number of times messages of the {@code subscription} have been delivered, including
+   * redeliveries.
+   */
+  public long numDeliveries(String subscription) {
+    FakeSubscription fakeSubscription = subscription(subscription);
+    synchronized (fakeSubscription) {
+      return fakeSubscription.numDeliveries;
+    }
+  }
+
+  /** Returns the number of messages of the {@code subscription} that have not been acked yet. */
+  public int backlog(String subscription) {
+    FakeSubscription fakeSubscription = subscription(subscription);
+    synchronized (fakeSubscription) {
+      return fakeSubscription.available.size() + fakeSubscription.leases.size();
+    }
+  }
+
+  private FakeSubscription subscription(String subscription) {
+    FakeSubscription fakeSubscription = subscriptions.get(subscription);
+    checkArgument(fakeSubscription != null, "Subscription not found: %s", subscription);
+    return fakeSubscription;
+  }
+
+  private String publish(List<FakeSubscription> topicSubscriptions, PubsubMessage message) {
+    String messageId = Long.toString(nextMessageId.incrementAndGet());
+    Instant now = Instant.now();
+    PubsubMessage published =
+        message.toBuilder()
+            .setMessageId(messageId)
+            .setPublishTime(
+                Timestamp.newBuilder().setSeconds(now.getEpochSecond()).setNanos(now.getNano()))
+            .build();
+    for (FakeSubscription subscription : topicSubscriptions) {
+      subscription.add(published);
+    }
+    return messageId;
+  }
+
+  private boolean shouldFail() {
+    numRequests.incrementAndGet();
+    return pendingFailures.getAndUpdate(count -> Math.max(0, count - 1)) > 0
+        || (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate);
+  }
+
+  private void respond(EventLoop eventLoop, Runnable response) {
+    if (latency.isZero()) {
+      eventLoop.execute(response);
+    } else {
+      eventLoop.schedule(response, latency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private final class FakePublisher extends PublisherImplBase {
+    @Override
+    public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+      EventLoop eventLoop = ServiceRequestContext.current().eventLoop();
+      if (shouldFail()) {
+        respond(
+            eventLoop,
+            () ->
+                responseObserver.onError(
+                    Status.UNAVAILABLE.withDescription("Injected failure.").asRuntimeException()));
+        return;
+      }
+      List<FakeSubscription> topicSubscriptions = topics.get(request.getTopic());
+      if (topicSubscriptions == null) {
+        respond(
+            eventLoop,
+            () ->
+                responseObserver.onError(
+                    Status.NOT_FOUND
+                        .withDescription("Topic not found: " + request.getTopic())
+                        .asRuntimeException()));
+        return;
+      }
+      PublishResponse.Builder response = PublishResponse.newBuilder();
+      for (PubsubMessage message : request.getMessagesList()) {
+        response.addMessageIds(FakePubSubServer.this.publish(topicSubscriptions, message));
+      }
+      PublishResponse built = response.build();
+      respond(
+          eventLoop,
+          () -> {
+            responseObserver.onNext(built);
+            responseObserver.onCompleted();
+          });
+    }
+  }
+
+  private final class FakeSubscriber extends SubscriberImplBase {
+    @Override
+    public StreamObserver<StreamingPullRequest> streamingPull(
+        StreamObserver<StreamingPullResponse> responseObserver) {
+      return new PullStream(
+          (ServerCallStreamObserver<StreamingPullResponse>) responseObserver,
+          ServiceRequestContext.current().eventLoop());
+    }
+  }
+
+  private static final class PendingMessage {
+    private final PubsubMessage message;
+    private int deliveryAttempt;
+
+    private PendingMessage(PubsubMessage message) {
+      this.message = message;
+    }
+  }
+
+  private static final class Lease {
+    private final String ackId;
+    private final PendingMessage pending;
+    private final PullStream stream;
+    private long deadlineNanos;
+    private boolean acked;
+
+    private Lease(String ackId, PendingMessage pending, PullStream stream, long deadlineNanos) {
+      this.ackId = ackId;
+      this.pending = pending;
+      this.stream = stream;
+      this.deadlineNanos = deadlineNanos;
+    }
+  }
+
+  /** The state of a subscription. All state is guarded by the subscription itself. */
+  private final class FakeSubscription {
+    private final boolean messageOrdering;
+
+    // Messages waiting to be delivered, in the order they will be delivered.
+    private final ArrayDeque<PendingMessage> available = new ArrayDeque<>();
+
+    // Delivered messages by ack ID, in the order they were delivered.
+    private final Map<String, Lease> leases = new LinkedHashMap<>();
+
+    // Delivered messages of each ordering key, in the order they were delivered. Further messages
+    // of a key are only delivered to the same stream while it has any.
+    private final Map<String, ArrayDeque<Lease>> keyLeases = new LinkedHashMap<>();
+
+    private final List<PullStream> pullStreams = new ArrayList<>();
+
+    private int nextStream;
+    private long numAcked;
+    private long numDeliveries;
+
+    private FakeSubscription(boolean messageOrdering) {
+      this.messageOrdering = messageOrdering;
+    }
+
+    private synchronized void add(PubsubMessage message) {
+      available.add(new PendingMessage(message));
+      deliver();
+    }
+
+    private synchronized void addStream(PullStream stream) {
+      pullStreams.add(stream);
+    }
+
+    private synchronized void removeStream(PullStream stream) {
+      pullStreams.remove(stream);
+    }
+
+    private synchronized void handle(PullStream stream, StreamingPullRequest request) {
+      if (request.getStreamAckDeadlineSeconds() > 0) {
+        stream.ackDeadlineSeconds = request.getStreamAckDeadlineSeconds();
+      }
+
+      for (String ackId : request.getAckIdsList()) {
+        Lease lease = leases.remove(ackId);
+        if (lease != null) {
+          ack(lease);
+        }
+      }
+
+      long now = System.nanoTime();
+      for (int i = 0; i < request.getModifyDeadlineAckIdsCount(); i++) {
+        Lease lease = leases.get(request.getModifyDeadlineAckIds(i));
+        if (lease == null) {
+          continue;
+        }
+        int seconds = request.getModifyDeadlineSeconds(i);
+        if (seconds == 0) {
+          redeliver(lease);
+        } else {
+          lease.deadlineNanos = now + TimeUnit.SECONDS.toNanos(seconds);
+        }
+      }
+
+      deliver();
+    }
+
+    private synchronized void expireLeases() {
+      long now = System.nanoTime();
+      List<Lease> expired = new ArrayList<>();
+      for (Lease lease : leases.values()) {
+        if (now - lease.deadlineNanos >= 0) {
+          expired.add(lease);
+        }
+      }
+      for (Lease lease : expired) {
+        // May have already been redelivered along with an earlier message of its ordering key.
+        if (leases.containsKey(lease.ackId)) {
+          redeliver(lease);
+        }
+      }
+      deliver();
+    }
+
+    private void ack(Lease lease) {
+      release(lease);
+      numAcked++;
+
+      String orderingKey = lease.pending.message.getOrderingKey();
+      ArrayDeque<Lease> delivered = keyLeases.get(orderingKey);
+      if (delivered != null) {
+        // Acked messages are kept until all earlier messages of the key are acked, in case they
+        // need to be redelivered.
+        lease.acked = true;
+        while (!delivered.isEmpty() && delivered.getFirst().acked) {
+          delivered.removeFirst();
+        }
+        if (delivered.isEmpty()) {
+          keyLeases.remove(orderingKey);
+        }
+      }
+    }
+
+    private void redeliver(Lease lease) {
+      String orderingKey = lease.pending.message.getOrderingKey();
+      ArrayDeque<Lease> delivered = keyLeases.get(orderingKey);
+      if (delivered == null) {
+        leases.remove(lease.ackId);
+        release(lease);
+        available.addFirst(lease.pending);
+        return;
+      }
+
+      // Cloud Pub/Sub also redelivers all messages of the key delivered after a redelivered one,
+      // even if they have been acked.
+      List<Lease> redelivered = new ArrayList<>();
+      while (!delivered.isEmpty() && delivered.getLast() != lease) {
+        redelivered.add(delivered.removeLast());
+      }
+      redelivered.add(delivered.removeLast());
+      if (delivered.isEmpty()) {
+        keyLeases.remove(orderingKey);
+      }
+      for (Lease keyLease : redelivered) {
+        if (!keyLease.acked) {
+          leases.remove(keyLease.ackId);
+          release(keyLease);
+        }
+        available.addFirst(keyLease.pending);
+      }
+    }
+
+    private void release(Lease lease) {
+      lease.stream.outstandingMessages--;
+      lease.stream.outstandingBytes -= lease.pending.message.getSerializedSize();
+    }
+
+    private synchronized void deliver() {
+      int numStreams = pullStreams.size();
+      if (numStreams == 0) {
+        return;
+      }
+      for (int i = 0; i < numStreams && !available.isEmpty(); i++) {
+        PullStream stream = pullStreams.get((nextStream + i) % numStreams);
+        StreamingPullResponse response = takeResponse(stream);
+        if (response != null) {
+          stream.send(response);
+        }
+      }
+      nextStream = (nextStream + 1) % numStreams;
+    }
+
+    @Nullable
+    private StreamingPullResponse takeResponse(PullStream stream) {
+      if (stream.closed || !stream.responseObserver.isReady()) {
+        return null;
+      }
+      StreamingPullResponse.Builder response = null;
+      long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(stream.ackDeadlineSeconds);
+      for (Iterator<PendingMessage> it = available.iterator();
+          it.hasNext() && stream.belowOutstandingLimits(); ) {
+        PendingMessage pending = it.next();
+        String orderingKey = pending.message.getOrderingKey();
+        ArrayDeque<Lease> delivered = null;
+        if (messageOrdering && !orderingKey.isEmpty()) {
+          delivered = keyLeases.get(orderingKey);
+          if (delivered != null && delivered.getFirst().stream != stream) {
+            continue;
+          }
+        }
+        it.remove();
+
+        pending.deliveryAttempt++;
+        Lease lease =
+            new Lease("ack-" + nextAckId.incrementAndGet(), pending, stream, deadlineNanos);
+        leases.put(lease.ackId, lease);
+        if (messageOrdering && !orderingKey.isEmpty()) {
+          if (delivered == null) {
+            delivered = new ArrayDeque<>();
+            keyLeases.put(orderingKey, delivered);
+          }
+          delivered.add(lease);
+        }
+        stream.outstandingMessages++;
+        stream.outstandingBytes += pending.message.getSerializedSize();
+        numDeliveries++;
+
+        if (response == null) {
+          response = StreamingPullResponse.newBuilder();
+        }
+        response.addReceivedMessages(
+            ReceivedMessage.newBuilder()
+                .setAckId(lease.ackId)
+                .setMessage(pending.message)
+                .setDeliveryAttempt(pending.deliveryAttempt));
+        if (response.getReceivedMessagesCount() == maxMessagesPerResponse) {
+          break;
+        }
+      }
+      return response != null ? response.build() : null;
+    }
+  }
+
+  private final class PullStream implements StreamObserver<StreamingPullRequest> {
+    private final ServerCallStreamObserver<StreamingPullResponse> responseObserver;
+    private final EventLoop eventLoop;
+
+    @Nullable private volatile FakeSubscription subscription;
+
+    // Whether messages are no longer delivered to the stream.
+    private volatile boolean closed;
+
+    // Whether the call has been completed, only accessed from the event loop.
+    private boolean completed;
+
+    // Guarded by the subscription.
+    private long maxOutstandingMessages;
+    private long maxOutstandingBytes;
+    private int ackDeadlineSeconds = DEFAULT_ACK_DEADLINE_SECONDS;
+    private long outstandingMessages;
+    private long outstandingBytes;
+
+    private PullStream(
+        ServerCallStreamObserver<StreamingPullResponse> responseObserver, EventLoop eventLoop) {
+      this.responseObserver = responseObserver;
+      this.eventLoop = eventLoop;
+
+      responseObserver.setOnReadyHandler(
+          () -> {
+            FakeSubscription subscription = this.subscription;
+            if (subscription != null) {
+              subscription.deliver();
+            }
+          });
+      responseObserver.setOnCancelHandler(
+          () -> {
+            completed = true;
+            remove();
+          });
+    }
+
+    @Override
+    public void onNext(StreamingPullRequest request) {
+      FakeSubscription subscription = this.subscription;
+      if (subscription == null) {
+        if (closed) {
+          return;
+        }
+        if (shouldFail()) {
+          abort(Status.UNAVAILABLE.withDescription("Injected failure."));
+          return;
+        }
+        subscription = subscriptions.get(request.getSubscription());
+        if (subscription == null) {
+          abort(
+              Status.NOT_FOUND.withDescription(
+                  "Subscription not found: " + request.getSubscription()));
+          return;
+        }
+        synchronized (subscription) {
+          maxOutstandingMessages = request.getMaxOutstandingMessages();
+          maxOutstandingBytes = request.getMaxOutstandingBytes();
+        }
+        this.subscription = subscription;
+        streams.add(this);
+        subscription.addStream(this);
+      }
+      subscription.handle(this, request);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      remove();
+    }
+
+    @Override
+    public void onCompleted() {
+      remove();
+      if (!completed) {
+        completed = true;
+        responseObserver.onCompleted();
+      }
+    }
+
+    private boolean belowOutstandingLimits() {
+      return (maxOutstandingMessages == 0 || outstandingMessages < maxOutstandingMessages)
+          && (maxOutstandingBytes == 0 || outstandingBytes < maxOutstandingBytes);
+    }
+
+    private void send(StreamingPullResponse response) {
+      respond(
+          eventLoop,
+          () -> {
+            if (!completed) {
+              responseObserver.onNext(response);
+            }
+          });
+    }
+
+    private void abort(Status status) {
+      // Stop delivering right away, messages that were already sent are still sent before the
+      // error.
+      remove();
+      eventLoop.execute(
+          () -> {
+            if (!completed) {
+              completed = true;
+              responseObserver.onError(status.asRuntimeException());
+            }
+          });
+    }
+
+    private void remove() {
+      // Delivered messages stay leased until they are acked or their deadline expires.
+      closed = true;
+      streams.remove(this);
+      FakeSubscription subscription = this.subscription;
+      if (subscription != null) {
+        subscription.removeStream(this);
+      }
+    }
+  }
+}
@@ -133,6 +133,7 @@ import org.curioswitch.common.server.framework.monitoring.RpcMetricLabels;
 import org.curioswitch.common.server.framework.monitoring.StackdriverReporter;
 import org.curioswitch.common.server.framework.security.HttpsOnlyService;
 import org.curioswitch.common.server.framework.security.SecurityModule;
+import org.curioswitch.common.server.framework.server.ConcurrencyLimitingService;
 import org.curioswitch.common.server.framework.server.HttpServiceDefinition;
 import org.curioswitch.common.server.framework.server.PostServerCustomizer;
 import org.curioswitch.common.server.framework.server.ServerShutDownDelayer;
@@ -324,6 +325,7 @@ public abstract class ServerModule {
       ServerConfig serverConfig,
       FirebaseAuthConfig authConfig,
       HttpsOnlyService.Factory httpsOnlyServiceFactory,
+      Lazy<ConcurrencyLimitingService.Factory> concurrencyLimitingServiceFactory,
       JavascriptStaticConfig javascriptStaticConfig,
       MonitoringConfig monitoringConfig,
       SecurityConfig securityConfig,
@@ -472,7 +474,8 @@ public abstract class ServerModule {
                     jwtAuthorizer,
                     sslCommonNamesProvider0,
                     serverConfig,
-                    authConfig));
+                    authConfig,
+                    concurrencyLimitingServiceFactory));
       } else {
         sb.serviceUnder(
             definition.path(),
@@ -483,7 +486,8 @@ public abstract class ServerModule {
                 jwtAuthorizer,
                 sslCommonNamesProvider,
                 serverConfig,
-                authConfig));
+                authConfig,
+                concurrencyLimitingServiceFactory));
       }
     }
 
@@ -499,7 +503,8 @@ public abstract class ServerModule {
               jwtAuthorizer,
               sslCommonNamesProvider,
               serverConfig,
-              authConfig));
+              authConfig,
+              concurrencyLimitingServiceFactory));
     }
 
     if (javascriptStaticConfig.getVersion() != 0) {
@@ -629,7 +634,8 @@ public abstract class ServerModule {
       Lazy<JwtAuthorizer.Factory> jwtAuthorizer,
       Optional<SslCommonNamesProvider> sslCommonNamesProvider,
       ServerConfig serverConfig,
-      FirebaseAuthConfig authConfig) {
+      FirebaseAuthConfig authConfig,
+      Lazy<ConcurrencyLimitingService.Factory> concurrencyLimitingServiceFactory) {
     if (sslCommonNamesProvider.isPresent() && !serverConfig.isDisableSslAuthorization()) {
       AuthServiceBuilder authServiceBuilder = AuthService.builder();
       authServiceBuilder.add(new SslAuthorizer(sslCommonNamesProvider.get()));
@@ -664,6 +670,9 @@ public abstract class ServerModule {
           service.decorate(
               AuthService.builder().addOAuth2(authorizer).onFailure(authorizer).newDecorator());
     }
+    if (serverConfig.getEnableConcurrencyLimit()) {
+      service = service.decorate(concurrencyLimitingServiceFactory.get().newDecorator());
+    }
 
     service =
         service
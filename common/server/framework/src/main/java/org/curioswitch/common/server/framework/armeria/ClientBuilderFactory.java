@@ -34,6 +34,7 @@ import com.linecorp.armeria.client.Endpoint;
 import com.linecorp.armeria.client.HttpClient;
 import com.linecorp.armeria.client.brave.BraveClient;
 import com.linecorp.armeria.client.endpoint.EndpointGroup;
+import com.linecorp.armeria.client.endpoint.EndpointSelectionStrategy;
 import com.linecorp.armeria.client.endpoint.dns.DnsAddressEndpointGroup;
 import com.linecorp.armeria.client.endpoint.healthcheck.HealthCheckedEndpointGroup;
 import com.linecorp.armeria.client.logging.LoggingClient;
@@ -75,6 +76,7 @@ public class ClientBuilderFactory {
   private final Tracing tracing;
   private final MeterRegistry meterRegistry;
   private final Function<HttpClient, LoggingClient> loggingClient;
+  private final EndpointSelectionType defaultEndpointSelection;
 
   @Inject
   public ClientBuilderFactory(
@@ -87,6 +89,7 @@ public class ClientBuilderFactory {
     this.tracing = tracing;
     this.meterRegistry = meterRegistry;
     this.loggingClient = loggingClient;
+    defaultEndpointSelection = serverConfig.getClientEndpointSelection();
     final TrustManagerFactory trustManagerFactory;
     if (serverConfig.isDisableClientCertificateVerification()) {
       logger.warn("Disabling client SSL verification. This should only happen on local!");
@@ -149,11 +152,23 @@ public class ClientBuilderFactory {
   }
 
   public ClientBuilder create(String name, String url) {
+    return create(name, url, defaultEndpointSelection);
+  }
+
+  /**
+   * Returns a {@link ClientBuilder} for the service at {@code url}, choosing between its endpoints
+   * with {@code endpointSelection} if the service is resolved from cluster DNS.
+   */
+  public ClientBuilder create(String name, String url, EndpointSelectionType endpointSelection) {
     URI uri = URI.create(url);
     EndpointGroup endpoint = Endpoint.parse(uri.getAuthority());
     if (((Endpoint) endpoint).authority().endsWith("cluster.local")) {
       DnsAddressEndpointGroup dnsEndpointGroup =
-          DnsAddressEndpointGroup.builder(uri.getHost()).port(uri.getPort()).ttl(1, 10).build();
+          DnsAddressEndpointGroup.builder(uri.getHost())
+              .port(uri.getPort())
+              .ttl(1, 10)
+              .selectionStrategy(selectionStrategy(name, endpointSelection))
+              .build();
       dnsEndpointGroup.addListener(
           endpoints ->
               logger.info(
@@ -174,9 +189,33 @@ public class ClientBuilderFactory {
     ClientBuilder builder =
         Clients.builder(uri.getScheme(), endpoint, uri.getPath()).factory(clientFactory);
     return builder
+        .decorator(DeadlinePropagatingClient.newDecorator())
         .decorator(
             MetricCollectingClient.newDecorator(RpcMetricLabels.grpcRequestLabeler("grpc_clients")))
         .decorator(BraveClient.newDecorator(tracing))
         .decorator(loggingClient);
   }
+
+  /**
+   * Returns a decorator which hedges idempotent requests as configured by {@code policy}, to be
+   * added to a {@link ClientBuilder} returned by {@link #create(String, String)}. Hedging only has
+   * an effect for services with multiple endpoints.
+   */
+  public Function<? super HttpClient, ? extends HttpClient> newHedgingDecorator(
+      String name, HedgingPolicy policy) {
+    return HedgingClient.newDecorator(name, policy, meterRegistry);
+  }
+
+  private EndpointSelectionStrategy selectionStrategy(
+      String name, EndpointSelectionType endpointSelection) {
+    switch (endpointSelection) {
+      case ROUND_ROBIN:
+        return EndpointSelectionStrategy.roundRobin();
+      case LEAST_LOADED:
+      case PEAK_EWMA:
+        return new LoadAwareEndpointSelectionStrategy(endpointSelection, name, meterRegistry);
+      default:
+        throw new IllegalArgumentException("Unknown endpoint selection: " + endpointSelection);
+    }
+  }
 }
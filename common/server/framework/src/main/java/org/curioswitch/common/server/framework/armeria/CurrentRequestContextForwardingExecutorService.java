@@ -26,17 +26,26 @@ package org.curioswitch.common.server.framework.armeria;
 
 import com.google.common.util.concurrent.ForwardingListeningExecutorService;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.server.ServiceRequestContext;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 /**
  * A {@link Executor} that will run tasks on a delegate, making callbacks context-aware when a
  * {@link RequestContext} is available.
+ *
+ * <p>Tasks for a request that has been cancelled or passed its deadline by the time they would run
+ * are skipped, to avoid wasting work under overload. Futures returned by {@code submit} are
+ * cancelled, as are tasks passed to {@link #execute(Runnable)} if they are a {@link Future}. Other
+ * tasks passed to {@link #execute(Runnable)} are always run, since skipping them could leave
+ * callers waiting forever.
  */
 public class CurrentRequestContextForwardingExecutorService
     extends ForwardingListeningExecutorService {
@@ -51,7 +60,15 @@ public class CurrentRequestContextForwardingExecutorService
   public void execute(Runnable command) {
     RequestContext ctx = RequestContext.mapCurrent(Function.identity(), null);
     if (ctx != null) {
-      delegate.execute(ctx.makeContextAware(command));
+      delegate.execute(
+          ctx.makeContextAware(
+              () -> {
+                if (command instanceof Future && isExpired(ctx)) {
+                  ((Future<?>) command).cancel(false);
+                  return;
+                }
+                command.run();
+              }));
     } else {
       delegate.execute(command);
     }
@@ -65,28 +82,25 @@ public class CurrentRequestContextForwardingExecutorService
   @Override
   @SuppressWarnings("ParameterPackage")
   public <T> ListenableFuture<T> submit(Callable<T> task) {
-    RequestContext ctx = RequestContext.mapCurrent(Function.identity(), null);
-    if (ctx != null) {
-      task = ctx.makeContextAware(task);
-    }
-    return delegate().submit(task);
+    ListenableFutureTask<T> future = ListenableFutureTask.create(task);
+    execute(future);
+    return future;
   }
 
   @Override
   public ListenableFuture<?> submit(Runnable task) {
-    RequestContext ctx = RequestContext.mapCurrent(Function.identity(), null);
-    if (ctx != null) {
-      task = ctx.makeContextAware(task);
-    }
-    return delegate().submit(task);
+    return submit(task, null);
   }
 
   @Override
   public <T> ListenableFuture<T> submit(Runnable task, T result) {
-    RequestContext ctx = RequestContext.mapCurrent(Function.identity(), null);
-    if (ctx != null) {
-      task = ctx.makeContextAware(task);
-    }
-    return delegate().submit(task, result);
+    ListenableFutureTask<T> future = ListenableFutureTask.create(task, result);
+    execute(future);
+    return future;
+  }
+
+  private static boolean isExpired(RequestContext ctx) {
+    ServiceRequestContext root = ctx.root();
+    return ctx.isCancelled() || (root != null && RequestDeadlines.isExpired(root));
   }
 }
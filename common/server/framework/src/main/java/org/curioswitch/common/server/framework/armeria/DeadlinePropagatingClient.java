@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.client.ResponseTimeoutException;
+import com.linecorp.armeria.client.SimpleDecoratingHttpClient;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.grpc.protocol.GrpcHeaderNames;
+import com.linecorp.armeria.common.util.TimeoutMode;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A decorator which limits the response timeout of client requests made while serving a request to
+ * the time remaining until the server request's deadline, so backends don't keep working on a
+ * request nobody is waiting for anymore. Requests made after the deadline has passed fail
+ * immediately with a {@link ResponseTimeoutException}.
+ */
+final class DeadlinePropagatingClient extends SimpleDecoratingHttpClient {
+
+  static Function<? super HttpClient, DeadlinePropagatingClient> newDecorator() {
+    return DeadlinePropagatingClient::new;
+  }
+
+  // gRPC timeouts are at most 8 digits.
+  private static final long MAX_GRPC_TIMEOUT_MILLIS = 99_999_999;
+
+  private DeadlinePropagatingClient(HttpClient delegate) {
+    super(delegate);
+  }
+
+  @Override
+  public HttpResponse execute(ClientRequestContext ctx, HttpRequest req) throws Exception {
+    ServiceRequestContext serverCtx = ctx.root();
+    if (serverCtx == null) {
+      return unwrap().execute(ctx, req);
+    }
+    long remainingNanos = RequestDeadlines.remainingNanos(serverCtx);
+    if (remainingNanos == Long.MAX_VALUE) {
+      return unwrap().execute(ctx, req);
+    }
+    if (serverCtx.isCancelled() || remainingNanos <= 0) {
+      throw ResponseTimeoutException.get();
+    }
+
+    long remainingMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+    long responseTimeoutMillis = ctx.responseTimeoutMillis();
+    if (responseTimeoutMillis == 0 || remainingMillis < responseTimeoutMillis) {
+      ctx.setResponseTimeoutMillis(TimeoutMode.SET_FROM_NOW, remainingMillis);
+      MediaType contentType = req.contentType();
+      if (contentType != null
+          && contentType.subtype().startsWith("grpc")
+          && remainingMillis <= MAX_GRPC_TIMEOUT_MILLIS) {
+        // Let the backend know about the deadline too, so it can shed the request itself.
+        req =
+            req.withHeaders(
+                req.headers().toBuilder()
+                    .set(GrpcHeaderNames.GRPC_TIMEOUT, remainingMillis + "m")
+                    .build());
+        ctx.updateRequest(req);
+      }
+    }
+    return unwrap().execute(ctx, req);
+  }
+}
@@ -0,0 +1,410 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.client.SimpleDecoratingHttpClient;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpObject;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpRequestDuplicator;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.RequestId;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.SplitHttpResponse;
+import com.linecorp.armeria.common.grpc.protocol.GrpcHeaderNames;
+import com.linecorp.armeria.common.logging.RequestLog;
+import com.linecorp.armeria.common.logging.RequestLogBuilder;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * A decorator which hedges idempotent requests. If a request has not been answered by the time most
+ * recent requests to the same method have been, the request is also sent to a different endpoint,
+ * and whichever attempt responds first is used while the other is cancelled. The number of hedged
+ * requests is limited by a budget relative to the total number of requests.
+ */
+final class HedgingClient extends SimpleDecoratingHttpClient {
+
+  static Function<? super HttpClient, HedgingClient> newDecorator(
+      String name, HedgingPolicy policy, MeterRegistry meterRegistry) {
+    return delegate -> new HedgingClient(delegate, name, policy, meterRegistry);
+  }
+
+  // A hedge costs this many tokens, and each request earns budgetPercent * 100 tokens.
+  private static final long HEDGE_COST = 100 * 100;
+
+  // Allow short bursts of hedges after a quiet period.
+  private static final long MAX_BUDGET = 10 * HEDGE_COST;
+
+  private static final long RECOMPUTE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final Set<String> idempotentMethods;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final long budgetPerRequest;
+
+  private final ConcurrentMap<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+  private final AtomicLong budget = new AtomicLong();
+
+  private final Counter hedgesSent;
+  private final Counter hedgesWon;
+
+  private HedgingClient(
+      HttpClient delegate, String name, HedgingPolicy policy, MeterRegistry meterRegistry) {
+    super(delegate);
+    idempotentMethods = policy.idempotentMethods();
+    percentile = policy.percentile();
+    minDelayNanos = policy.minDelay().toNanos();
+    budgetPerRequest = (long) (policy.budgetPercent() * 100);
+
+    hedgesSent =
+        Counter.builder("client-hedges-sent")
+            .description("Number of hedged requests sent.")
+            .tag("client", name)
+            .register(meterRegistry);
+    hedgesWon =
+        Counter.builder("client-hedges-won")
+            .description(
+                "Number of hedged requests that succeeded before the original request responded.")
+            .tag("client", name)
+            .register(meterRegistry);
+  }
+
+  @Override
+  public HttpResponse execute(ClientRequestContext ctx, HttpRequest req) throws Exception {
+    String method = idempotentMethod(ctx.path());
+    if (method == null) {
+      return unwrap().execute(ctx, req);
+    }
+    budget.accumulateAndGet(
+        budgetPerRequest, (current, add) -> Math.min(current + add, MAX_BUDGET));
+
+    LatencyTracker tracker = latencies.computeIfAbsent(method, unused -> new LatencyTracker());
+    long delayNanos = tracker.hedgeDelayNanos(System.nanoTime());
+    if (delayNanos < 0 || ctx.endpoint() == null || ctx.endpointGroup() == null) {
+      // Not enough history to know when a request is slow, or nowhere else to send it.
+      HttpResponse res = unwrap().execute(ctx, req);
+      ctx.log().whenComplete().thenAccept(log -> recordLatency(tracker, log));
+      return res;
+    }
+
+    return new HedgedCall(ctx, req, tracker).start(delayNanos);
+  }
+
+  @Nullable
+  private String idempotentMethod(String path) {
+    if (idempotentMethods.contains(path)) {
+      return path;
+    }
+    // gRPC methods are matched by the last two segments of the path, since the service may be
+    // mounted under a prefix.
+    for (String method : idempotentMethods) {
+      if (method.charAt(0) != '/'
+          && path.endsWith(method)
+          && (path.length() == method.length()
+              || path.charAt(path.length() - method.length() - 1) == '/')) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private boolean tryAcquireBudget() {
+    while (true) {
+      long current = budget.get();
+      if (current < HEDGE_COST) {
+        return false;
+      }
+      if (budget.compareAndSet(current, current - HEDGE_COST)) {
+        return true;
+      }
+    }
+  }
+
+  private void releaseBudget() {
+    budget.accumulateAndGet(HEDGE_COST, (current, add) -> Math.min(current + add, MAX_BUDGET));
+  }
+
+  private static boolean isSuccess(RequestLog log) {
+    if (log.responseCause() != null || !log.responseHeaders().status().isSuccess()) {
+      return false;
+    }
+    // The status of a gRPC response is in the trailers, or in the headers for a trailers-only
+    // response.
+    String grpcStatus = log.responseTrailers().get(GrpcHeaderNames.GRPC_STATUS);
+    if (grpcStatus == null) {
+      grpcStatus = log.responseHeaders().get(GrpcHeaderNames.GRPC_STATUS);
+    }
+    return grpcStatus == null || grpcStatus.equals("0");
+  }
+
+  private static void recordLatency(LatencyTracker tracker, RequestLog log) {
+    if (log.responseCause() == null) {
+      tracker.record(log.responseStartTimeNanos() - log.requestStartTimeNanos());
+    }
+  }
+
+  private final class HedgedCall {
+
+    private final ClientRequestContext ctx;
+    private final HttpRequestDuplicator duplicator;
+    private final LatencyTracker tracker;
+    private final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+    private final long startNanos = System.nanoTime();
+
+    // All fields below are guarded by this.
+
+    @Nullable private Attempt primary;
+    @Nullable private Attempt hedge;
+    @Nullable private ScheduledFuture<?> hedgeTimer;
+    private boolean done;
+
+    private HedgedCall(ClientRequestContext ctx, HttpRequest req, LatencyTracker tracker) {
+      this.ctx = ctx;
+      this.tracker = tracker;
+      duplicator = req.toDuplicator(ctx.eventLoop().withoutContext(), 0);
+    }
+
+    private HttpResponse start(long delayNanos) {
+      HttpResponse res = HttpResponse.of(result);
+      res.whenComplete()
+          .exceptionally(
+              t -> {
+                abort(t);
+                return null;
+              });
+      synchronized (this) {
+        primary = new Attempt(ctx.endpoint());
+        hedgeTimer =
+            ctx.eventLoop()
+                .withoutContext()
+                .schedule(this::sendHedge, delayNanos, TimeUnit.NANOSECONDS);
+        primary.execute();
+      }
+      return res;
+    }
+
+    private synchronized void sendHedge() {
+      hedgeTimer = null;
+      if (done) {
+        return;
+      }
+      if (tryAcquireBudget()) {
+        // Only select once, since a load-aware selector counts every selection as a request in
+        // flight until this call completes.
+        Endpoint endpoint = ctx.endpointGroup().selectNow(ctx);
+        if (endpoint != null && !endpoint.equals(ctx.endpoint())) {
+          hedge = new Attempt(endpoint);
+          hedgesSent.increment();
+          hedge.execute();
+        } else {
+          releaseBudget();
+        }
+      }
+      // No more attempts will be made.
+      duplicator.close();
+    }
+
+    private void onHeaders(
+        Attempt attempt, @Nullable ResponseHeaders headers, @Nullable Throwable cause) {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        Attempt other = attempt == primary ? hedge : primary;
+        if (cause != null) {
+          attempt.failed = true;
+          if (other != null && !other.failed) {
+            // Let the other attempt respond instead.
+            return;
+          }
+        }
+        finish();
+        if (other != null) {
+          other.cancel();
+        }
+      }
+
+      if (cause != null) {
+        ctx.logBuilder().endResponse(cause);
+        result.complete(HttpResponse.ofFailure(cause));
+        return;
+      }
+      tracker.record(System.nanoTime() - startNanos);
+      attempt.ctx.log().whenComplete().thenAccept(log -> endResponse(attempt, log));
+      result.complete(attempt.toResponse(headers));
+    }
+
+    private void abort(Throwable cause) {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        finish();
+        primary.cancel();
+        if (hedge != null) {
+          hedge.cancel();
+        }
+      }
+      ctx.logBuilder().endResponse(cause);
+    }
+
+    // Must be called with the lock held.
+    private void finish() {
+      done = true;
+      if (hedgeTimer != null) {
+        hedgeTimer.cancel(false);
+        hedgeTimer = null;
+      }
+      duplicator.close();
+    }
+
+    // The request side of the log is filled by the first attempt, but the response side must be
+    // copied from the attempt that won.
+    private void endResponse(Attempt attempt, RequestLog log) {
+      if (attempt == hedge && isSuccess(log)) {
+        hedgesWon.increment();
+      }
+      RequestLogBuilder logBuilder = ctx.logBuilder();
+      logBuilder.responseHeaders(log.responseHeaders());
+      if (!log.responseTrailers().isEmpty()) {
+        logBuilder.responseTrailers(log.responseTrailers());
+      }
+      Throwable cause = log.responseCause();
+      if (cause != null) {
+        logBuilder.endResponse(cause);
+      } else {
+        logBuilder.endResponse();
+      }
+    }
+
+    private final class Attempt {
+
+      private final ClientRequestContext ctx;
+      private final HttpRequest req;
+
+      @Nullable private SplitHttpResponse response;
+      private boolean failed;
+
+      private Attempt(Endpoint endpoint) {
+        ClientRequestContext parent = HedgedCall.this.ctx;
+        req = duplicator.duplicate();
+        ctx = parent.newDerivedContext(RequestId.random(), req, parent.rpcRequest(), endpoint);
+        parent.logBuilder().addChild(ctx.log());
+      }
+
+      private void execute() {
+        HttpResponse res;
+        try {
+          res = unwrap().execute(ctx, req);
+        } catch (Throwable t) {
+          res = HttpResponse.ofFailure(t);
+        }
+        response = res.split();
+        response
+            .headers()
+            .handle(
+                (headers, t) -> {
+                  onHeaders(this, headers, t);
+                  return null;
+                });
+      }
+
+      private void cancel() {
+        ctx.cancel();
+      }
+
+      private HttpResponse toResponse(ResponseHeaders headers) {
+        StreamMessage<HttpHeaders> trailers =
+            StreamMessage.of(
+                response
+                    .trailers()
+                    .thenApply(
+                        t -> t.isEmpty() ? StreamMessage.<HttpHeaders>of() : StreamMessage.of(t)));
+        return HttpResponse.of(
+            StreamMessage.<HttpObject>concat(StreamMessage.of(headers), response.body(), trailers));
+      }
+    }
+  }
+
+  /**
+   * Tracks recent latencies of a method to compute the delay after which a request to it is hedged.
+   */
+  private final class LatencyTracker {
+
+    private static final int NUM_SAMPLES = 1000;
+    private static final int MIN_SAMPLES = 100;
+
+    private final AtomicLongArray samples = new AtomicLongArray(NUM_SAMPLES);
+    private final AtomicLong numRecorded = new AtomicLong();
+    private final AtomicLong computedAtNanos = new AtomicLong(System.nanoTime());
+
+    private volatile long delayNanos = -1;
+
+    private void record(long latencyNanos) {
+      long index = numRecorded.getAndIncrement();
+      samples.set((int) (index % NUM_SAMPLES), latencyNanos);
+    }
+
+    /** Returns the delay before hedging, or -1 if there are not enough samples yet. */
+    private long hedgeDelayNanos(long nowNanos) {
+      long computedAt = computedAtNanos.get();
+      if (nowNanos - computedAt >= RECOMPUTE_INTERVAL_NANOS
+          && computedAtNanos.compareAndSet(computedAt, nowNanos)) {
+        recompute();
+      }
+      return delayNanos;
+    }
+
+    private void recompute() {
+      int numSamples = (int) Math.min(numRecorded.get(), NUM_SAMPLES);
+      if (numSamples < MIN_SAMPLES) {
+        return;
+      }
+      long[] sorted = new long[numSamples];
+      for (int i = 0; i < numSamples; i++) {
+        sorted[i] = samples.get(i);
+      }
+      Arrays.sort(sorted);
+      long latency = sorted[Math.min((int) (numSamples * percentile), numSamples - 1)];
+      delayNanos = Math.max(latency, minDelayNanos);
+    }
+  }
+}
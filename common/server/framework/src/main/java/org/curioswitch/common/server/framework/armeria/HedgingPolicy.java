@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.protobuf.DescriptorProtos.MethodOptions.IdempotencyLevel;
+import io.grpc.ServiceDescriptor;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import java.time.Duration;
+import java.util.Set;
+import org.curioswitch.common.server.framework.immutables.CurioStyle;
+import org.immutables.value.Value.Check;
+import org.immutables.value.Value.Immutable;
+
+/**
+ * Settings for hedging requests sent by a client, see {@link
+ * ClientBuilderFactory#newHedgingDecorator(String, HedgingPolicy)}.
+ */
+@Immutable
+@CurioStyle
+public interface HedgingPolicy {
+
+  class Builder extends ImmutableHedgingPolicy.Builder {}
+
+  /**
+   * Returns the full names of the methods of {@code service} that are marked with an {@code
+   * idempotency_level} of {@code IDEMPOTENT} or {@code NO_SIDE_EFFECTS}, for use in {@link
+   * #idempotentMethods()}.
+   */
+  static Set<String> idempotentMethods(ServiceDescriptor service) {
+    if (!(service.getSchemaDescriptor() instanceof ProtoServiceDescriptorSupplier)) {
+      return Set.of();
+    }
+    return ((ProtoServiceDescriptorSupplier) service.getSchemaDescriptor())
+        .getServiceDescriptor().getMethods().stream()
+            .filter(
+                method ->
+                    method.getOptions().getIdempotencyLevel()
+                        != IdempotencyLevel.IDEMPOTENCY_UNKNOWN)
+            .map(method -> service.getName() + '/' + method.getName())
+            .collect(toImmutableSet());
+  }
+
+  /**
+   * The requests that are safe to hedge. gRPC methods are specified by their full method name,
+   * e.g., {@code mypackage.MyService/GetThing}, and HTTP requests by their exact path, e.g., {@code
+   * /things}. Requests that don't match are never hedged.
+   */
+  Set<String> idempotentMethods();
+
+  /**
+   * The percentile of recent response latencies of a method after which a hedged request is sent.
+   * Defaults to 0.95.
+   */
+  default double percentile() {
+    return 0.95;
+  }
+
+  /** The minimum time to wait for a response before sending a hedged request. Defaults to 5ms. */
+  default Duration minDelay() {
+    return Duration.ofMillis(5);
+  }
+
+  /**
+   * The maximum percentage of requests that may be hedged, to prevent hedging from overloading
+   * backends when they are all slow. Defaults to 5.
+   */
+  default double budgetPercent() {
+    return 5;
+  }
+
+  @Check
+  default void check() {
+    checkArgument(percentile() > 0 && percentile() < 1, "percentile must be between 0 and 1.");
+    checkArgument(
+        budgetPercent() >= 0 && budgetPercent() <= 100, "budgetPercent must be between 0 and 100.");
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.client.endpoint.AbstractEndpointSelector;
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
+import com.linecorp.armeria.client.endpoint.EndpointSelectionStrategy;
+import com.linecorp.armeria.client.endpoint.EndpointSelector;
+import com.linecorp.armeria.common.logging.RequestLog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * An {@link EndpointSelectionStrategy} which chooses the less loaded of two randomly picked
+ * endpoints. Load is tracked from the {@link RequestLog} of the requests sent to each endpoint,
+ * either as the number of requests in flight ({@link EndpointSelectionType#LEAST_LOADED}) or as a
+ * peak-sensitive exponentially weighted moving average of latency multiplied by the number of
+ * requests in flight ({@link EndpointSelectionType#PEAK_EWMA}).
+ *
+ * <p>The number of requests in flight and the latency average of each endpoint are exported as
+ * gauges tagged with the client name and endpoint, and a {@code selector} tag unique to each {@link
+ * EndpointGroup} using this strategy so clients that share a name don't share gauges.
+ */
+final class LoadAwareEndpointSelectionStrategy implements EndpointSelectionStrategy {
+
+  // Time for a latency sample to decay to 1/e of its weight, the same as Finagle's peak EWMA
+  // balancer.
+  private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  // Failed requests often fail quickly, and must not make an endpoint look faster than its
+  // neighbors.
+  private static final long MIN_FAILURE_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  // Cost of an endpoint with requests in flight but no completed requests yet, so new endpoints
+  // don't get flooded before we know how fast they are.
+  private static final double PENALTY = Double.MAX_VALUE / 2;
+
+  private static final AtomicInteger nextSelectorId = new AtomicInteger();
+
+  private final EndpointSelectionType type;
+  private final String clientName;
+  private final MeterRegistry meterRegistry;
+
+  LoadAwareEndpointSelectionStrategy(
+      EndpointSelectionType type, String clientName, MeterRegistry meterRegistry) {
+    checkArgument(type != EndpointSelectionType.ROUND_ROBIN, "type must be load aware.");
+    this.type = type;
+    this.clientName = clientName;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public EndpointSelector newSelector(EndpointGroup endpointGroup) {
+    return new Selector(endpointGroup);
+  }
+
+  private final class Selector extends AbstractEndpointSelector {
+
+    private final ConcurrentMap<Endpoint, EndpointLoad> loads = new ConcurrentHashMap<>();
+    private final String id = String.valueOf(nextSelectorId.incrementAndGet());
+
+    private volatile List<Endpoint> endpoints = ImmutableList.of();
+
+    private Selector(EndpointGroup endpointGroup) {
+      super(endpointGroup);
+      initialize();
+    }
+
+    @Override
+    protected CompletableFuture<Void> updateNewEndpoints(List<Endpoint> endpoints) {
+      this.endpoints = ImmutableList.copyOf(endpoints);
+      Set<Endpoint> current = ImmutableSet.copyOf(endpoints);
+      loads
+          .entrySet()
+          .removeIf(
+              entry -> {
+                if (current.contains(entry.getKey())) {
+                  return false;
+                }
+                entry.getValue().close();
+                return true;
+              });
+      return super.updateNewEndpoints(endpoints);
+    }
+
+    @Nullable
+    @Override
+    public Endpoint selectNow(ClientRequestContext ctx) {
+      List<Endpoint> endpoints = this.endpoints;
+      if (endpoints.isEmpty()) {
+        return null;
+      }
+
+      final Endpoint selected;
+      if (endpoints.size() == 1) {
+        selected = endpoints.get(0);
+      } else {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(endpoints.size());
+        int second = random.nextInt(endpoints.size() - 1);
+        if (second >= first) {
+          second++;
+        }
+        Endpoint a = endpoints.get(first);
+        Endpoint b = endpoints.get(second);
+        long now = System.nanoTime();
+        selected = load(a).cost(now) <= load(b).cost(now) ? a : b;
+      }
+
+      EndpointLoad load = load(selected);
+      load.inFlight.incrementAndGet();
+      ctx.log().whenComplete().thenAccept(load::complete);
+      return selected;
+    }
+
+    private EndpointLoad load(Endpoint endpoint) {
+      // Loads, and their gauges, are only created when an endpoint is first selected so groups
+      // that wrap another group don't export empty gauges.
+      return loads.computeIfAbsent(endpoint, e -> new EndpointLoad(e, id));
+    }
+  }
+
+  private final class EndpointLoad {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final List<Meter> meters;
+
+    // Guarded by this.
+    private double latencyEwmaNanos;
+    private long lastUpdateNanos = System.nanoTime();
+
+    private EndpointLoad(Endpoint endpoint, String selectorId) {
+      Tags tags =
+          Tags.of("client", clientName, "endpoint", endpoint.authority(), "selector", selectorId);
+      meters =
+          ImmutableList.of(
+              Gauge.builder("client-endpoint-in-flight-requests", inFlight, AtomicInteger::get)
+                  .tags(tags)
+                  .register(meterRegistry),
+              Gauge.builder(
+                      "client-endpoint-latency-ewma-seconds",
+                      this,
+                      load -> load.latencyEwmaNanos(System.nanoTime()) / 1e9)
+                  .tags(tags)
+                  .register(meterRegistry));
+    }
+
+    private double cost(long nowNanos) {
+      int inFlight = this.inFlight.get();
+      if (type == EndpointSelectionType.LEAST_LOADED) {
+        return inFlight;
+      }
+      double latency = latencyEwmaNanos(nowNanos);
+      if (latency == 0 && inFlight > 0) {
+        return PENALTY + inFlight;
+      }
+      return latency * (inFlight + 1);
+    }
+
+    private void complete(RequestLog log) {
+      inFlight.decrementAndGet();
+      long latencyNanos = log.totalDurationNanos();
+      if (log.responseCause() != null) {
+        latencyNanos = Math.max(latencyNanos, MIN_FAILURE_LATENCY_NANOS);
+      }
+      long now = System.nanoTime();
+      synchronized (this) {
+        double weight = decay(now);
+        double current = latencyEwmaNanos * weight;
+        if (latencyNanos > current) {
+          // Jump to a new peak immediately so a slow endpoint is avoided right away.
+          latencyEwmaNanos = latencyNanos;
+        } else {
+          latencyEwmaNanos = current + latencyNanos * (1 - weight);
+        }
+        lastUpdateNanos = now;
+      }
+    }
+
+    private synchronized double latencyEwmaNanos(long nowNanos) {
+      // Decay towards zero while idle so an endpoint that was slow is tried again eventually.
+      return latencyEwmaNanos * decay(nowNanos);
+    }
+
+    // Guarded by this.
+    private double decay(long nowNanos) {
+      return Math.exp(-Math.max(nowNanos - lastUpdateNanos, 0) / DECAY_NANOS);
+    }
+
+    private void close() {
+      meters.forEach(meterRegistry::remove);
+    }
+  }
+}
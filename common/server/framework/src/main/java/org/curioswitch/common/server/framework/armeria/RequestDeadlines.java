@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import com.linecorp.armeria.common.logging.RequestLog;
+import com.linecorp.armeria.common.logging.RequestLogProperty;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utilities for working with the deadline of a server request, as set by the request timeout of a
+ * {@link ServiceRequestContext} which includes deadlines from gRPC clients.
+ */
+public final class RequestDeadlines {
+
+  /**
+   * Returns the time remaining until the request of {@code ctx} times out, or {@link
+   * Long#MAX_VALUE} if it has no timeout. May be negative if the deadline has already passed.
+   */
+  public static long remainingNanos(ServiceRequestContext ctx) {
+    long timeoutMillis = ctx.requestTimeoutMillis();
+    if (timeoutMillis <= 0) {
+      return Long.MAX_VALUE;
+    }
+    RequestLog log = ctx.log().getIfAvailable(RequestLogProperty.REQUEST_START_TIME);
+    if (log == null) {
+      return Long.MAX_VALUE;
+    }
+    long elapsedNanos = System.nanoTime() - log.requestStartTimeNanos();
+    return TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - elapsedNanos;
+  }
+
+  /**
+   * Returns whether the request of {@code ctx} has been cancelled or has passed its deadline, in
+   * which case any further work for it is wasted.
+   */
+  public static boolean isExpired(ServiceRequestContext ctx) {
+    return ctx.isCancelled() || remainingNanos(ctx) <= 0;
+  }
+
+  private RequestDeadlines() {}
+}
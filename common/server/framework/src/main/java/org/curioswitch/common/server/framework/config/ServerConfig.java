@@ -25,6 +25,7 @@
 package org.curioswitch.common.server.framework.config;
 
 import java.util.List;
+import org.curioswitch.common.server.framework.armeria.EndpointSelectionType;
 import org.curioswitch.common.server.framework.immutables.JavaBeanStyle;
 import org.immutables.value.Value.Immutable;
 import org.immutables.value.Value.Modifiable;
@@ -148,4 +149,28 @@ public interface ServerConfig {
    * environment with a DNS server that doesn't support EDNS.
    */
   boolean getDisableEdns();
+
+  /**
+   * How clients choose between the endpoints of a service resolved from cluster DNS, unless
+   * overridden for a client. Defaults to {@link EndpointSelectionType#ROUND_ROBIN}.
+   */
+  EndpointSelectionType getClientEndpointSelection();
+
+  /**
+   * Whether to limit the number of requests served concurrently, both by the whole server and by
+   * each route. Limits adapt to observed latency, and requests over the limit are rejected
+   * immediately with {@code 503 Service Unavailable} or gRPC status {@code RESOURCE_EXHAUSTED}. A
+   * route is the path a service is bound to rather than a method, so all the methods of a gRPC
+   * service share one limit.
+   */
+  boolean getEnableConcurrencyLimit();
+
+  /** The concurrency limit used until enough latency has been observed to adapt it. */
+  int getInitialConcurrencyLimit();
+
+  /** The lowest the adaptive concurrency limit will go. */
+  int getMinConcurrencyLimit();
+
+  /** The highest the adaptive concurrency limit will go. */
+  int getMaxConcurrencyLimit();
 }
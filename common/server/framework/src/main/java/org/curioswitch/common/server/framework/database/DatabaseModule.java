@@ -122,7 +122,9 @@ public abstract class DatabaseModule {
             .set(new DataSourceConnectionProvider(dataSource))
             .set(DatabaseUtil.sfmRecordMapperProvider());
     if (config.getLogQueries()) {
-      configuration.set(new QueryLogger());
+      configuration.set(new RequestDeadlineExecuteListener(), new QueryLogger());
+    } else {
+      configuration.set(new RequestDeadlineExecuteListener());
     }
     DSLContext ctx = DSL.using(configuration);
     // Eagerly trigger JOOQ classinit for better startup performance.
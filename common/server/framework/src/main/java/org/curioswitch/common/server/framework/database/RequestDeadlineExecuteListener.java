@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.database;
+
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.curioswitch.common.server.framework.armeria.RequestDeadlines;
+import org.jooq.ExecuteContext;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DefaultExecuteListener;
+
+/**
+ * A {@link org.jooq.ExecuteListener} that sets the timeout of queries executed while serving a
+ * request to the time remaining until the request's deadline, and fails queries without executing
+ * them if the deadline has already passed.
+ */
+final class RequestDeadlineExecuteListener extends DefaultExecuteListener {
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Override
+  public void executeStart(ExecuteContext ctx) {
+    ServiceRequestContext requestCtx = ServiceRequestContext.currentOrNull();
+    if (requestCtx == null) {
+      return;
+    }
+    long remainingNanos = RequestDeadlines.remainingNanos(requestCtx);
+    if (remainingNanos == Long.MAX_VALUE) {
+      return;
+    }
+    if (requestCtx.isCancelled() || remainingNanos <= 0) {
+      throw new DataAccessException("Request deadline exceeded before executing query.");
+    }
+
+    Statement statement = ctx.statement();
+    if (statement == null) {
+      return;
+    }
+    // JDBC timeouts have a resolution of seconds, round up to not cut queries short.
+    long remainingSeconds = (remainingNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    int timeoutSeconds = (int) Math.min(remainingSeconds, Integer.MAX_VALUE);
+    try {
+      int currentTimeoutSeconds = statement.getQueryTimeout();
+      if (currentTimeoutSeconds == 0 || timeoutSeconds < currentTimeoutSeconds) {
+        statement.setQueryTimeout(timeoutSeconds);
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Could not set query timeout.", e);
+    }
+  }
+}
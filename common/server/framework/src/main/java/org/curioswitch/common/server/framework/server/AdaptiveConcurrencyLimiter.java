@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that adapts to observed latency, based on the gradient algorithm of Netflix's
+ * concurrency-limits library. The limit grows while latency stays close to its long term average
+ * and shrinks as latency increases, which indicates requests are queueing.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+  // Weight of each new limit estimate, to dampen reactions to outliers.
+  private static final double SMOOTHING = 0.2;
+
+  // How much latency may exceed the long term average before the limit is reduced.
+  private static final double TOLERANCE = 1.5;
+
+  // Number of samples averaged into the long term latency.
+  private static final int LONG_WINDOW = 600;
+  private static final int WARMUP_SAMPLES = 10;
+
+  // Multiplicative decrease applied when a request times out.
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile int limit;
+
+  // All fields below are guarded by this.
+  private double estimatedLimit;
+  private double longLatencyNanos;
+  private long numSamples;
+
+  AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    estimatedLimit = initialLimit;
+    limit = initialLimit;
+  }
+
+  /** Returns the current concurrency limit. */
+  int limit() {
+    return limit;
+  }
+
+  /** Returns the number of requests currently in flight. */
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Tries to start a request, returning {@code false} if the limit has been reached. If this
+   * returns {@code true}, one of {@link #onSuccess(long)}, {@link #onDropped()}, or {@link
+   * #onIgnored()} must be called when the request completes.
+   */
+  boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Completes a request which took {@code latencyNanos}, updating the limit. */
+  void onSuccess(long latencyNanos) {
+    int inFlightBeforeRelease = inFlight.getAndDecrement();
+    update(latencyNanos, inFlightBeforeRelease);
+  }
+
+  /** Completes a request which timed out, reducing the limit. */
+  synchronized void onDropped() {
+    inFlight.decrementAndGet();
+    setLimit(estimatedLimit * BACKOFF_RATIO);
+  }
+
+  /**
+   * Completes a request without updating the limit, e.g., when it was rejected by another limit.
+   */
+  void onIgnored() {
+    inFlight.decrementAndGet();
+  }
+
+  private synchronized void update(long latencyNanos, int inFlight) {
+    if (latencyNanos <= 0) {
+      return;
+    }
+    numSamples++;
+    if (numSamples <= WARMUP_SAMPLES) {
+      longLatencyNanos += (latencyNanos - longLatencyNanos) / numSamples;
+    } else {
+      longLatencyNanos += (latencyNanos - longLatencyNanos) / LONG_WINDOW;
+    }
+
+    // If latency has dropped a lot, e.g., after a backend recovered, let the long term average
+    // catch up faster so the limit can grow again.
+    if (longLatencyNanos / latencyNanos > 2) {
+      longLatencyNanos *= 0.95;
+    }
+
+    // Don't grow the limit when it isn't being used, or it could grow without bound.
+    if (inFlight < estimatedLimit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / latencyNanos));
+    double queueSize = Math.sqrt(estimatedLimit);
+    double newLimit = estimatedLimit * gradient + queueSize;
+    setLimit(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+  }
+
+  // Must be called with the lock held.
+  private void setLimit(double newLimit) {
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    limit = (int) estimatedLimit;
+  }
+}
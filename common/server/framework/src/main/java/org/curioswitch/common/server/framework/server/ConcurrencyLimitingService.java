@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.server;
+
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.grpc.protocol.GrpcHeaderNames;
+import com.linecorp.armeria.common.logging.RequestLogProperty;
+import com.linecorp.armeria.server.HttpService;
+import com.linecorp.armeria.server.Route;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.server.SimpleDecoratingHttpService;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.curioswitch.common.server.framework.config.ServerConfig;
+
+/**
+ * A {@link SimpleDecoratingHttpService} which limits the number of requests processed concurrently,
+ * both by the whole server and by each route. The limits adapt to observed latency, so requests are
+ * rejected quickly with {@code 503 Service Unavailable}, or {@code RESOURCE_EXHAUSTED} for gRPC,
+ * instead of queueing until they time out when the server is overloaded. Both kinds of rejection
+ * include a {@code Retry-After} header.
+ *
+ * <p>A request holds its permit until its response headers are sent, and the time until then is the
+ * latency the limits adapt to. Long-lived streaming responses, e.g., streaming gRPC calls or slow
+ * downloads, would otherwise count as requests taking minutes and push the limits down for all
+ * other requests.
+ *
+ * <p>Route limits are keyed by the {@link Route} a service is bound to, not by method, so all the
+ * methods of a gRPC service, which is bound under a single path prefix, share one limit.
+ */
+public class ConcurrencyLimitingService extends SimpleDecoratingHttpService {
+
+  @Singleton
+  public static class Factory {
+    private final ServerConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Limit serverLimit;
+    private final ConcurrentMap<Route, Limit> routeLimits = new ConcurrentHashMap<>();
+
+    @Inject
+    public Factory(ServerConfig config, MeterRegistry meterRegistry) {
+      this.config = config;
+      this.meterRegistry = meterRegistry;
+      serverLimit = new Limit("server");
+    }
+
+    public Function<HttpService, ConcurrencyLimitingService> newDecorator() {
+      return service -> new ConcurrencyLimitingService(service, this);
+    }
+
+    private Limit routeLimit(Route route) {
+      return routeLimits.computeIfAbsent(route, r -> new Limit(r.patternString()));
+    }
+
+    private final class Limit {
+      private final AdaptiveConcurrencyLimiter limiter =
+          new AdaptiveConcurrencyLimiter(
+              config.getInitialConcurrencyLimit(),
+              config.getMinConcurrencyLimit(),
+              config.getMaxConcurrencyLimit());
+      private final Counter rejections;
+
+      private Limit(String route) {
+        Gauge.builder("concurrency-limit", limiter, AdaptiveConcurrencyLimiter::limit)
+            .tag("route", route)
+            .register(meterRegistry);
+        Gauge.builder("concurrency-limit-in-flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+            .tag("route", route)
+            .register(meterRegistry);
+        rejections = meterRegistry.counter("concurrency-limit-rejections", "route", route);
+      }
+    }
+  }
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  private final Factory factory;
+
+  private ConcurrencyLimitingService(HttpService delegate, Factory factory) {
+    super(delegate);
+    this.factory = factory;
+  }
+
+  @Override
+  public HttpResponse serve(ServiceRequestContext ctx, HttpRequest req) throws Exception {
+    Factory.Limit serverLimit = factory.serverLimit;
+    Factory.Limit routeLimit = factory.routeLimit(ctx.config().route());
+
+    if (!serverLimit.limiter.tryAcquire()) {
+      serverLimit.rejections.increment();
+      return reject(req);
+    }
+    if (!routeLimit.limiter.tryAcquire()) {
+      serverLimit.limiter.onIgnored();
+      routeLimit.rejections.increment();
+      return reject(req);
+    }
+
+    long startNanos = System.nanoTime();
+    ctx.log()
+        .whenAvailable(RequestLogProperty.RESPONSE_HEADERS)
+        .thenAccept(
+            unused -> {
+              long latencyNanos = System.nanoTime() - startNanos;
+              // A timed out request has its 503 headers written before the context is marked as
+              // timed out, so check on the next turn of the event loop.
+              ctx.eventLoop()
+                  .execute(
+                      () -> {
+                        if (ctx.isTimedOut()) {
+                          serverLimit.limiter.onDropped();
+                          routeLimit.limiter.onDropped();
+                        } else {
+                          serverLimit.limiter.onSuccess(latencyNanos);
+                          routeLimit.limiter.onSuccess(latencyNanos);
+                        }
+                      });
+            });
+    return unwrap().serve(ctx, req);
+  }
+
+  private static HttpResponse reject(HttpRequest req) {
+    MediaType contentType = req.contentType();
+    if (contentType != null && contentType.subtype().startsWith("grpc")) {
+      return HttpResponse.of(
+          ResponseHeaders.builder(HttpStatus.OK)
+              .contentType(contentType)
+              .add(
+                  GrpcHeaderNames.GRPC_STATUS,
+                  Integer.toString(Status.Code.RESOURCE_EXHAUSTED.value()))
+              .add(GrpcHeaderNames.GRPC_MESSAGE, "Server is overloaded, retry later.")
+              .add(HttpHeaderNames.RETRY_AFTER, RETRY_AFTER_SECONDS)
+              .build());
+    }
+    return HttpResponse.of(
+        ResponseHeaders.of(
+            HttpStatus.SERVICE_UNAVAILABLE, HttpHeaderNames.RETRY_AFTER, RETRY_AFTER_SECONDS));
+  }
+}
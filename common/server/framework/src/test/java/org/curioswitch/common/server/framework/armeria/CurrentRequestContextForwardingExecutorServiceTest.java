@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.util.SafeCloseable;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CurrentRequestContextForwardingExecutorServiceTest {
+
+  private CurrentRequestContextForwardingExecutorService executor;
+  private ServiceRequestContext ctx;
+
+  @BeforeEach
+  void setUp() {
+    executor =
+        new CurrentRequestContextForwardingExecutorService(Executors.newSingleThreadExecutor());
+    ctx = ServiceRequestContext.of(HttpRequest.of(HttpMethod.GET, "/"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void runsTaskForActiveRequest() throws Exception {
+    final ListenableFuture<ServiceRequestContext> future;
+    try (SafeCloseable ignored = ctx.push()) {
+      future = executor.submit(ServiceRequestContext::current);
+    }
+    assertThat(future.get()).isSameAs(ctx);
+  }
+
+  @Test
+  void skipsSubmittedTaskForCancelledRequest() {
+    ctx.cancel();
+    AtomicBoolean ran = new AtomicBoolean();
+    final ListenableFuture<?> future;
+    try (SafeCloseable ignored = ctx.push()) {
+      future = executor.submit(() -> ran.set(true));
+    }
+    assertThatThrownBy(future::get).isInstanceOf(CancellationException.class);
+    assertThat(future.isCancelled()).isTrue();
+    assertThat(ran).isFalse();
+  }
+
+  @Test
+  void cancelsExecutedFutureForCancelledRequest() {
+    ctx.cancel();
+    AtomicBoolean ran = new AtomicBoolean();
+    FutureTask<?> task = new FutureTask<>(() -> ran.set(true), null);
+    try (SafeCloseable ignored = ctx.push()) {
+      executor.execute(task);
+    }
+    assertThatThrownBy(task::get).isInstanceOf(CancellationException.class);
+    assertThat(ran).isFalse();
+  }
+}
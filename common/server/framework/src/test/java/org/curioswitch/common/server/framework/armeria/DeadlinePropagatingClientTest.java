@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.common.server.framework.armeria;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.ResponseTimeoutException;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.grpc.protocol.GrpcHeaderNames;
+import com.linecorp.armeria.common.util.SafeCloseable;
+import com.linecorp.armeria.common.util.TimeoutMode;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class DeadlinePropagatingClientTest {
+
+  private final AtomicReference<ClientRequestContext> clientCtx = new AtomicReference<>();
+  private final AtomicReference<HttpRequest> clientReq = new AtomicReference<>();
+
+  @Test
+  void limitsResponseTimeoutToRemainingDeadline() {
+    ServiceRequestContext serverCtx = serverContext(100, 40);
+
+    execute(serverCtx, newClient(Duration.ofMinutes(5)), HttpRequest.of(HttpMethod.GET, "/"));
+
+    assertThat(clientCtx.get().responseTimeoutMillis()).isBetween(30_000L, 60_000L);
+    assertThat(clientReq.get().headers().contains(GrpcHeaderNames.GRPC_TIMEOUT)).isFalse();
+  }
+
+  @Test
+  void keepsShorterResponseTimeout() {
+    ServiceRequestContext serverCtx = serverContext(100, 40);
+
+    execute(serverCtx, newClient(Duration.ofSeconds(1)), HttpRequest.of(HttpMethod.GET, "/"));
+
+    assertThat(clientCtx.get().responseTimeoutMillis()).isEqualTo(1000L);
+  }
+
+  @Test
+  void propagatesGrpcTimeout() {
+    ServiceRequestContext serverCtx = serverContext(100, 40);
+    HttpRequest req =
+        HttpRequest.of(
+            RequestHeaders.builder(HttpMethod.POST, "/service/method")
+                .contentType(MediaType.parse("application/grpc+proto"))
+                .build());
+
+    execute(serverCtx, newClient(Duration.ZERO), req);
+
+    long responseTimeoutMillis = clientCtx.get().responseTimeoutMillis();
+    assertThat(responseTimeoutMillis).isBetween(30_000L, 60_000L);
+    assertThat(clientReq.get().headers().get(GrpcHeaderNames.GRPC_TIMEOUT))
+        .isEqualTo(responseTimeoutMillis + "m");
+  }
+
+  @Test
+  void failsAfterDeadline() {
+    ServiceRequestContext serverCtx = serverContext(1, 2);
+
+    assertThatThrownBy(
+            () -> execute(serverCtx, newClient(Duration.ZERO), HttpRequest.of(HttpMethod.GET, "/")))
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(ResponseTimeoutException.class);
+    assertThat(clientCtx.get()).isNull();
+  }
+
+  @Test
+  void ignoresRequestsWithoutTimeout() {
+    ServiceRequestContext serverCtx = ServiceRequestContext.of(HttpRequest.of(HttpMethod.GET, "/"));
+
+    execute(serverCtx, newClient(Duration.ofSeconds(30)), HttpRequest.of(HttpMethod.GET, "/"));
+
+    assertThat(clientCtx.get().responseTimeoutMillis()).isEqualTo(30000L);
+  }
+
+  // A server request with the given timeout which started the given number of seconds ago.
+  private static ServiceRequestContext serverContext(long timeoutSeconds, long elapsedSeconds) {
+    long startNanos = System.nanoTime() - TimeUnit.SECONDS.toNanos(elapsedSeconds);
+    long startMicros =
+        TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())
+            - TimeUnit.SECONDS.toMicros(elapsedSeconds);
+    ServiceRequestContext ctx =
+        ServiceRequestContext.builder(HttpRequest.of(HttpMethod.GET, "/"))
+            .requestStartTime(startNanos, startMicros)
+            .build();
+    ctx.setRequestTimeoutMillis(
+        TimeoutMode.SET_FROM_START, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+    return ctx;
+  }
+
+  private WebClient newClient(Duration responseTimeout) {
+    return WebClient.builder("http://127.0.0.1:1")
+        .responseTimeout(responseTimeout)
+        .decorator(
+            (delegate, ctx, req) -> {
+              clientCtx.set(ctx);
+              clientReq.set(req);
+              return HttpResponse.of(HttpStatus.OK);
+            })
+        .decorator(DeadlinePropagatingClient.newDecorator())
+        .build();
+  }
+
+  private static void execute(ServiceRequestContext serverCtx, WebClient client, HttpRequest req) {
+    try (SafeCloseable ignored = serverCtx.push()) {
+      client.execute(req).aggregate().join();
+    }
+  }
+}
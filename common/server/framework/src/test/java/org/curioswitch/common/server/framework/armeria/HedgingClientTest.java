@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.ClientRequestContextCaptor;
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
+import com.linecorp.armeria.common.AggregatedHttpResponse;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.Server;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HedgingClientTest {
+
+  private final AtomicBoolean slow = new AtomicBoolean();
+
+  private Server fastServer;
+  private Server slowServer;
+  private SimpleMeterRegistry meterRegistry;
+  private WebClient client;
+
+  @BeforeEach
+  void setUp() {
+    fastServer =
+        Server.builder().http(0).service("/hello", (ctx, req) -> HttpResponse.of("hello")).build();
+    slowServer =
+        Server.builder()
+            .http(0)
+            .service(
+                "/hello",
+                (ctx, req) ->
+                    slow.get()
+                        ? HttpResponse.delayed(HttpResponse.of("slow"), Duration.ofSeconds(2))
+                        : HttpResponse.of("hello"))
+            .build();
+    fastServer.start().join();
+    slowServer.start().join();
+
+    meterRegistry = new SimpleMeterRegistry();
+    client =
+        WebClient.builder(
+                SessionProtocol.HTTP,
+                EndpointGroup.of(
+                    Endpoint.of("127.0.0.1", fastServer.activeLocalPort()),
+                    Endpoint.of("127.0.0.1", slowServer.activeLocalPort())))
+            .decorator(
+                HedgingClient.newDecorator(
+                    "test",
+                    new HedgingPolicy.Builder()
+                        .addIdempotentMethods("/hello")
+                        .minDelay(Duration.ofMillis(100))
+                        .build(),
+                    meterRegistry))
+            .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    fastServer.stop().join();
+    slowServer.stop().join();
+  }
+
+  @Test
+  void slowEndpointHedged() throws Exception {
+    // Build up latency history and hedging budget.
+    for (int i = 0; i < 200; i++) {
+      assertThat(client.get("/hello").aggregate().join().contentUtf8()).isEqualTo("hello");
+    }
+    Thread.sleep(1100);
+
+    slow.set(true);
+    for (int i = 0; i < 4; i++) {
+      final HttpResponse response;
+      final ClientRequestContext ctx;
+      try (ClientRequestContextCaptor captor = Clients.newContextCaptor()) {
+        response = client.get("/hello");
+        ctx = captor.get();
+      }
+      AggregatedHttpResponse res = response.aggregate().join();
+      assertThat(res.status()).isEqualTo(HttpStatus.OK);
+      assertThat(res.contentUtf8()).isEqualTo("hello");
+      assertThat(ctx.log().whenComplete().join().responseHeaders().status())
+          .isEqualTo(HttpStatus.OK);
+    }
+
+    // Whether the original request goes to the slow server depends on the order of round robin,
+    // but every request that did must have been hedged.
+    double hedgesSent = meterRegistry.get("client-hedges-sent").counter().count();
+    assertThat(hedgesSent).isGreaterThanOrEqualTo(2);
+    assertThat(meterRegistry.get("client-hedges-won").counter().count()).isEqualTo(hedgesSent);
+  }
+
+  @Test
+  void notIdempotent() {
+    for (int i = 0; i < 10; i++) {
+      assertThat(client.get("/other").aggregate().join().status()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+    assertThat(meterRegistry.get("client-hedges-sent").counter().count()).isZero();
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.armeria;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.ResponseHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LoadAwareEndpointSelectionStrategyTest {
+
+  private static final Endpoint ENDPOINT_A = Endpoint.of("a.cluster.local", 8080);
+  private static final Endpoint ENDPOINT_B = Endpoint.of("b.cluster.local", 8080);
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void leastLoaded() {
+    EndpointGroup group = newGroup(EndpointSelectionType.LEAST_LOADED);
+
+    // With two endpoints, both are always compared so the choice is deterministic.
+    ClientRequestContext first = newContext();
+    Endpoint busy = group.selectNow(first);
+    assertThat(busy).isNotNull();
+    Endpoint idle = busy.equals(ENDPOINT_A) ? ENDPOINT_B : ENDPOINT_A;
+
+    assertThat(group.selectNow(newContext())).isEqualTo(idle);
+    assertThat(
+            meterRegistry
+                .get("client-endpoint-in-flight-requests")
+                .tag("client", "test")
+                .tag("endpoint", busy.authority())
+                .gauge()
+                .value())
+        .isEqualTo(1);
+
+    complete(first);
+    assertThat(
+            meterRegistry
+                .get("client-endpoint-in-flight-requests")
+                .tag("endpoint", busy.authority())
+                .gauge()
+                .value())
+        .isZero();
+  }
+
+  @Test
+  void peakEwmaAvoidsSlowEndpoint() throws Exception {
+    EndpointGroup group = newGroup(EndpointSelectionType.PEAK_EWMA);
+
+    ClientRequestContext slowRequest = newContext();
+    Endpoint slow = group.selectNow(slowRequest);
+    Thread.sleep(50);
+    complete(slowRequest);
+
+    ClientRequestContext fastRequest = newContext();
+    Endpoint fast = group.selectNow(fastRequest);
+    assertThat(fast).isNotEqualTo(slow);
+    complete(fastRequest);
+
+    for (int i = 0; i < 10; i++) {
+      ClientRequestContext ctx = newContext();
+      assertThat(group.selectNow(ctx)).isEqualTo(fast);
+      complete(ctx);
+    }
+  }
+
+  @Test
+  void clientsWithSameNameHaveSeparateGauges() {
+    EndpointGroup first = newGroup(EndpointSelectionType.LEAST_LOADED);
+    EndpointGroup second = newGroup(EndpointSelectionType.LEAST_LOADED);
+
+    first.selectNow(newContext());
+    first.selectNow(newContext());
+    second.selectNow(newContext());
+    second.selectNow(newContext());
+
+    assertThat(
+            meterRegistry
+                .get("client-endpoint-in-flight-requests")
+                .tag("endpoint", ENDPOINT_A.authority())
+                .gauges())
+        .hasSize(2)
+        .allSatisfy(gauge -> assertThat(gauge.value()).isEqualTo(1));
+  }
+
+  private EndpointGroup newGroup(EndpointSelectionType type) {
+    return EndpointGroup.of(
+        new LoadAwareEndpointSelectionStrategy(type, "test", meterRegistry),
+        ENDPOINT_A,
+        ENDPOINT_B);
+  }
+
+  private static ClientRequestContext newContext() {
+    return ClientRequestContext.of(HttpRequest.of(HttpMethod.GET, "/"));
+  }
+
+  // Log listeners are notified on the context's event loop, so wait for them.
+  private static void complete(ClientRequestContext ctx) {
+    ctx.logBuilder().endRequest();
+    ctx.logBuilder().responseHeaders(ResponseHeaders.of(HttpStatus.OK));
+    ctx.logBuilder().endResponse();
+    ctx.eventLoop().submit(() -> {}).syncUninterruptibly();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.curioswitch.common.server.framework.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.util.SafeCloseable;
+import com.linecorp.armeria.common.util.TimeoutMode;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+import org.jooq.ExecuteContext;
+import org.jooq.exception.DataAccessException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+class RequestDeadlineExecuteListenerTest {
+
+  @Mock private ExecuteContext executeContext;
+  @Mock private PreparedStatement statement;
+
+  private final RequestDeadlineExecuteListener listener = new RequestDeadlineExecuteListener();
+
+  @Test
+  void setsQueryTimeoutToRemainingDeadline() throws Exception {
+    when(executeContext.statement()).thenReturn(statement);
+
+    executeStart(serverContext(100, 40));
+
+    ArgumentCaptor<Integer> timeoutSeconds = ArgumentCaptor.forClass(Integer.class);
+    verify(statement).setQueryTimeout(timeoutSeconds.capture());
+    assertThat(timeoutSeconds.getValue()).isBetween(30, 60);
+  }
+
+  @Test
+  void keepsShorterQueryTimeout() throws Exception {
+    when(executeContext.statement()).thenReturn(statement);
+    when(statement.getQueryTimeout()).thenReturn(10);
+
+    executeStart(serverContext(100, 40));
+
+    verify(statement, never()).setQueryTimeout(anyInt());
+  }
+
+  @Test
+  void failsQueryAfterDeadline() {
+    ServiceRequestContext serverCtx = serverContext(1, 2);
+
+    assertThatThrownBy(() -> executeStart(serverCtx)).isInstanceOf(DataAccessException.class);
+    verifyNoInteractions(executeContext);
+  }
+
+  @Test
+  void ignoresQueriesWithoutRequest() {
+    listener.executeStart(executeContext);
+
+    verifyNoInteractions(executeContext);
+  }
+
+  private void executeStart(ServiceRequestContext serverCtx) {
+    try (SafeCloseable ignored = serverCtx.push()) {
+      listener.executeStart(executeContext);
+    }
+  }
+
+  // A server request with the given timeout which started the given number of seconds ago.
+  private static ServiceRequestContext serverContext(long timeoutSeconds, long elapsedSeconds) {
+    long startNanos = System.nanoTime() - TimeUnit.SECONDS.toNanos(elapsedSeconds);
+    long startMicros =
+        TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())
+            - TimeUnit.SECONDS.toMicros(elapsedSeconds);
+    ServiceRequestContext ctx =
+        ServiceRequestContext.builder(HttpRequest.of(HttpMethod.GET, "/"))
+            .requestStartTime(startNanos, startMicros)
+            .build();
+    ctx.setRequestTimeoutMillis(
+        TimeoutMode.SET_FROM_START, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+    return ctx;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Test
+  void rejectsOverLimit() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isFalse();
+
+    limiter.onIgnored();
+    assertThat(limiter.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void growsWhenLatencyStable() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+    for (int i = 0; i < 100; i++) {
+      runAtLimit(limiter, LATENCY_NANOS);
+    }
+    assertThat(limiter.limit()).isEqualTo(100);
+  }
+
+  @Test
+  void shrinksWhenLatencyIncreases() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 100);
+    for (int i = 0; i < 20; i++) {
+      runAtLimit(limiter, LATENCY_NANOS);
+    }
+    int stableLimit = limiter.limit();
+
+    for (int i = 0; i < 5; i++) {
+      runAtLimit(limiter, LATENCY_NANOS * 10);
+    }
+    assertThat(limiter.limit()).isLessThan(stableLimit / 2);
+  }
+
+  @Test
+  void doesNotGrowWhenUnderused() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(limiter.tryAcquire()).isTrue();
+      limiter.onSuccess(LATENCY_NANOS);
+    }
+    assertThat(limiter.limit()).isEqualTo(10);
+  }
+
+  @Test
+  void backsOffOnTimeout() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 100);
+    assertThat(limiter.tryAcquire()).isTrue();
+    limiter.onDropped();
+    assertThat(limiter.limit()).isEqualTo(90);
+    assertThat(limiter.inFlight()).isZero();
+  }
+
+  private static void runAtLimit(AdaptiveConcurrencyLimiter limiter, long latencyNanos) {
+    int started = 0;
+    while (limiter.tryAcquire()) {
+      started++;
+    }
+    for (int i = 0; i < started; i++) {
+      limiter.onSuccess(latencyNanos);
+    }
+  }
+}
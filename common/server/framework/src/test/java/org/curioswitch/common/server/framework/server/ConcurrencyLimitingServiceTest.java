@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.common.server.framework.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpResponse;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.grpc.protocol.GrpcHeaderNames;
+import com.linecorp.armeria.common.util.TimeoutMode;
+import com.linecorp.armeria.server.HttpService;
+import com.linecorp.armeria.server.Server;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.curioswitch.common.server.framework.config.ModifiableServerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitingServiceTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  // Requests to held services don't complete until this completes.
+  private final CompletableFuture<Void> release = new CompletableFuture<>();
+
+  private Server server;
+  private WebClient client;
+
+  @BeforeEach
+  void setUp() {
+    ModifiableServerConfig config = new ModifiableServerConfig();
+    config.setInitialConcurrencyLimit(2);
+    config.setMinConcurrencyLimit(1);
+    config.setMaxConcurrencyLimit(2);
+    ConcurrencyLimitingService.Factory factory =
+        new ConcurrencyLimitingService.Factory(config, registry);
+
+    HttpService held =
+        (ctx, req) -> {
+          if (ctx.queryParam("timeout") != null) {
+            ctx.setRequestTimeout(TimeoutMode.SET_FROM_NOW, Duration.ofMillis(100));
+          }
+          return HttpResponse.of(release.thenApply(unused -> HttpResponse.of(HttpStatus.OK)));
+        };
+    server =
+        Server.builder()
+            .http(0)
+            .requestTimeout(Duration.ZERO)
+            .route()
+            .path("/held")
+            .decorator(factory.newDecorator())
+            .build(held)
+            .route()
+            .path("/other")
+            .decorator(factory.newDecorator())
+            .build(held)
+            .route()
+            .path("/fast")
+            .decorator(factory.newDecorator())
+            .build((ctx, req) -> HttpResponse.of(HttpStatus.OK))
+            .route()
+            .path("/stream")
+            .decorator(factory.newDecorator())
+            .build(
+                (ctx, req) -> {
+                  HttpResponseWriter res = HttpResponse.streaming();
+                  res.write(ResponseHeaders.of(HttpStatus.OK));
+                  res.write(HttpData.ofUtf8("first"));
+                  release.thenRun(res::close);
+                  return res;
+                })
+            .build();
+    server.start().join();
+    client =
+        WebClient.builder("http://127.0.0.1:" + server.activeLocalPort())
+            .responseTimeout(Duration.ZERO)
+            .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.complete(null);
+    server.stop().join();
+  }
+
+  @Test
+  void rejectsWhenServerLimitReached() {
+    CompletableFuture<AggregatedHttpResponse> first = client.get("/held").aggregate();
+    CompletableFuture<AggregatedHttpResponse> second = client.get("/other").aggregate();
+    await().untilAsserted(() -> assertThat(inFlight("server")).isEqualTo(2));
+    assertThat(inFlight("/held")).isEqualTo(1);
+    assertThat(inFlight("/other")).isEqualTo(1);
+
+    AggregatedHttpResponse rejected = client.get("/fast").aggregate().join();
+    assertThat(rejected.status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(rejected.headers().get(HttpHeaderNames.RETRY_AFTER)).isEqualTo("1");
+    assertThat(rejections("server")).isEqualTo(1);
+    assertThat(rejections("/fast")).isZero();
+
+    release.complete(null);
+    assertThat(first.join().status()).isEqualTo(HttpStatus.OK);
+    assertThat(second.join().status()).isEqualTo(HttpStatus.OK);
+    await().untilAsserted(() -> assertThat(inFlight("server")).isZero());
+  }
+
+  @Test
+  void rejectsGrpcWithTrailersOnlyResponse() {
+    client.get("/held").aggregate();
+    client.get("/other").aggregate();
+    await().untilAsserted(() -> assertThat(inFlight("server")).isEqualTo(2));
+
+    AggregatedHttpResponse rejected =
+        client
+            .execute(
+                RequestHeaders.builder(HttpMethod.POST, "/fast")
+                    .contentType(MediaType.parse("application/grpc+proto"))
+                    .build(),
+                HttpData.empty())
+            .aggregate()
+            .join();
+    assertThat(rejected.status()).isEqualTo(HttpStatus.OK);
+    assertThat(rejected.headers().get(GrpcHeaderNames.GRPC_STATUS)).isEqualTo("8");
+    assertThat(rejected.headers().get(HttpHeaderNames.RETRY_AFTER)).isEqualTo("1");
+    assertThat(rejected.content().isEmpty()).isTrue();
+    assertThat(rejected.trailers().isEmpty()).isTrue();
+  }
+
+  @Test
+  void timeoutsReleasePermitAndOnlyReduceTheirRouteBelowServer() {
+    AggregatedHttpResponse timedOut = client.get("/held?timeout").aggregate().join();
+    assertThat(timedOut.status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    await().untilAsserted(() -> assertThat(inFlight("server")).isZero());
+    assertThat(inFlight("/held")).isZero();
+    assertThat(limit("/held")).isEqualTo(1);
+
+    // Successful requests to other routes let the server limit recover, while the route that timed
+    // out keeps its lower limit.
+    for (int i = 0; i < 20; i++) {
+      assertThat(client.get("/fast").aggregate().join().status()).isEqualTo(HttpStatus.OK);
+    }
+    await().untilAsserted(() -> assertThat(limit("server")).isEqualTo(2));
+
+    client.get("/held").aggregate();
+    await().untilAsserted(() -> assertThat(inFlight("/held")).isEqualTo(1));
+    assertThat(client.get("/held").aggregate().join().status())
+        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(rejections("/held")).isEqualTo(1);
+    assertThat(rejections("server")).isZero();
+  }
+
+  @Test
+  void streamingResponseReleasesPermitAtHeaders() {
+    var stream = client.get("/stream").split();
+    assertThat(stream.headers().join().status()).isEqualTo(HttpStatus.OK);
+
+    // The response is still streaming but no longer holds a permit.
+    await().untilAsserted(() -> assertThat(inFlight("server")).isZero());
+    assertThat(inFlight("/stream")).isZero();
+    assertThat(stream.body().whenComplete()).isNotDone();
+  }
+
+  private double inFlight(String route) {
+    return registry.get("concurrency-limit-in-flight").tag("route", route).gauge().value();
+  }
+
+  private double limit(String route) {
+    return registry.get("concurrency-limit").tag("route", route).gauge().value();
+  }
+
+  private double rejections(String route) {
+    return registry.get("concurrency-limit-rejections").tag("route", route).counter().count();
+  }
+}
@@ -0,0 +1,538 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gateway;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.base.Ascii;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.ClientCacheControl;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpObject;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.ResponseHeadersBuilder;
+import com.linecorp.armeria.common.ServerCacheControl;
+import com.linecorp.armeria.common.SplitHttpResponse;
+import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.common.stream.SubscriptionOption;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+import io.netty.util.IllegalReferenceCountException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import org.curioswitch.curiostack.gateway.RoutingConfig.CacheConfig;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * An in-memory cache of backend responses for a routing rule, following the semantics of a shared
+ * cache as specified by {@code Cache-Control}. Response bodies are stored in pooled buffers and the
+ * cache is bounded by their total size. Stale responses with an {@code ETag} or {@code
+ * Last-Modified} validator are revalidated with a conditional request to the backend, and
+ * concurrent requests for a URL that is not in the cache are coalesced into a single backend
+ * request.
+ *
+ * <p>Only one variant is stored per URL. If a response has a {@code Vary} header, requests with
+ * different values for the listed headers are proxied to the backend.
+ */
+final class ResponseCache {
+
+  // Rough size of the headers and bookkeeping of a cached response, so tiny responses still count
+  // towards the size limit.
+  private static final int ENTRY_OVERHEAD_BYTES = 512;
+
+  private static final Splitter COMMA_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private final Cache<String, CachedResponse> responses;
+  private final ConcurrentMap<String, CompletableFuture<CachedResponse>> inFlight =
+      new ConcurrentHashMap<>();
+  private final int maxEntrySizeBytes;
+
+  private volatile boolean closed;
+
+  ResponseCache(CacheConfig config) {
+    maxEntrySizeBytes = config.getMaxEntrySizeBytes();
+    responses =
+        Caffeine.newBuilder()
+            .maximumWeight(config.getMaxSizeBytes())
+            .weigher((String unused, CachedResponse response) -> response.weight())
+            // Release buffers as soon as they leave the cache rather than on a pool thread.
+            .executor(Runnable::run)
+            .removalListener(
+                (String unused, CachedResponse response, RemovalCause cause) -> {
+                  if (response != null) {
+                    response.release();
+                  }
+                })
+            .build();
+  }
+
+  /** Serves {@code req} from the cache when possible, or executes it with {@code client}. */
+  HttpResponse execute(WebClient client, ServiceRequestContext ctx, HttpRequest req) {
+    RequestHeaders headers = req.headers();
+    if (headers.method() != HttpMethod.GET || headers.contains(HttpHeaderNames.AUTHORIZATION)) {
+      return client.execute(req);
+    }
+    ClientCacheControl requestCacheControl =
+        ClientCacheControl.parse(headers.getAll(HttpHeaderNames.CACHE_CONTROL));
+    if (requestCacheControl.noStore()) {
+      return client.execute(req);
+    }
+
+    String key = headers.path();
+    CachedResponse cached = responses.getIfPresent(key);
+    if (cached != null && !cached.matchesVary(headers)) {
+      cached = null;
+    }
+    if (cached != null
+        && !requestCacheControl.noCache()
+        && requestCacheControl.maxAgeSeconds() != 0
+        && cached.isFresh(System.currentTimeMillis())) {
+      HttpResponse res = cached.toResponse(headers, System.currentTimeMillis());
+      if (res != null) {
+        return res;
+      }
+    }
+
+    CompletableFuture<CachedResponse> fetch = new CompletableFuture<>();
+    CompletableFuture<CachedResponse> existing = inFlight.putIfAbsent(key, fetch);
+    if (existing != null) {
+      // Another request is already fetching this URL, wait for it and serve its response if it
+      // could be shared.
+      return HttpResponse.of(
+          existing.handleAsync(
+              (response, t) -> {
+                if (response != null && response.matchesVary(headers)) {
+                  HttpResponse res = response.toResponse(headers, System.currentTimeMillis());
+                  if (res != null) {
+                    return res;
+                  }
+                }
+                return client.execute(req);
+              },
+              ctx.eventLoop()));
+    }
+    fetch.whenComplete((unused, t) -> inFlight.remove(key, fetch));
+
+    return fetch(
+        client, ctx, req, key, cached != null && cached.hasValidator() ? cached : null, fetch);
+  }
+
+  /**
+   * Removes all cached responses, releasing their buffers. Responses fetched by requests still in
+   * flight are not cached.
+   */
+  void close() {
+    closed = true;
+    responses.invalidateAll();
+  }
+
+  private void store(String key, CachedResponse response) {
+    responses.put(key, response);
+    if (closed) {
+      responses.invalidate(key);
+    }
+  }
+
+  private HttpResponse fetch(
+      WebClient client,
+      ServiceRequestContext ctx,
+      HttpRequest req,
+      String key,
+      @Nullable CachedResponse stale,
+      CompletableFuture<CachedResponse> fetch) {
+    RequestHeaders headers = req.headers();
+    HttpRequest upstreamReq = stale != null ? req.withHeaders(stale.addValidators(headers)) : req;
+
+    SplitHttpResponse upstream = client.execute(upstreamReq).split();
+    return HttpResponse.of(
+        upstream
+            .headers()
+            .handle(
+                (responseHeaders, t) -> {
+                  if (t != null) {
+                    fetch.completeExceptionally(t);
+                    return HttpResponse.ofFailure(t);
+                  }
+
+                  if (stale != null && responseHeaders.status().equals(HttpStatus.NOT_MODIFIED)) {
+                    upstream.body().abort();
+                    long now = System.currentTimeMillis();
+                    CachedResponse revalidated = stale.revalidate(responseHeaders, now);
+                    HttpResponse res =
+                        revalidated != null ? revalidated.toResponse(headers, now) : null;
+                    if (res == null) {
+                      // Evicted while revalidating, just proxy the original request.
+                      fetch.complete(null);
+                      return client.execute(req);
+                    }
+                    store(key, revalidated);
+                    fetch.complete(revalidated);
+                    return res;
+                  }
+
+                  if (!isStorable(responseHeaders)) {
+                    fetch.complete(null);
+                    return passThrough(responseHeaders, upstream);
+                  }
+
+                  return new BodyCollector(ctx, headers, key, responseHeaders, upstream, fetch)
+                      .collect();
+                }));
+  }
+
+  private boolean isStorable(ResponseHeaders headers) {
+    if (!headers.status().equals(HttpStatus.OK)
+        || headers.contains(HttpHeaderNames.SET_COOKIE)
+        || headers.contentLength() > maxEntrySizeBytes
+        || varyNames(headers).contains("*")) {
+      return false;
+    }
+    ServerCacheControl cacheControl =
+        ServerCacheControl.parse(headers.getAll(HttpHeaderNames.CACHE_CONTROL));
+    if (cacheControl.noStore() || cacheControl.cachePrivate()) {
+      return false;
+    }
+    if (cacheControl.noCache()) {
+      return hasValidator(headers);
+    }
+    return freshnessLifetimeSeconds(cacheControl) > 0;
+  }
+
+  private static HttpResponse passThrough(ResponseHeaders headers, SplitHttpResponse response) {
+    StreamMessage<HttpHeaders> trailers =
+        StreamMessage.of(
+            response
+                .trailers()
+                .thenApply(
+                    t -> t.isEmpty() ? StreamMessage.<HttpHeaders>of() : StreamMessage.of(t)));
+    return HttpResponse.of(
+        StreamMessage.<HttpObject>concat(StreamMessage.of(headers), response.body(), trailers));
+  }
+
+  private static long freshnessLifetimeSeconds(ServerCacheControl cacheControl) {
+    if (cacheControl.noCache()) {
+      return 0;
+    }
+    if (cacheControl.sMaxAgeSeconds() >= 0) {
+      return cacheControl.sMaxAgeSeconds();
+    }
+    return Math.max(cacheControl.maxAgeSeconds(), 0);
+  }
+
+  private static boolean hasValidator(ResponseHeaders headers) {
+    return headers.contains(HttpHeaderNames.ETAG)
+        || headers.contains(HttpHeaderNames.LAST_MODIFIED);
+  }
+
+  private static List<String> varyNames(ResponseHeaders headers) {
+    return headers.getAll(HttpHeaderNames.VARY).stream()
+        .flatMap(vary -> COMMA_SPLITTER.splitToStream(vary))
+        .map(Ascii::toLowerCase)
+        .collect(toImmutableList());
+  }
+
+  private static List<String> varyValues(ResponseHeaders headers, RequestHeaders requestHeaders) {
+    return varyNames(headers).stream()
+        .map(name -> String.join(",", requestHeaders.getAll(name)))
+        .collect(toImmutableList());
+  }
+
+  /**
+   * Buffers the body of a storable response to cache it. If the body turns out to be larger than
+   * {@link CacheConfig#getMaxEntrySizeBytes()}, which is only known once it is read when the
+   * response has no {@code Content-Length}, buffering stops and what has been read so far and the
+   * rest of the body are streamed to the client without caching.
+   */
+  private final class BodyCollector implements Subscriber<HttpData> {
+
+    private final ServiceRequestContext ctx;
+    private final RequestHeaders requestHeaders;
+    private final String key;
+    private final ResponseHeaders responseHeaders;
+    private final SplitHttpResponse upstream;
+    private final CompletableFuture<CachedResponse> fetch;
+    private final CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+
+    @Nullable private Subscription subscription;
+    @Nullable private ByteBuf buffered;
+    @Nullable private HttpResponseWriter writer;
+
+    private BodyCollector(
+        ServiceRequestContext ctx,
+        RequestHeaders requestHeaders,
+        String key,
+        ResponseHeaders responseHeaders,
+        SplitHttpResponse upstream,
+        CompletableFuture<CachedResponse> fetch) {
+      this.ctx = ctx;
+      this.requestHeaders = requestHeaders;
+      this.key = key;
+      this.responseHeaders = responseHeaders;
+      this.upstream = upstream;
+      this.fetch = fetch;
+    }
+
+    HttpResponse collect() {
+      upstream.body().subscribe(this, ctx.eventLoop(), SubscriptionOption.WITH_POOLED_OBJECTS);
+      return HttpResponse.of(response);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      subscription = s;
+      s.request(1);
+    }
+
+    @Override
+    public void onNext(HttpData data) {
+      if (writer != null) {
+        stream(data);
+        return;
+      }
+
+      long length = buffered != null ? buffered.readableBytes() : 0;
+      if (length + data.length() <= maxEntrySizeBytes) {
+        try (data) {
+          if (buffered == null) {
+            long contentLength = responseHeaders.contentLength();
+            buffered = ctx.alloc().buffer(contentLength >= 0 ? (int) contentLength : data.length());
+          }
+          buffered.writeBytes(data.byteBuf());
+        }
+        subscription.request(1);
+        return;
+      }
+
+      // Too large to cache, stop buffering and stream the response instead.
+      fetch.complete(null);
+      HttpResponseWriter writer = HttpResponse.streaming();
+      this.writer = writer;
+      writer
+          .whenComplete()
+          .exceptionally(
+              t -> {
+                subscription.cancel();
+                return null;
+              });
+      response.complete(writer);
+      writer.tryWrite(responseHeaders);
+      if (buffered != null) {
+        writer.tryWrite(HttpData.wrap(buffered));
+        buffered = null;
+      }
+      stream(data);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (writer != null) {
+        writer.close(t);
+        return;
+      }
+      releaseBuffered();
+      fetch.completeExceptionally(t);
+      response.complete(HttpResponse.ofFailure(t));
+    }
+
+    @Override
+    public void onComplete() {
+      if (writer != null) {
+        HttpResponseWriter writer = this.writer;
+        upstream
+            .trailers()
+            .handle(
+                (trailers, unused) -> {
+                  if (trailers != null && !trailers.isEmpty()) {
+                    writer.tryWrite(trailers);
+                  }
+                  writer.close();
+                  return null;
+                });
+        return;
+      }
+
+      HttpData content = buffered != null ? HttpData.wrap(buffered) : HttpData.empty();
+      buffered = null;
+      long now = System.currentTimeMillis();
+      CachedResponse cached =
+          new CachedResponse(
+              responseHeaders, content, varyValues(responseHeaders, requestHeaders), now);
+      // Create the response before caching, since the entry may be evicted and released
+      // immediately.
+      HttpResponse res = cached.toResponse(requestHeaders, now);
+      store(key, cached);
+      fetch.complete(cached);
+      response.complete(res);
+    }
+
+    private void stream(HttpData data) {
+      if (writer.tryWrite(data)) {
+        writer.whenConsumed().thenRun(() -> subscription.request(1));
+      }
+    }
+
+    private void releaseBuffered() {
+      if (buffered != null) {
+        buffered.release();
+        buffered = null;
+      }
+    }
+  }
+
+  private static final class CachedResponse {
+
+    private final ResponseHeaders headers;
+    private final HttpData body;
+    private final List<String> varyValues;
+    private final long receivedAtMillis;
+    private final long initialAgeSeconds;
+    private final long expiresAtMillis;
+
+    private CachedResponse(
+        ResponseHeaders headers, HttpData body, List<String> varyValues, long receivedAtMillis) {
+      this.headers = headers;
+      this.body = body;
+      this.varyValues = ImmutableList.copyOf(varyValues);
+      this.receivedAtMillis = receivedAtMillis;
+
+      initialAgeSeconds = Math.max(headers.getLong(HttpHeaderNames.AGE, 0), 0);
+      long lifetimeSeconds =
+          freshnessLifetimeSeconds(
+              ServerCacheControl.parse(headers.getAll(HttpHeaderNames.CACHE_CONTROL)));
+      expiresAtMillis = receivedAtMillis + (lifetimeSeconds - initialAgeSeconds) * 1000;
+    }
+
+    boolean isFresh(long nowMillis) {
+      return nowMillis < expiresAtMillis;
+    }
+
+    boolean hasValidator() {
+      return ResponseCache.hasValidator(headers);
+    }
+
+    boolean matchesVary(RequestHeaders requestHeaders) {
+      return varyValues.equals(varyValues(headers, requestHeaders));
+    }
+
+    RequestHeaders addValidators(RequestHeaders requestHeaders) {
+      String etag = headers.get(HttpHeaderNames.ETAG);
+      if (etag != null) {
+        return requestHeaders.toBuilder()
+            .set(HttpHeaderNames.IF_NONE_MATCH, etag)
+            .removeAndThen(HttpHeaderNames.IF_MODIFIED_SINCE)
+            .build();
+      }
+      return requestHeaders.toBuilder()
+          .set(HttpHeaderNames.IF_MODIFIED_SINCE, headers.get(HttpHeaderNames.LAST_MODIFIED))
+          .removeAndThen(HttpHeaderNames.IF_NONE_MATCH)
+          .build();
+    }
+
+    /**
+     * Returns a {@link CachedResponse} with the same body and headers updated from a {@code 304 Not
+     * Modified} response, or {@code null} if the body has already been released.
+     */
+    @Nullable
+    CachedResponse revalidate(ResponseHeaders notModified, long nowMillis) {
+      ResponseHeadersBuilder updated = headers.toBuilder();
+      for (AsciiString name : notModified.names()) {
+        if (name.charAt(0) == ':' || name.contentEqualsIgnoreCase(HttpHeaderNames.CONTENT_LENGTH)) {
+          continue;
+        }
+        updated.set(name, notModified.getAll(name));
+      }
+      ByteBuf buf = retainBody();
+      if (buf == null) {
+        return null;
+      }
+      return new CachedResponse(updated.build(), HttpData.wrap(buf), varyValues, nowMillis);
+    }
+
+    /**
+     * Returns a response serving this {@link CachedResponse} to a request with {@code
+     * requestHeaders}, or {@code null} if the body has already been released.
+     */
+    @Nullable
+    HttpResponse toResponse(RequestHeaders requestHeaders, long nowMillis) {
+      long ageSeconds = initialAgeSeconds + (nowMillis - receivedAtMillis) / 1000;
+      ResponseHeadersBuilder responseHeaders =
+          headers.toBuilder().setLong(HttpHeaderNames.AGE, ageSeconds);
+
+      String etag = headers.get(HttpHeaderNames.ETAG);
+      String ifNoneMatch = requestHeaders.get(HttpHeaderNames.IF_NONE_MATCH);
+      if (etag != null
+          && ifNoneMatch != null
+          && (ifNoneMatch.trim().equals("*")
+              || COMMA_SPLITTER.splitToList(ifNoneMatch).contains(etag))) {
+        return HttpResponse.of(
+            responseHeaders
+                .status(HttpStatus.NOT_MODIFIED)
+                .removeAndThen(HttpHeaderNames.CONTENT_LENGTH)
+                .build());
+      }
+
+      ByteBuf buf = retainBody();
+      if (buf == null) {
+        return null;
+      }
+      return HttpResponse.of(responseHeaders.build(), HttpData.wrap(buf));
+    }
+
+    int weight() {
+      return (int) Math.min(Integer.MAX_VALUE, (long) body.length() + ENTRY_OVERHEAD_BYTES);
+    }
+
+    void release() {
+      body.close();
+    }
+
+    @Nullable
+    private ByteBuf retainBody() {
+      try {
+        return body.byteBuf().retainedDuplicate();
+      } catch (IllegalReferenceCountException e) {
+        return null;
+      }
+    }
+  }
+}
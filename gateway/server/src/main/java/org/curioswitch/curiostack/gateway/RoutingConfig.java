@@ -29,6 +29,8 @@ import com.linecorp.armeria.client.ClientOptions;
 import com.linecorp.armeria.server.Service;
 import java.net.URI;
 import java.util.List;
+import javax.annotation.Nullable;
+import org.curioswitch.common.server.framework.armeria.EndpointSelectionType;
 import org.curioswitch.common.server.framework.immutables.CurioStyle;
 import org.immutables.value.Value.Immutable;
 
@@ -56,11 +58,41 @@ interface RoutingConfig {
      * DNS load balancing will be enabled for the URL.
      */
     String getUrl();
+
+    /**
+     * How requests are balanced between the endpoints of the backend. If not set, the server's
+     * default client endpoint selection is used.
+     */
+    @Nullable
+    EndpointSelectionType getEndpointSelection();
   }
 
   /** The targets to route to. Rules should be specified below using the names of these targets. */
   List<Target> getTargets();
 
+  /**
+   * Configuration of the response cache for a {@link Rule}. Only responses to {@code GET} requests
+   * that the backend marks as cacheable by a shared cache using {@code Cache-Control} are stored.
+   */
+  @Immutable
+  @CurioStyle
+  @JsonDeserialize(as = ImmutableCacheConfig.class)
+  interface CacheConfig {
+
+    /** The maximum total size of response bodies cached for the rule. Defaults to 64MB. */
+    default long getMaxSizeBytes() {
+      return 64L * 1024 * 1024;
+    }
+
+    /**
+     * The maximum size of a single response body to cache. Larger responses are proxied without
+     * being cached. Defaults to 1MB.
+     */
+    default int getMaxEntrySizeBytes() {
+      return 1024 * 1024;
+    }
+  }
+
   /** A single routing rule for the gateway. Each rule corresponds to a backend server. */
   @Immutable
   @CurioStyle
@@ -78,6 +110,13 @@ interface RoutingConfig {
 
     /** The name of the target to route requests to the path to. */
     String getTarget();
+
+    /**
+     * Configuration of the response cache for requests matching this rule. If not set, responses
+     * are not cached and all requests are proxied to the target.
+     */
+    @Nullable
+    CacheConfig getCache();
   }
 
   /** Get the routing config's rules. */
@@ -28,6 +28,7 @@ import static com.google.common.collect.ImmutableMap.toImmutableMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.linecorp.armeria.client.ClientBuilder;
 import com.linecorp.armeria.client.WebClient;
 import com.linecorp.armeria.server.Route;
 import java.io.IOException;
@@ -52,7 +53,7 @@ class RoutingConfigLoader {
     this.clientBuilderFactory = clientBuilderFactory;
   }
 
-  Map<Route, WebClient> load(Path configPath) {
+  Map<Route, RoutingTarget> load(Path configPath) {
     final RoutingConfig config;
     try {
       config = OBJECT_MAPPER.readValue(configPath.toFile(), RoutingConfig.class);
@@ -65,16 +66,24 @@ class RoutingConfigLoader {
             .collect(
                 toImmutableMap(
                     Target::getName,
-                    t ->
-                        clientBuilderFactory
-                            .create(t.getName(), addSerializationFormat(t.getUrl()))
-                            .build(WebClient.class)));
+                    t -> {
+                      String url = addSerializationFormat(t.getUrl());
+                      ClientBuilder builder =
+                          t.getEndpointSelection() != null
+                              ? clientBuilderFactory.create(
+                                  t.getName(), url, t.getEndpointSelection())
+                              : clientBuilderFactory.create(t.getName(), url);
+                      return builder.build(WebClient.class);
+                    }));
 
     return config.getRules().stream()
         .collect(
             toImmutableMap(
                 r -> Route.builder().path(r.getPathPattern()).build(),
-                r -> clients.get(r.getTarget())));
+                r ->
+                    new RoutingTarget(
+                        clients.get(r.getTarget()),
+                        r.getCache() != null ? new ResponseCache(r.getCache()) : null)));
   }
 
   private static String addSerializationFormat(String url) {
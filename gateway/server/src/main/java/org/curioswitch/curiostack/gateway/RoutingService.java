@@ -26,7 +26,6 @@ package org.curioswitch.curiostack.gateway;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
-import com.linecorp.armeria.client.WebClient;
 import com.linecorp.armeria.common.Flags;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
@@ -45,41 +44,41 @@ class RoutingService implements HttpService {
 
   private static final Logger logger = LogManager.getLogger();
 
-  @Nullable private final LoadingCache<RoutingContext, WebClient> pathClients;
+  @Nullable private final LoadingCache<RoutingContext, RoutingTarget> pathTargets;
   private final boolean cachePaths;
 
-  private volatile Map<Route, WebClient> clients;
+  private volatile Map<Route, RoutingTarget> targets;
 
   @SuppressWarnings("ConstructorLeaksThis")
-  RoutingService(Map<Route, WebClient> clients) {
-    this.clients = clients;
+  RoutingService(Map<Route, RoutingTarget> targets) {
+    this.targets = targets;
 
     if (Flags.parsedPathCacheSpec() != null) {
       cachePaths = true;
-      pathClients = Caffeine.from(Flags.parsedPathCacheSpec()).build(this::find);
+      pathTargets = Caffeine.from(Flags.parsedPathCacheSpec()).build(this::find);
     } else {
       cachePaths = false;
-      pathClients = null;
+      pathTargets = null;
     }
   }
 
   @Override
   public HttpResponse serve(ServiceRequestContext ctx, HttpRequest req) {
     RoutingContext mappingContext = ctx.routingContext();
-    final WebClient client;
-    if (pathClients != null && mappingContext.query() == null) {
-      client = pathClients.get(mappingContext);
+    final RoutingTarget target;
+    if (pathTargets != null && mappingContext.query() == null) {
+      target = pathTargets.get(mappingContext);
     } else {
-      client = find(mappingContext);
+      target = find(mappingContext);
     }
-    if (client == null) {
+    if (target == null) {
       return HttpResponse.of(HttpStatus.NOT_FOUND);
     }
     // We don't want to pass the external domain name through to the backend server since this
     // causes problems with the TLS handshake between this server and the backend (the external
     // hostname does not match the names we use in our certs for server to server communication).
     req = req.withHeaders(req.headers().toBuilder().authority("").build());
-    return client.execute(req);
+    return target.execute(ctx, req);
   }
 
   @Override
@@ -88,19 +87,21 @@ class RoutingService implements HttpService {
   }
 
   @Nullable
-  private WebClient find(RoutingContext mappingContext) {
-    return clients.entrySet().stream()
+  private RoutingTarget find(RoutingContext mappingContext) {
+    return targets.entrySet().stream()
         .filter(entry -> entry.getKey().apply(mappingContext, false).isPresent())
         .map(Entry::getValue)
         .findFirst()
         .orElse(null);
   }
 
-  void updateClients(Map<Route, WebClient> clients) {
+  void updateClients(Map<Route, RoutingTarget> targets) {
     logger.info("Updating router targets.");
-    this.clients = clients;
-    if (pathClients != null) {
-      pathClients.invalidateAll();
+    Map<Route, RoutingTarget> oldTargets = this.targets;
+    this.targets = targets;
+    if (pathTargets != null) {
+      pathTargets.invalidateAll();
     }
+    oldTargets.values().forEach(RoutingTarget::close);
   }
 }
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gateway;
+
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import javax.annotation.Nullable;
+
+/** The backend a routing rule proxies to, along with the rule's response cache if enabled. */
+final class RoutingTarget {
+
+  private final WebClient client;
+  @Nullable private final ResponseCache cache;
+
+  RoutingTarget(WebClient client, @Nullable ResponseCache cache) {
+    this.client = client;
+    this.cache = cache;
+  }
+
+  HttpResponse execute(ServiceRequestContext ctx, HttpRequest req) {
+    if (cache != null) {
+      return cache.execute(client, ctx, req);
+    }
+    return client.execute(req);
+  }
+
+  /** Releases any resources held by this {@link RoutingTarget} after it is no longer routed to. */
+  void close() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2026 Choko (choko@curioswitch.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.curioswitch.curiostack.gateway;
+
+import static java.util.stream.Collectors.joining;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.linecorp.armeria.client.WebClient;
+import com.linecorp.armeria.common.AggregatedHttpResponse;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.RequestHeaders;
+import com.linecorp.armeria.common.ResponseHeaders;
+import com.linecorp.armeria.common.SplitHttpResponse;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ResponseCacheTest {
+
+  private WebClient client;
+  private ResponseCache cache;
+
+  @BeforeEach
+  void setUp() {
+    client = mock(WebClient.class);
+    cache = new ResponseCache(ImmutableCacheConfig.builder().build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    cache.close();
+  }
+
+  @Test
+  void cachesPublicResponse() {
+    when(client.execute(any(HttpRequest.class)))
+        .thenAnswer(
+            unused ->
+                HttpResponse.of(
+                    ResponseHeaders.of(
+                        HttpStatus.OK,
+                        HttpHeaderNames.CACHE_CONTROL,
+                        "public, max-age=60",
+                        HttpHeaderNames.ETAG,
+                        "\"v1\""),
+                    HttpData.ofUtf8("cats")));
+
+    AggregatedHttpResponse first = get("/cats");
+    AggregatedHttpResponse second = get("/cats");
+
+    assertThat(first.contentUtf8()).isEqualTo("cats");
+    assertThat(second.contentUtf8()).isEqualTo("cats");
+    assertThat(second.headers().contains(HttpHeaderNames.AGE)).isTrue();
+    verify(client, times(1)).execute(any(HttpRequest.class));
+
+    AggregatedHttpResponse notModified =
+        execute(
+            HttpRequest.of(
+                RequestHeaders.of(
+                    HttpMethod.GET, "/cats", HttpHeaderNames.IF_NONE_MATCH, "\"v1\"")));
+    assertThat(notModified.status()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    verify(client, times(1)).execute(any(HttpRequest.class));
+  }
+
+  @Test
+  void doesNotCachePrivateResponse() {
+    when(client.execute(any(HttpRequest.class)))
+        .thenAnswer(
+            unused ->
+                HttpResponse.of(
+                    ResponseHeaders.of(
+                        HttpStatus.OK, HttpHeaderNames.CACHE_CONTROL, "private, max-age=60"),
+                    HttpData.ofUtf8("dogs")));
+
+    assertThat(get("/dogs").contentUtf8()).isEqualTo("dogs");
+    assertThat(get("/dogs").contentUtf8()).isEqualTo("dogs");
+    verify(client, times(2)).execute(any(HttpRequest.class));
+  }
+
+  @Test
+  void doesNotCacheNonGet() {
+    when(client.execute(any(HttpRequest.class)))
+        .thenAnswer(
+            unused -> HttpResponse.of(HttpStatus.OK, MediaType.PLAIN_TEXT_UTF_8, "created"));
+
+    execute(HttpRequest.of(HttpMethod.POST, "/birds"));
+    execute(HttpRequest.of(HttpMethod.POST, "/birds"));
+    verify(client, times(2)).execute(any(HttpRequest.class));
+  }
+
+  @Test
+  void streamsChunkedResponseLargerThanMaxEntrySize() {
+    cache.close();
+    cache = new ResponseCache(ImmutableCacheConfig.builder().maxEntrySizeBytes(8).build());
+    HttpResponseWriter upstream = HttpResponse.streaming();
+    when(client.execute(any(HttpRequest.class))).thenReturn(upstream);
+
+    upstream.write(
+        ResponseHeaders.of(HttpStatus.OK, HttpHeaderNames.CACHE_CONTROL, "public, max-age=60"));
+    upstream.write(HttpData.ofUtf8("giraffes"));
+    upstream.write(HttpData.ofUtf8(" and"));
+
+    HttpRequest req = HttpRequest.of(HttpMethod.GET, "/giraffes");
+    SplitHttpResponse res = cache.execute(client, ServiceRequestContext.of(req), req).split();
+    // Headers are sent before the backend finishes the body, so it is not being buffered.
+    assertThat(res.headers().join().status()).isEqualTo(HttpStatus.OK);
+
+    upstream.write(HttpData.ofUtf8(" zebras"));
+    upstream.close();
+    assertThat(res.body().collect().join().stream().map(HttpData::toStringUtf8).collect(joining()))
+        .isEqualTo("giraffes and zebras");
+
+    when(client.execute(any(HttpRequest.class)))
+        .thenReturn(HttpResponse.of(HttpStatus.OK, MediaType.PLAIN_TEXT_UTF_8, "giraffes"));
+    get("/giraffes");
+    verify(client, times(2)).execute(any(HttpRequest.class));
+  }
+
+  private AggregatedHttpResponse get(String path) {
+    return execute(HttpRequest.of(HttpMethod.GET, path));
+  }
+
+  private AggregatedHttpResponse execute(HttpRequest req) {
+    ServiceRequestContext ctx = ServiceRequestContext.of(req);
+    return cache.execute(client, ctx, req).aggregate().join();
+  }
+}
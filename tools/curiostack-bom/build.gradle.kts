@@ -285,6 +285,7 @@ val DEPENDENCIES = listOf(
         "com.bmuschko:gradle-docker-plugin:9.4.0",
         "com.diffplug.spotless:spotless-plugin-gradle:6.25.0",
         "com.github.ben-manes:gradle-versions-plugin:0.51.0",
+        "com.github.luben:zstd-jni:1.5.6-3",
         "com.google.code.gson:gson:2.11.0",
         "com.google.gradle:osdetector-gradle-plugin:1.7.3",
         "com.gorylenko.gradle-git-properties:gradle-git-properties:2.4.2",
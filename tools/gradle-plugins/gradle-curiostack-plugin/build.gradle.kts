@@ -46,6 +46,7 @@ dependencies {
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-guava")
     implementation("com.diffplug.spotless:spotless-plugin-gradle")
     implementation("com.github.ben-manes:gradle-versions-plugin")
+    implementation("com.github.luben:zstd-jni")
     implementation("com.google.auth:google-auth-library-oauth2-http")
     implementation("com.google.cloud:google-cloud-kms")
     implementation("com.google.cloud.tools:jib-build-plan:0.4.0")
@@ -77,6 +78,8 @@ dependencies {
     compileOnly("org.immutables:value-annotations")
 
     testImplementation(project(":tools:gradle-plugins:gradle-test-helpers"))
+    testImplementation(testFixtures(project(":common:google-cloud:cloud-storage")))
+    testImplementation("org.awaitility:awaitility")
 }
 
 gradlePlugin {
@@ -105,7 +105,8 @@ public interface CiState {
    */
   List<String> getRevisionTags();
 
-  private static String getCiBranchOrTag() {
+  /** Returns the branch or tag being built on CI, or empty if not on CI. */
+  static String getCiBranchOrTag() {
     // Not quite "generic" but should satisfy 99% of cases.
     for (String key : COMMON_RELEASE_BRANCH_ENV_VARS) {
       String branch = System.getenv(key);
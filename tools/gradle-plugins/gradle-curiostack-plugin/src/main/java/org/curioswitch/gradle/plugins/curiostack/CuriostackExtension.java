@@ -34,10 +34,19 @@ public interface CuriostackExtension {
   String NAME = "curiostack";
 
   static CuriostackExtension createAndAdd(Settings settings) {
-    return settings.getExtensions().create(NAME, CuriostackExtension.class);
+    var extension = settings.getExtensions().create(NAME, CuriostackExtension.class);
+    extension.getBuildCacheLocalTier().convention(false);
+    return extension;
   }
 
   Property<String> getBuildCacheBucket();
 
+  /**
+   * Whether to cache entries of the remote build cache on local disk, under the Gradle user home,
+   * and on CI to prefetch the entries used by the previous build of the branch. Useful for CI where
+   * Gradle's local cache is disabled. Defaults to {@code false}.
+   */
+  Property<Boolean> getBuildCacheLocalTier();
+
   ListProperty<Project> getPlatfromProjects();
 }
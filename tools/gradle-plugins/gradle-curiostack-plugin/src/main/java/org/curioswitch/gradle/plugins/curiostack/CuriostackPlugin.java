@@ -24,6 +24,8 @@
 
 package org.curioswitch.gradle.plugins.curiostack;
 
+import java.io.File;
+import org.curioswitch.gradle.plugins.ci.CiState;
 import org.curioswitch.gradle.plugins.gcloud.GcloudBuildCachePlugin;
 import org.curioswitch.gradle.plugins.gcloud.buildcache.CloudStorageBuildCache;
 import org.gradle.api.Plugin;
@@ -41,12 +43,30 @@ public class CuriostackPlugin implements Plugin<Settings> {
 
     var buildCache = settings.getBuildCache();
     buildCache.getLocal().setEnabled(!System.getenv().containsKey("CI"));
-    buildCache.remote(
-        CloudStorageBuildCache.class,
-        remote -> {
-          remote.setBucket(config.getBuildCacheBucket());
-          remote.setPush(System.getenv().containsKey("CI_MASTER"));
-        });
+    var remoteCache =
+        buildCache.remote(
+            CloudStorageBuildCache.class,
+            remote -> {
+              remote.setBucket(config.getBuildCacheBucket());
+              remote.setPush(System.getenv().containsKey("CI_MASTER"));
+            });
+    // The extension is only configured by the settings script after applying the plugin.
+    settings
+        .getGradle()
+        .settingsEvaluated(
+            unused -> {
+              if (!config.getBuildCacheLocalTier().get()) {
+                return;
+              }
+              remoteCache.setLocalDirectory(
+                  new File(
+                      settings.getGradle().getGradleUserHomeDir(),
+                      "caches/curiostack-build-cache"));
+              String branch = CiState.getCiBranchOrTag();
+              if (!branch.isEmpty()) {
+                remoteCache.setPrefetchBranch(branch);
+              }
+            });
 
     try {
       settings.apply(c -> c.from("project.settings.gradle.kts"));
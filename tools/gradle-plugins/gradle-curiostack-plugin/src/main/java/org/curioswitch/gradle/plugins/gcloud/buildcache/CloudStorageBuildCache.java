@@ -26,6 +26,7 @@ package org.curioswitch.gradle.plugins.gcloud.buildcache;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.File;
 import javax.annotation.Nullable;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.gradle.api.provider.Provider;
@@ -33,8 +34,16 @@ import org.gradle.caching.configuration.AbstractBuildCache;
 
 public class CloudStorageBuildCache extends AbstractBuildCache {
 
+  private static final long DEFAULT_LOCAL_MAX_SIZE_BYTES = 5L * 1024 * 1024 * 1024;
+
   @MonotonicNonNull private Provider<String> bucket;
 
+  @Nullable private File localDirectory;
+
+  private long localMaxSizeBytes = DEFAULT_LOCAL_MAX_SIZE_BYTES;
+
+  @Nullable private String prefetchBranch;
+
   @Nullable
   public Provider<String> getBucket() {
     return bucket;
@@ -43,4 +52,44 @@ public class CloudStorageBuildCache extends AbstractBuildCache {
   public void setBucket(Provider<String> bucket) {
     this.bucket = checkNotNull(bucket, "bucket");
   }
+
+  /**
+   * The directory to cache entries on local disk in front of cloud storage. If not set, all lookups
+   * go to cloud storage.
+   */
+  @Nullable
+  public File getLocalDirectory() {
+    return localDirectory;
+  }
+
+  public void setLocalDirectory(@Nullable File localDirectory) {
+    this.localDirectory = localDirectory;
+  }
+
+  /**
+   * The maximum total size of entries cached on local disk, after which the least recently used
+   * entries are evicted. Defaults to 5GB.
+   */
+  public long getLocalMaxSizeBytes() {
+    return localMaxSizeBytes;
+  }
+
+  public void setLocalMaxSizeBytes(long localMaxSizeBytes) {
+    this.localMaxSizeBytes = localMaxSizeBytes;
+  }
+
+  /**
+   * The branch being built. If set along with {@link #getLocalDirectory()}, the entries used by the
+   * previous build of the branch are downloaded to local disk in parallel at the start of the
+   * build, before tasks look them up. Only builds with {@link #isPush()} save the entries they used
+   * for the next build.
+   */
+  @Nullable
+  public String getPrefetchBranch() {
+    return prefetchBranch;
+  }
+
+  public void setPrefetchBranch(@Nullable String prefetchBranch) {
+    this.prefetchBranch = prefetchBranch;
+  }
 }
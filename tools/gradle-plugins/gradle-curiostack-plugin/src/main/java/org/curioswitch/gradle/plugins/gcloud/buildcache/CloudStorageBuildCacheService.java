@@ -24,16 +24,44 @@
 
 package org.curioswitch.gradle.plugins.gcloud.buildcache;
 
-import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.google.common.collect.ImmutableMap;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
-import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import java.io.IOException;
-import org.curioswitch.curiostack.gcloud.storage.FileWriter;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.curioswitch.curiostack.gcloud.storage.FileStream;
+import org.curioswitch.curiostack.gcloud.storage.LruDirectory;
+import org.curioswitch.curiostack.gcloud.storage.PipelinedFileWriter;
 import org.curioswitch.curiostack.gcloud.storage.StorageClient;
+import org.curioswitch.curiostack.gcloud.storage.StorageClient.FileRequest;
+import org.gradle.api.logging.Logging;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheKey;
@@ -41,67 +69,503 @@ import org.gradle.caching.BuildCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A {@link BuildCacheService} which stores zstd-compressed cache entries in cloud storage. Entries
+ * are streamed in both directions, so memory usage doesn't depend on the size of entries. Stores
+ * return as soon as the entry has been written to the upload buffer, with the rest of the upload
+ * finishing in the background and waited for when the build finishes.
+ *
+ * <p>If a {@link LruDirectory} for local entries is provided, entries are first looked up on local
+ * disk, and entries loaded from or stored to cloud storage are also written to local disk. If a
+ * prefetch branch is also provided, the entries for the keys saved by the previous build of the
+ * branch are downloaded to local disk in the background when the build starts. Builds which push to
+ * the cache save the keys they used for the next build when they finish, builds which don't push
+ * only read them, as they could otherwise replace the keys with ones whose entries are not in cloud
+ * storage.
+ */
 public class CloudStorageBuildCacheService implements BuildCacheService {
 
   private static final Logger logger = LoggerFactory.getLogger(CloudStorageBuildCacheService.class);
 
+  // Entries are stored with a suffix to not conflict with uncompressed entries of older versions.
+  private static final String ENTRY_SUFFIX = ".zst";
+
+  private static final String PREFETCH_KEYS_PREFIX = "__curiostack__prefetch__/";
+
+  // The maximum number of stores uploading in the background at the same time.
+  private static final int MAX_CONCURRENT_STORES = 8;
+
+  // The maximum amount of compressed data of a single store waiting to be uploaded.
+  private static final long MAX_BUFFERED_BYTES_PER_STORE = 8 * 1024 * 1024;
+
+  // The maximum number of entries downloaded by prefetch at the same time.
+  private static final int PREFETCH_CONCURRENCY = 16;
+
+  private static final long DRAIN_TIMEOUT_MINUTES = 10;
+
   private final StorageClient cloudStorage;
+  @Nullable private final LruDirectory localCache;
+  @Nullable private final String prefetchBranch;
+  private final boolean push;
+
+  private final Semaphore storePermits = new Semaphore(MAX_CONCURRENT_STORES);
+  private final Set<CompletableFuture<Void>> pendingStores = ConcurrentHashMap.newKeySet();
+
+  // Keys loaded or stored by this build, in order of first use.
+  private final Set<String> usedKeys = Collections.synchronizedSet(new LinkedHashSet<>());
+
+  @Nullable private final ExecutorService prefetchExecutor;
+  private final Set<String> queuedPrefetches = ConcurrentHashMap.newKeySet();
+  private final Map<String, CompletableFuture<Void>> runningPrefetches = new ConcurrentHashMap<>();
+
+  private final AtomicLong localHits = new AtomicLong();
+  private final AtomicLong remoteHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong prefetched = new AtomicLong();
 
   CloudStorageBuildCacheService(StorageClient cloudStorage) {
+    this(cloudStorage, null, null, true);
+  }
+
+  CloudStorageBuildCacheService(
+      StorageClient cloudStorage,
+      @Nullable LruDirectory localCache,
+      @Nullable String prefetchBranch,
+      boolean push) {
     this.cloudStorage = cloudStorage;
+    this.localCache = localCache;
+    this.prefetchBranch = localCache != null ? prefetchBranch : null;
+    this.push = push;
+
+    if (this.prefetchBranch != null) {
+      prefetchExecutor =
+          Executors.newFixedThreadPool(
+              PREFETCH_CONCURRENCY,
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("build-cache-prefetch-%d")
+                  .build());
+      startPrefetch(this.prefetchBranch);
+    } else {
+      prefetchExecutor = null;
+    }
   }
 
   @Override
   public boolean load(BuildCacheKey buildCacheKey, BuildCacheEntryReader buildCacheEntryReader) {
-    final ByteBuf data;
+    String key = buildCacheKey.getHashCode();
+    usedKeys.add(key);
+
+    if (localCache != null) {
+      awaitPrefetch(key);
+      Path path = localCache.get(key);
+      if (path != null) {
+        InputStream local;
+        try {
+          local = Files.newInputStream(path);
+        } catch (IOException e) {
+          // Evicted since looking it up, read from cloud storage instead.
+          local = null;
+        }
+        if (local != null) {
+          try (InputStream s = new ZstdInputStream(local)) {
+            buildCacheEntryReader.readFrom(s);
+          } catch (Throwable t) {
+            logger.warn("Exception processing local build cache data.", t);
+            return false;
+          }
+          localHits.incrementAndGet();
+          return true;
+        }
+      }
+    }
+
+    final FileStream stream;
     try {
-      data = cloudStorage.readFile(buildCacheKey.getHashCode()).join();
+      stream = cloudStorage.readFileStream(key + ENTRY_SUFFIX).join();
     } catch (Throwable t) {
       logger.warn("Exception reading from build cache.", t);
       return false;
     }
-    if (data == null) {
+    if (stream == null) {
+      misses.incrementAndGet();
       return false;
     }
-    try (ByteBufInputStream s = new ByteBufInputStream(data, true)) {
+
+    LocalCopy copy = newLocalCopy();
+    InputStream remote = Channels.newInputStream(stream.newChannel());
+    if (copy != null) {
+      remote = new CopyingInputStream(remote, copy);
+    }
+    try (InputStream s = new ZstdInputStream(remote)) {
       buildCacheEntryReader.readFrom(s);
+      if (copy != null) {
+        // Make sure the local copy is complete even if the reader stopped early.
+        remote.transferTo(OutputStream.nullOutputStream());
+      }
     } catch (Throwable t) {
+      stream.abort();
+      if (copy != null) {
+        copy.discard();
+      }
       logger.warn("Exception processing cloud storage data.", t);
       return false;
     }
+    if (copy != null) {
+      copy.commit(key);
+    }
+    remoteHits.incrementAndGet();
     return true;
   }
 
   @Override
   public void store(BuildCacheKey buildCacheKey, BuildCacheEntryWriter buildCacheEntryWriter) {
-    ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer((int) buildCacheEntryWriter.getSize());
+    String key = buildCacheKey.getHashCode();
+    usedKeys.add(key);
 
     try {
-      try (ByteBufOutputStream os = new ByteBufOutputStream(buf)) {
-        buildCacheEntryWriter.writeTo(os);
-      } catch (IOException e) {
-        logger.warn("Couldn't write cache entry to buffer.", e);
-        buf.release();
-        return;
+      storePermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    final PipelinedFileWriter file;
+    try {
+      file =
+          cloudStorage
+              .createPipelinedFile(
+                  new FileRequest.Builder().name(key + ENTRY_SUFFIX).build(),
+                  MAX_BUFFERED_BYTES_PER_STORE)
+              .join();
+    } catch (Throwable t) {
+      storePermits.release();
+      logger.warn("Exception writing to cloud storage, ignoring.", t);
+      return;
+    }
+
+    LocalCopy copy = newLocalCopy();
+    OutputStream uploadStream = file.newOutputStream(false);
+    if (copy != null) {
+      uploadStream = new CopyingOutputStream(uploadStream, copy);
+    }
+
+    // The entry can only be read during this call, so it is always written synchronously, only
+    // blocking if it's written faster than it can be uploaded.
+    try (OutputStream os = new ZstdOutputStream(uploadStream)) {
+      buildCacheEntryWriter.writeTo(os);
+    } catch (Throwable t) {
+      file.abort();
+      storePermits.release();
+      if (copy != null) {
+        copy.discard();
       }
+      logger.warn("Exception writing to cloud storage, ignoring.", t);
+      return;
+    }
+    if (copy != null) {
+      copy.commit(key);
+    }
 
-      FileWriter writer =
-          cloudStorage.createFile(buildCacheKey.getHashCode(), ImmutableMap.of()).join();
-      while (buf.readableBytes() > 0) {
-        ByteBuf chunk = buf.readRetainedSlice(Math.min(buf.readableBytes(), 10 * 4 * 256 * 1000));
-        if (buf.readableBytes() > 0) {
-          getUnchecked(writer.write(chunk));
-        } else {
-          writer.writeAndClose(chunk).join();
-        }
+    CompletableFuture<Void> upload = file.close();
+    pendingStores.add(upload);
+    upload.whenComplete(
+        (unused, t) -> {
+          pendingStores.remove(upload);
+          storePermits.release();
+          if (t != null) {
+            logger.warn("Exception writing to cloud storage, ignoring.", t);
+          }
+        });
+  }
+
+  /**
+   * Waits for stores that are still uploading to finish, saves the keys used by this build for
+   * prefetching if it pushes to the cache, and logs the hit counts of the build.
+   */
+  @Override
+  public void close() throws IOException {
+    if (prefetchExecutor != null) {
+      queuedPrefetches.clear();
+      prefetchExecutor.shutdownNow();
+    }
+
+    List<CompletableFuture<?>> pending = new ArrayList<>(pendingStores);
+    if (prefetchBranch != null && push) {
+      pending.add(savePrefetchKeys(prefetchBranch));
+    }
+    if (!pending.isEmpty()) {
+      try {
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+            .get(DRAIN_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting for build cache uploads.");
+      } catch (ExecutionException e) {
+        // Already logged for the failed upload.
+      } catch (TimeoutException e) {
+        logger.warn("Timed out waiting for build cache uploads, some entries may be missing.");
       }
+    }
+
+    if (localHits.get() + remoteHits.get() + misses.get() > 0) {
+      logger.info(
+          Logging.LIFECYCLE,
+          "Cloud storage build cache: {} local hits ({} entries prefetched), {} remote hits, {} "
+              + "misses.",
+          localHits.get(),
+          prefetched.get(),
+          remoteHits.get(),
+          misses.get());
+    }
+  }
+
+  long localHits() {
+    return localHits.get();
+  }
+
+  long remoteHits() {
+    return remoteHits.get();
+  }
+
+  private void startPrefetch(String branch) {
+    cloudStorage
+        .readFile(PREFETCH_KEYS_PREFIX + branch)
+        .whenComplete(
+            (keys, t) -> {
+              if (t != null) {
+                logger.warn("Exception reading build cache prefetch keys, ignoring.", t);
+                return;
+              }
+              if (keys == null) {
+                return;
+              }
+              final String content;
+              try {
+                content = keys.toString(UTF_8);
+              } finally {
+                keys.release();
+              }
+              for (String key : Splitter.on('\n').omitEmptyStrings().split(content)) {
+                if (localCache.contains(key) || !queuedPrefetches.add(key)) {
+                  continue;
+                }
+                try {
+                  prefetchExecutor.execute(() -> prefetch(key));
+                } catch (RuntimeException e) {
+                  // Closed before the keys were read.
+                  queuedPrefetches.remove(key);
+                  return;
+                }
+              }
+            });
+  }
+
+  private void prefetch(String key) {
+    // Loads of the key before the prefetch started read from cloud storage themselves.
+    if (!queuedPrefetches.remove(key)) {
+      return;
+    }
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    runningPrefetches.put(key, done);
+    try {
+      FileStream stream = cloudStorage.readFileStream(key + ENTRY_SUFFIX).join();
+      if (stream == null) {
+        return;
+      }
+      Path temp = localCache.newTempFile();
+      try (InputStream s = Channels.newInputStream(stream.newChannel())) {
+        Files.copy(s, temp, StandardCopyOption.REPLACE_EXISTING);
+      } catch (Throwable t) {
+        stream.abort();
+        localCache.discard(temp);
+        throw t;
+      }
+      localCache.commit(key, temp);
+      prefetched.incrementAndGet();
     } catch (Throwable t) {
-      logger.warn("Exception writing to cloud storage, ignoring.", t);
+      logger.info("Exception prefetching build cache entry, ignoring.", t);
     } finally {
-      buf.release();
+      runningPrefetches.remove(key);
+      done.complete(null);
     }
   }
 
-  @Override
-  public void close() throws IOException {}
+  private void awaitPrefetch(String key) {
+    if (prefetchExecutor == null) {
+      return;
+    }
+    // Not worth waiting for a prefetch that hasn't started yet.
+    queuedPrefetches.remove(key);
+    CompletableFuture<Void> running = runningPrefetches.get(key);
+    if (running != null) {
+      running.join();
+    }
+  }
+
+  private CompletableFuture<Void> savePrefetchKeys(String branch) {
+    final String keys;
+    synchronized (usedKeys) {
+      if (usedKeys.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+      keys = String.join("\n", usedKeys);
+    }
+    ByteBuf content = Unpooled.wrappedBuffer(keys.getBytes(UTF_8));
+    return cloudStorage
+        .createFile(new FileRequest.Builder().name(PREFETCH_KEYS_PREFIX + branch).build())
+        .thenCompose(file -> file.writeAndClose(content))
+        .whenComplete(
+            (unused, t) -> {
+              if (t != null) {
+                logger.warn("Exception saving build cache prefetch keys, ignoring.", t);
+              }
+            });
+  }
+
+  @Nullable
+  private LocalCopy newLocalCopy() {
+    if (localCache == null) {
+      return null;
+    }
+    try {
+      return new LocalCopy(localCache, localCache.newTempFile());
+    } catch (IOException e) {
+      logger.info("Could not write to local build cache, ignoring.", e);
+      return null;
+    }
+  }
+
+  /**
+   * A copy of an entry being written to a temporary file of the local {@link LruDirectory}. Failing
+   * to write the copy only skips adding it to the local cache, without failing the load or store.
+   */
+  private static class LocalCopy {
+
+    private final LruDirectory localCache;
+    private final Path temp;
+
+    @Nullable private OutputStream out;
+
+    private LocalCopy(LruDirectory localCache, Path temp) throws IOException {
+      this.localCache = localCache;
+      this.temp = temp;
+      out = Files.newOutputStream(temp);
+    }
+
+    private void write(byte[] b, int off, int len) {
+      if (out == null) {
+        return;
+      }
+      try {
+        out.write(b, off, len);
+      } catch (IOException e) {
+        closeQuietly();
+      }
+    }
+
+    private void commit(String key) {
+      if (out == null) {
+        localCache.discard(temp);
+        return;
+      }
+      try {
+        out.close();
+      } catch (IOException e) {
+        localCache.discard(temp);
+        return;
+      }
+      localCache.commit(key, temp);
+    }
+
+    private void discard() {
+      closeQuietly();
+      localCache.discard(temp);
+    }
+
+    private void closeQuietly() {
+      if (out == null) {
+        return;
+      }
+      try {
+        out.close();
+      } catch (IOException e) {
+        // Ignore.
+      }
+      out = null;
+    }
+  }
+
+  /** An {@link InputStream} which copies all data read from it to a {@link LocalCopy}. */
+  private static class CopyingInputStream extends InputStream {
+
+    private final InputStream delegate;
+    private final LocalCopy copy;
+
+    private CopyingInputStream(InputStream delegate, LocalCopy copy) {
+      this.delegate = delegate;
+      this.copy = copy;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = delegate.read();
+      if (b >= 0) {
+        copy.write(new byte[] {(byte) b}, 0, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = delegate.read(b, off, len);
+      if (read > 0) {
+        copy.write(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
+  /** An {@link OutputStream} which copies all data written to it to a {@link LocalCopy}. */
+  private static class CopyingOutputStream extends OutputStream {
+
+    private final OutputStream delegate;
+    private final LocalCopy copy;
+
+    private CopyingOutputStream(OutputStream delegate, LocalCopy copy) {
+      this.delegate = delegate;
+      this.copy = copy;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      delegate.write(b, off, len);
+      copy.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
 }
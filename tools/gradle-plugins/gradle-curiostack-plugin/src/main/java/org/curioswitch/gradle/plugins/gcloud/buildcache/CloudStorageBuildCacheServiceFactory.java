@@ -41,6 +41,7 @@ import org.curioswitch.curiostack.gcloud.core.ModifiableGcloudConfig;
 import org.curioswitch.curiostack.gcloud.core.auth.AccessTokenProvider;
 import org.curioswitch.curiostack.gcloud.core.auth.GcloudAuthModule;
 import org.curioswitch.curiostack.gcloud.core.auth.GoogleCredentialsDecoratingClient;
+import org.curioswitch.curiostack.gcloud.storage.LruDirectory;
 import org.curioswitch.curiostack.gcloud.storage.StorageClient;
 import org.curioswitch.curiostack.gcloud.storage.StorageConfig;
 import org.gradle.caching.BuildCacheEntryReader;
@@ -65,6 +66,12 @@ public class CloudStorageBuildCacheServiceFactory
     describer
         .type("Google Cloud Storage Build Cache")
         .config("bucket", buildCache.getBucket().get());
+    if (buildCache.getLocalDirectory() != null) {
+      describer.config("localDirectory", buildCache.getLocalDirectory().getAbsolutePath());
+    }
+    if (buildCache.getPrefetchBranch() != null) {
+      describer.config("prefetchBranch", buildCache.getPrefetchBranch());
+    }
 
     final Credentials credentials;
     try {
@@ -86,7 +93,8 @@ public class CloudStorageBuildCacheServiceFactory
     WebClient authenticatedGoogleApis =
         Clients.newDerivedClient(
             GcloudAuthModule.authenticatedGoogleApisClient(googleApis, credentialsDecoratorFactory),
-            ClientOptions.MAX_RESPONSE_LENGTH.newValue(100 * 1000 * 1000L));
+            // Cache entries are streamed so there's no need to limit their size.
+            ClientOptions.MAX_RESPONSE_LENGTH.newValue(0L));
 
     StorageClient storageClient =
         new StorageClient(
@@ -108,7 +116,19 @@ public class CloudStorageBuildCacheServiceFactory
       return NoOpBuildCacheService.INSTANCE;
     }
 
-    return new CloudStorageBuildCacheService(storageClient);
+    LruDirectory localCache = null;
+    if (buildCache.getLocalDirectory() != null) {
+      try {
+        localCache =
+            new LruDirectory(
+                buildCache.getLocalDirectory().toPath(), buildCache.getLocalMaxSizeBytes());
+      } catch (IllegalStateException e) {
+        logger.warn("Could not load local build cache, only using cloud storage.", e);
+      }
+    }
+
+    return new CloudStorageBuildCacheService(
+        storageClient, localCache, buildCache.getPrefetchBranch(), buildCache.isPush());
   }
 
   private enum NoOpBuildCacheService implements BuildCacheService {
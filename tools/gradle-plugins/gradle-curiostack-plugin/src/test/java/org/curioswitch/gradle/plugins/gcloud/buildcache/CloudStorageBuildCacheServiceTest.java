@@ -24,10 +24,166 @@
 
 package org.curioswitch.gradle.plugins.gcloud.buildcache;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.curioswitch.curiostack.gcloud.storage.LruDirectory;
+import org.curioswitch.curiostack.gcloud.storage.testing.FakeStorageServer;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class CloudStorageBuildCacheServiceTest {
 
+  private FakeStorageServer server;
+  private CloudStorageBuildCacheService service;
+
+  @BeforeEach
+  void setUp() {
+    server = FakeStorageServer.builder().partialAcknowledgements(true).build().start();
+    service = new CloudStorageBuildCacheService(server.newStorageClient());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @Test
+  void storesAndLoads() throws Exception {
+    // Compressible text with random parts, larger than the upload buffer.
+    byte[] entry = new byte[20 * 1024 * 1024];
+    byte[] text = "build cache entry ".getBytes(StandardCharsets.UTF_8);
+    Random random = new Random(1);
+    for (int i = 0; i < entry.length; i++) {
+      entry[i] = i % 4096 < 1024 ? (byte) random.nextInt() : text[i % text.length];
+    }
+
+    service.store(key("abc"), writer(entry));
+    service.close();
+
+    assertThat(server.getObject("abc.zst")).isNotNull();
+    assertThat(server.getObject("abc.zst").length).isLessThan(entry.length / 2);
+
+    AtomicReference<byte[]> loaded = new AtomicReference<>();
+    assertThat(service.load(key("abc"), input -> loaded.set(ByteStreams.toByteArray(input))))
+        .isTrue();
+    assertThat(loaded.get()).isEqualTo(entry);
+  }
+
+  @Test
+  void missingEntry() {
+    assertThat(service.load(key("missing"), input -> {})).isFalse();
+  }
+
+  @Test
+  void localTier(@TempDir Path directory) throws Exception {
+    byte[] stored = "stored entry".getBytes(StandardCharsets.UTF_8);
+    byte[] remote = "remote entry".getBytes(StandardCharsets.UTF_8);
+    service.store(key("remote"), writer(remote));
+    service.close();
+
+    var localCache = new LruDirectory(directory, 1024 * 1024);
+    var twoTier =
+        new CloudStorageBuildCacheService(server.newStorageClient(), localCache, null, true);
+
+    twoTier.store(key("stored"), writer(stored));
+    assertThat(load(twoTier, "remote")).isEqualTo(remote);
+    assertThat(twoTier.remoteHits()).isEqualTo(1);
+
+    int numRequests = server.numRequests();
+    assertThat(load(twoTier, "stored")).isEqualTo(stored);
+    assertThat(load(twoTier, "remote")).isEqualTo(remote);
+    assertThat(twoTier.localHits()).isEqualTo(2);
+    assertThat(server.numRequests()).isEqualTo(numRequests);
+    twoTier.close();
+  }
+
   @Test
-  void normal() {}
+  void prefetchesPreviousBuild(@TempDir Path directory) throws Exception {
+    byte[] entry = "entry".getBytes(StandardCharsets.UTF_8);
+    var previous =
+        new CloudStorageBuildCacheService(
+            server.newStorageClient(),
+            new LruDirectory(directory.resolve("previous"), 1024 * 1024),
+            "feature/branch",
+            true);
+    previous.store(key("a"), writer(entry));
+    previous.store(key("b"), writer(entry));
+    previous.close();
+
+    var localCache = new LruDirectory(directory.resolve("next"), 1024 * 1024);
+    var next =
+        new CloudStorageBuildCacheService(
+            server.newStorageClient(), localCache, "feature/branch", true);
+    await().untilAsserted(() -> assertThat(localCache.contains("b")).isTrue());
+    assertThat(load(next, "b")).isEqualTo(entry);
+    assertThat(next.localHits()).isEqualTo(1);
+    next.close();
+  }
+
+  @Test
+  void onlySavesPrefetchKeysWhenPushing(@TempDir Path directory) throws Exception {
+    var readOnly =
+        new CloudStorageBuildCacheService(
+            server.newStorageClient(),
+            new LruDirectory(directory, 1024 * 1024),
+            "feature/branch",
+            false);
+    assertThat(readOnly.load(key("a"), input -> {})).isFalse();
+    readOnly.close();
+
+    assertThat(server.getObject("__curiostack__prefetch__/feature/branch")).isNull();
+  }
+
+  private static byte[] load(CloudStorageBuildCacheService service, String key) {
+    AtomicReference<byte[]> loaded = new AtomicReference<>();
+    assertThat(service.load(key(key), input -> loaded.set(ByteStreams.toByteArray(input))))
+        .isTrue();
+    return loaded.get();
+  }
+
+  private static BuildCacheKey key(String hashCode) {
+    return new BuildCacheKey() {
+      @Override
+      public String getHashCode() {
+        return hashCode;
+      }
+
+      @Override
+      public byte[] toByteArray() {
+        return hashCode.getBytes(StandardCharsets.UTF_8);
+      }
+
+      @Override
+      @SuppressWarnings("deprecation")
+      public String getDisplayName() {
+        return hashCode;
+      }
+    };
+  }
+
+  private static BuildCacheEntryWriter writer(byte[] entry) {
+    return new BuildCacheEntryWriter() {
+      @Override
+      public void writeTo(OutputStream output) throws IOException {
+        output.write(entry);
+      }
+
+      @Override
+      public long getSize() {
+        return entry.length;
+      }
+    };
+  }
 }